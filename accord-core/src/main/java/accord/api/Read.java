@@ -1,5 +1,8 @@
 package accord.api;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
 /**
  * A read to be performed on potentially multiple shards, the inputs of which may be fed to a {@link Query}
  *
@@ -8,4 +11,14 @@ package accord.api;
 public interface Read
 {
     Data read(KeyRange range, Store store);
+
+    /**
+     * Perform the read on the store's {@link Store#readExecutor()}, so that it does not occupy the
+     * executor of the Instance that requested it. If the read throws, the result completes exceptionally.
+     * Implementations with a natively asynchronous store may override.
+     */
+    default CompletionStage<Data> readAsync(KeyRange range, Store store)
+    {
+        return CompletableFuture.supplyAsync(() -> read(range, store), store.readExecutor());
+    }
 }
@@ -0,0 +1,18 @@
+package accord.api;
+
+import accord.utils.Serializer;
+
+/**
+ * Serializers for the implementation-defined components of a transaction, so that protocol state
+ * that references them may be persisted or sent to other nodes
+ */
+public interface Serializers
+{
+    Serializer<Key> key();
+    Serializer<Read> read();
+    Serializer<Query> query();
+    Serializer<Update> update();
+    Serializer<Write> write();
+    Serializer<Result> result();
+    Serializer<Data> data();
+}
@@ -1,9 +1,30 @@
 package accord.api;
 
+import java.util.concurrent.Executor;
+
 /**
  * A marker interface for a shard instance's storage, that is passed to
  * {@link Read} and {@link Write} objects for execution
  */
 public interface Store
 {
+    /**
+     * The executor on which {@link Read#readAsync} performs reads against this store.
+     * Reads may therefore run concurrently with writes to other keys, which the store must tolerate.
+     * By default reads are performed immediately by the caller.
+     */
+    default Executor readExecutor()
+    {
+        return Runnable::run;
+    }
+
+    /**
+     * Whether writes applied to this store survive a restart. A Node replays the writes of every command it journaled,
+     * but a Snapshot lets the Journal discard the records of commands we have retired, whose writes thereafter survive
+     * only in the store; so a Node may only take snapshots if every store is durable. By default, a store is not.
+     */
+    default boolean isDurable()
+    {
+        return false;
+    }
 }
@@ -5,6 +5,7 @@ import java.util.List;
 import java.util.concurrent.CompletableFuture;
 
 import accord.messages.Preempted;
+import accord.messages.Refused;
 import accord.txn.Ballot;
 import accord.messages.Callback;
 import accord.local.Node;
@@ -58,19 +59,33 @@ class AcceptPhase extends CompletableFuture<Agreed>
             @Override
             public void onFailure(Id from, Throwable throwable)
             {
-                shards.forEachOn(from, (i, shard) -> {
-                    if (++failures[i] >= shard.slowPathQuorumSize)
-                        completeExceptionally(new accord.messages.Timeout());
-                });
+                onAcceptFailure(from);
             }
         });
     }
 
-    private void onAccept(Id from, AcceptReply reply)
+    // replies to our PreAccept may still be arriving, so we share their monitor
+    private synchronized void onAcceptFailure(Id from)
+    {
+        shards.forEachOn(from, (i, shard) -> {
+            if (++failures[i] > shard.nodes.size() - shard.slowPathQuorumSize)
+                completeExceptionally(new accord.messages.Timeout());
+        });
+    }
+
+    private synchronized void onAccept(Id from, AcceptReply reply)
     {
         if (isDone())
             return;
 
+        // a replica that refuses to witness the transaction will never accept it; if too many do, a recovery
+        // coordinator will find this and invalidate it
+        if (reply instanceof Refused)
+        {
+            onAcceptFailure(from);
+            return;
+        }
+
         if (!reply.isOK())
         {
             completeExceptionally(new Preempted());
@@ -90,10 +105,10 @@ class AcceptPhase extends CompletableFuture<Agreed>
 
     private void onAccepted()
     {
-        Dependencies deps = new Dependencies();
+        Dependencies.Builder deps = Dependencies.builder();
         for (AcceptOk acceptOk : acceptOks)
             deps.addAll(acceptOk.deps);
-        agreed(proposed, deps);
+        agreed(proposed, deps.build());
     }
 
     protected void agreed(Timestamp executeAt, Dependencies deps)
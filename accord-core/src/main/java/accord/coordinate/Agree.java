@@ -1,11 +1,19 @@
 package accord.coordinate;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 
+import accord.api.Scheduler.Scheduled;
+
+import accord.messages.Invalidated;
 import accord.messages.Preempted;
+import accord.messages.Refused;
 import accord.messages.Timeout;
+import accord.topology.Shard;
 import accord.txn.Ballot;
 import accord.messages.Callback;
 import accord.local.Node;
@@ -33,15 +41,23 @@ class Agree extends AcceptPhase implements Callback<PreAcceptReply>
     private int[] preAccepts;
     private int[] fastPathPreAccepts;
     private int[] failures;
+    private int[] refusals;
     private int[] responsesOutstanding;
+    private int[] fastPathResponsesOutstanding;
 
     private int preAccepted;
     private int fastPathAccepted;
     private int noOutstandingResponses;
     private PreacceptOutcome preacceptOutcome;
     private final List<PreAcceptOk> preAcceptOks = new ArrayList<>();
+    // each node's first reply or failure is the only one we count
+    private final Set<Id> responded = new HashSet<>();
+    private Scheduled fastPathWait;
+    // when we sent our PreAccepts, so we may report the latency of each reply
+    private final long startedAt;
 
-    // TODO: hybrid fast path? or at least short-circuit accept if we gain a fast-path quorum _and_ proposed one by accept
+    // if we have proposed txnId by Accept, having given up waiting for replicas that had yet to respond, we may still
+    // commit on the fast path should their PreAcceptOks complete its quorum
     boolean permitHybridFastPath;
 
     private Agree(Node node, TxnId txnId, Txn txn)
@@ -49,50 +65,39 @@ class Agree extends AcceptPhase implements Callback<PreAcceptReply>
         super(node, Ballot.ZERO, txnId, txn, node.cluster().forKeys(txn.keys()));
         this.keys = txn.keys();
         this.failures = new int[shards.size()];
+        this.refusals = new int[shards.size()];
         this.preAccepts = new int[shards.size()];
         this.fastPathPreAccepts = new int[shards.size()];
         this.responsesOutstanding = new int[shards.size()];
+        this.fastPathResponsesOutstanding = new int[shards.size()];
         shards.forEach((i, shard) -> {
             this.responsesOutstanding[i] = shard.nodes.size();
+            this.fastPathResponsesOutstanding[i] = shard.fastPathElectorate.size();
         });
 
-
+        this.startedAt = node.now();
         node.send(shards, new PreAccept(txnId, txn), this);
     }
 
-    private void messageReceived(int shard)
+    private void messageReceived(Id from, int i, Shard shard)
     {
-        if (--responsesOutstanding[shard] == 0)
+        if (--responsesOutstanding[i] == 0)
             noOutstandingResponses++;
+        if (shard.fastPathElectorate.contains(from))
+            --fastPathResponsesOutstanding[i];
     }
 
     @Override
-    public void onSuccess(Id from, PreAcceptReply response)
+    public synchronized void onSuccess(Id from, PreAcceptReply receive)
     {
-        onPreAccept(from, response);
-    }
-
-    @Override
-    public void onFailure(Id from, Throwable throwable)
-    {
-        if (isDone() || isPreAccepted())
+        if (isDone() || (isPreAccepted() && !permitHybridFastPath) || !responded.add(from))
             return;
 
-        shards.forEachOn(from, (i, shard) -> {
-            messageReceived(i);
-            if (++failures[i] >= shard.slowPathQuorumSize)
-                completeExceptionally(new Timeout());
-        });
-
-        // if no other responses are expected and the slow quorum has been satisfied, proceed
-        if (shouldSlowPathAccept())
-            onPreAccepted();
-    }
-
-    private synchronized void onPreAccept(Id from, PreAcceptReply receive)
-    {
-        if (isDone() || isPreAccepted())
+        if (receive instanceof Refused)
+        {
+            onRefused(from, (Refused) receive);
             return;
+        }
 
         if (!receive.isOK())
         {
@@ -103,10 +108,11 @@ class Agree extends AcceptPhase implements Callback<PreAcceptReply>
 
         PreAcceptOk ok = (PreAcceptOk) receive;
         preAcceptOks.add(ok);
+        node.fastPathWait().onLatency(node.now() - startedAt);
 
         boolean fastPath = ok.witnessedAt.compareTo(txnId) == 0;
         shards.forEachOn(from, (i, shard) -> {
-            messageReceived(i);
+            messageReceived(from, i, shard);
             if (fastPath && shard.fastPathElectorate.contains(from) && ++fastPathPreAccepts[i] == shard.fastPathQuorumSize)
                 ++fastPathAccepted;
 
@@ -114,50 +120,134 @@ class Agree extends AcceptPhase implements Callback<PreAcceptReply>
                 ++preAccepted;
         });
 
-        if (isFastPathAccepted() || shouldSlowPathAccept())
+        decide();
+    }
+
+    @Override
+    public synchronized void onFailure(Id from, Throwable throwable)
+    {
+        if (isDone() || isPreAccepted() || !responded.add(from))
+            return;
+
+        onNoPreAccept(from);
+    }
+
+    private void onNoPreAccept(Id from)
+    {
+        shards.forEachOn(from, (i, shard) -> {
+            messageReceived(from, i, shard);
+            if (++failures[i] > shard.nodes.size() - shard.slowPathQuorumSize)
+                completeExceptionally(new Timeout());
+        });
+
+        decide();
+    }
+
+    private void onRefused(Id from, Refused refused)
+    {
+        // our clock lags the replica's, so we must not issue another TxnId it will refuse
+        node.uniqueNow(refused.refuseBefore);
+        shards.forEachOn(from, refused.keys, (i, shard) -> {
+            if (++refusals[i] > shard.nodes.size() - shard.slowPathQuorumSize && !isDone())
+            {
+                Invalidate.invalidate(node, txnId, txn, shards);
+                completeExceptionally(new Invalidated());
+            }
+        });
+        onNoPreAccept(from);
+    }
+
+    private void decide()
+    {
+        if (isDone())
+            return;
+
+        if (isPreAccepted())
+        {
+            // we are awaiting the Accept round we started, but may commit directly if we have now reached the fast path
+            if (permitHybridFastPath && isFastPathAccepted())
+                onHybridFastPathAccepted();
+        }
+        else if (isFastPathAccepted())
+        {
+            onPreAccepted();
+        }
+        else if (preAccepted == shards.size())
+        {
+            // we have a slow path quorum, so start the Accept round as soon as waiting cannot reach the fast path;
+            // an Accept round costs every replica a message and a journal record that an uncontended transaction
+            // would not otherwise need, so we otherwise wait for the outstanding replicas until most PreAccepts
+            // would have been answered, after which their replies may still commit on the hybrid fast path
+            long wait = node.fastPathWait().delay() - (node.now() - startedAt);
+            if (noOutstandingResponses == shards.size() || !isFastPathReachable() || wait <= 0)
+                onPreAccepted();
+            else if (fastPathWait == null)
+                fastPathWait = node.scheduler().once(this::onFastPathWaitExpired, wait, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void onFastPathWaitExpired()
+    {
+        if (!isDone() && !isPreAccepted())
             onPreAccepted();
     }
 
     private void onPreAccepted()
     {
+        if (fastPathWait != null)
+            fastPathWait.cancel();
+
         if (isFastPathAccepted())
         {
             preacceptOutcome = PreacceptOutcome.COMMIT;
-            Dependencies deps = new Dependencies();
+            Dependencies.Builder deps = Dependencies.builder();
             for (PreAcceptOk preAcceptOk : preAcceptOks)
             {
                 if (preAcceptOk.witnessedAt.equals(txnId))
                     deps.addAll(preAcceptOk.deps);
             }
-            agreed(txnId, deps);
+            agreed(txnId, deps.build());
         }
         else
         {
             preacceptOutcome = PreacceptOutcome.ACCEPT;
             Timestamp executeAt = Timestamp.NONE;
-            Dependencies deps = new Dependencies();
+            Dependencies.Builder deps = Dependencies.builder();
             for (PreAcceptOk preAcceptOk : preAcceptOks)
             {
                 deps.addAll(preAcceptOk.deps);
                 executeAt = Timestamp.max(executeAt, preAcceptOk.witnessedAt);
             }
 
-            // TODO: perhaps don't submit Accept immediately if we almost have enough for fast-path,
-            //       but by sending accept we rule out hybrid fast-path
             permitHybridFastPath = executeAt.compareTo(txnId) == 0;
 
-            startAccept(executeAt, deps);
+            startAccept(executeAt, deps.build());
         }
     }
 
+    private void onHybridFastPathAccepted()
+    {
+        preacceptOutcome = PreacceptOutcome.COMMIT;
+        // we have already proposed the dependencies of every PreAcceptOk, so must commit (at least) all of these
+        Dependencies.Builder deps = Dependencies.builder();
+        for (PreAcceptOk preAcceptOk : preAcceptOks)
+            deps.addAll(preAcceptOk.deps);
+        agreed(txnId, deps.build());
+    }
+
     private boolean isFastPathAccepted()
     {
         return fastPathAccepted == shards.size();
     }
 
-    private boolean shouldSlowPathAccept()
+    private boolean isFastPathReachable()
     {
-        return noOutstandingResponses == shards.size() && preAccepted == shards.size();
+        for (int i = 0 ; i < shards.size() ; ++i)
+        {
+            if (fastPathPreAccepts[i] + fastPathResponsesOutstanding[i] < shards.get(i).fastPathQuorumSize)
+                return false;
+        }
+        return true;
     }
 
     private boolean isPreAccepted()
@@ -10,6 +10,7 @@ import java.util.function.Function;
 
 import accord.local.Node;
 import accord.api.Result;
+import accord.txn.Keys;
 import accord.txn.Txn;
 import accord.txn.TxnId;
 import accord.txn.Ballot;
@@ -37,6 +38,11 @@ public class Coordinate
         return andThenExecute(node, new Recover(node, new Ballot(node.uniqueNow()), txnId, txn));
     }
 
+    public static CompletionStage<Void> fetch(Node node, TxnId txnId, Keys keys)
+    {
+        return Fetch.fetch(node, txnId, keys);
+    }
+
     private static class DebugCompletionStage<T> implements CompletionStage<T>
     {
         final Object debug1;
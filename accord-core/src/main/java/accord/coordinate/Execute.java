@@ -1,7 +1,14 @@
 package accord.coordinate;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 
 import accord.api.Data;
 import accord.messages.Preempted;
@@ -11,8 +18,6 @@ import accord.local.Node;
 import accord.txn.Dependencies;
 import accord.messages.Apply;
 import accord.messages.ReadData.ReadReply;
-import accord.messages.ReadData.ReadWaiting;
-import accord.topology.Shard;
 import accord.topology.Shards;
 import accord.local.Node.Id;
 import accord.txn.Timestamp;
@@ -36,7 +41,10 @@ class Execute extends CompletableFuture<Result> implements Callback<ReadReply>
     final int[] inFlight;
     final boolean[] hasData;
     private Data data;
-    final int replicaIndex;
+    // the replicas of each shard, closest first
+    final List<List<Id>> candidates;
+    // when we last sent a ReadData to each replica, so we may report the latency of its reply
+    final Map<Id, Long> readAt = new HashMap<>();
     int count = 0;
 
     private Execute(Node node, Agreed agreed)
@@ -51,36 +59,65 @@ class Execute extends CompletableFuture<Result> implements Callback<ReadReply>
         this.attempts = new int[shards.size()];
         this.inFlight = new int[shards.size()];
         this.hasData = new boolean[shards.size()];
-        this.replicaIndex = node.random().nextInt(shards.get(0).nodes.size());
+        this.candidates = new ArrayList<>(shards.size());
 
         // TODO: perhaps compose these different behaviours differently?
         if (agreed.applied != null)
         {
             Apply send = new Apply(txnId, txn, executeAt, agreed.deps, agreed.applied, agreed.result);
-            node.send(shards, send);
+            Persist.persist(node, txnId, keys, shards, send);
             complete(agreed.result);
         }
         else
         {
-            // TODO: we're sending duplicate commits
+            // read from the closest replica of each shard, which is ourselves if we are a replica
+            Set<Id> readFrom = new HashSet<>();
             shards.forEach((i, shard) -> {
-                for (int n = 0 ; n < shard.nodes.size() ; ++n)
+                candidates.add(node.proximity().closest(shard.nodes, node.random()));
+                readFrom.add(candidates.get(i).get(0));
+                attempts[i] = 1;
+            });
+
+            // a replica applies a read-only transaction as soon as it may unless it has a read to perform, so the next
+            // closest replica of each shard must remain readable until our hedged read could reach it
+            HedgedReads hedging = node.hedgedReads();
+            long hedgeDelay = hedging.delay();
+            Set<Id> hedgeTo = new HashSet<>();
+            if (hedging.isEnabled() && !txn.isWrite())
+            {
+                for (List<Id> replicas : candidates)
                 {
-                    Id to = shard.nodes.get(n);
-                    // TODO: Topology needs concept of locality/distance
-                    boolean read = n == replicaIndex % shard.nodes.size();
-                    Commit send = new Commit(txnId, txn, executeAt, agreed.deps, read);
-                    if (read)
+                    if (replicas.size() > 1)
+                        hedgeTo.add(replicas.get(1));
+                }
+            }
+
+            // every replica receives exactly one Commit covering each of its shards, and each of these is shared
+            Commit commit = new Commit(txnId, txn, executeAt, agreed.deps, false);
+            Commit commitAndRead = new Commit(txnId, txn, executeAt, agreed.deps, true);
+            Commit commitReadable = new Commit(txnId, txn, executeAt, agreed.deps, false, 2 * hedgeDelay);
+            Set<Id> contacted = new HashSet<>();
+            shards.forEach((i, shard) -> {
+                for (Id to : shard.nodes)
+                {
+                    if (!contacted.add(to))
+                        continue;
+
+                    if (readFrom.contains(to))
                     {
-                        node.send(to, send, this);
+                        readAt.put(to, node.now());
+                        node.send(to, commitAndRead, this);
                         shards.forEachOn(to, (j, s) -> ++inFlight[j]);
                     }
                     else
                     {
-                        node.send(to, send);
+                        node.send(to, hedgeTo.contains(to) ? commitReadable : commit);
                     }
                 }
             });
+
+            if (hedging.isEnabled())
+                node.scheduler().once(this::hedge, hedgeDelay, TimeUnit.MILLISECONDS);
         }
     }
 
@@ -90,21 +127,18 @@ class Execute extends CompletableFuture<Result> implements Callback<ReadReply>
         if (isDone())
             return;
 
-        if (!reply.isFinal())
-        {
-            ReadWaiting waiting = (ReadWaiting) reply;
-            // TODO first see if we can collect newer information (from ourselves or others), and if so send it
-            // otherwise, try to complete the transaction
-            node.recover(waiting.txnId, waiting.txn);
-            return;
-        }
-
         if (!reply.isOK())
         {
-            completeExceptionally(new Preempted());
+            onLatency(from, false);
+            // a replica applies a read-only transaction once it may, without waiting for us, after which it cannot
+            // read it; so a replica we read from only by hedging or retrying may refuse, but we have not been preempted
+            if (txn.isWrite()) completeExceptionally(new Preempted());
+            else onReadFailure(from, new Preempted());
             return;
         }
 
+        onLatency(from, true);
+
         data = data == null ? ((ReadOk) reply).data
                             : data.merge(((ReadOk) reply).data);
 
@@ -117,7 +151,11 @@ class Execute extends CompletableFuture<Result> implements Callback<ReadReply>
         if (count == shards.size())
         {
             Result result = txn.result(data);
-            node.send(shards, new Apply(txnId, txn, executeAt, deps, txn.execute(executeAt, data), result));
+            // we send Apply to every replica, so that once all have acknowledged it they may retire the transaction;
+            // but replicas apply a read-only transaction without waiting for us, so it matters only to any that missed
+            // its commit, and those do not need its dependencies as they will not read it
+            Dependencies applyDeps = txn.isWrite() ? deps : Dependencies.NONE;
+            Persist.persist(node, txnId, keys, shards, new Apply(txnId, txn, executeAt, applyDeps, txn.execute(executeAt, data), result));
             complete(result);
         }
     }
@@ -125,30 +163,78 @@ class Execute extends CompletableFuture<Result> implements Callback<ReadReply>
     @Override
     public void onFailure(Id from, Throwable throwable)
     {
-        // try again with another random node
+        // try again with the next closest node
         // TODO: API hooks
         if (!(throwable instanceof accord.messages.Timeout))
             throwable.printStackTrace();
 
+        onLatency(from, false);
+        onReadFailure(from, throwable);
+    }
+
+    private void onReadFailure(Id from, Throwable throwable)
+    {
         shards.forEachOn(from, (i, shard) -> {
-            // TODO: less naive selection of replica to consult
             if (--inFlight[i] == 0 && !hasData[i])
                 read(i);
             if (inFlight[i] == 0 && !hasData[i])
-                completeExceptionally(throwable);
+                fail(throwable);
         });
     }
 
-    private void read(int shardIndex)
+    private void fail(Throwable throwable)
+    {
+        if (isDone())
+            return;
+
+        // replicas apply a read-only transaction once it is committed, whether or not we read it; so although our
+        // caller will retry with a new TxnId, we must still persist this one so that replicas may retire it
+        if (!txn.isWrite())
+            Persist.persist(node, txnId, keys, shards, new Apply(txnId, txn, executeAt, Dependencies.NONE, txn.execute(executeAt, null), null));
+        completeExceptionally(throwable);
+    }
+
+    private void onLatency(Id from, boolean success)
     {
-        Shard shard = shards.get(shardIndex);
-        if (attempts[shardIndex] == shard.nodes.size())
+        Long sentAt = readAt.remove(from);
+        if (sentAt == null)
             return;
 
-        int nodeIndex = (replicaIndex + attempts[shardIndex]++) % shard.nodes.size();
-        Node.Id to = shard.nodes.get(nodeIndex);
+        long latency = node.now() - sentAt;
+        node.proximity().onLatency(from, latency);
+        if (success)
+            node.hedgedReads().onLatency(latency);
+    }
+
+    // if any shard has still not answered, also read it from the next closest replica and take whichever answers first
+    private void hedge()
+    {
+        if (isDone())
+            return;
+
+        boolean[] hedged = new boolean[shards.size()];
+        shards.forEach((i, shard) -> {
+            if (hasData[i] || hedged[i])
+                return;
+
+            Id to = read(i);
+            if (to != null)
+                shards.forEachOn(to, (j, s) -> hedged[j] = true);
+        });
+    }
+
+    // try the next closest replica we have not yet consulted
+    private Id read(int shardIndex)
+    {
+        List<Id> candidates = this.candidates.get(shardIndex);
+        if (attempts[shardIndex] == candidates.size())
+            return null;
+
+        Id to = candidates.get(attempts[shardIndex]++);
         shards.forEachOn(to, (i, s) -> ++inFlight[i]);
+        readAt.put(to, node.now());
         node.send(to, new ReadData(txnId, txn), this);
+        return to;
     }
 
     static CompletionStage<Result> execute(Node instance, Agreed agreed)
@@ -0,0 +1,26 @@
+package accord.coordinate;
+
+/**
+ * Decides how long a coordinator that has a slow path quorum of PreAcceptOks, but may still reach the fast path,
+ * waits for the outstanding replicas before proposing its transaction by Accept: until the configured percentile of
+ * the most recent PreAccept latencies we observed has elapsed since we sent it. If disabled we never wait, so commit on
+ * the fast path only if its quorum answers no later than the slow path quorum, or while the Accept round is underway.
+ */
+public class FastPathWait extends LatencyPercentile
+{
+    public static final FastPathWait DISABLED = new FastPathWait(0, 0, 0, 0);
+
+    public FastPathWait()
+    {
+        this(0.99, 1, 500, 1024);
+    }
+
+    /**
+     * @param percentile the fraction of PreAccepts we expect to be answered before we stop waiting for the fast path
+     * @param window the number of recent latencies the percentile is computed over
+     */
+    public FastPathWait(double percentile, long minDelay, long maxDelay, int window)
+    {
+        super(percentile, minDelay, maxDelay, window);
+    }
+}
@@ -0,0 +1,103 @@
+package accord.coordinate;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
+
+import accord.local.Node;
+import accord.local.Node.Id;
+import accord.local.ProgressLog;
+import accord.local.Status;
+import accord.messages.Callback;
+import accord.messages.FetchTxn;
+import accord.messages.FetchTxn.FetchTxnOk;
+import accord.messages.FetchTxn.FetchTxnReply;
+import accord.topology.Shards;
+import accord.txn.Keys;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+
+/**
+ * Fetch the definition of a transaction we know only as a dependency, and witness it locally.
+ * If no replica is able to provide it, try again later for as long as we have still not witnessed it,
+ * backing off as the ProgressLog does. The result completes once we stop trying.
+ */
+class Fetch implements Callback<FetchTxnReply>
+{
+    final Node node;
+    final TxnId txnId;
+    final Keys keys;
+    final Shards shards;
+    final int attempts;
+    final CompletableFuture<Void> result;
+
+    private int waitingOn;
+    private boolean isDone;
+
+    private Fetch(Node node, TxnId txnId, Keys keys, int attempts, CompletableFuture<Void> result)
+    {
+        this.node = node;
+        this.txnId = txnId;
+        this.keys = keys;
+        this.attempts = attempts;
+        this.result = result;
+        this.shards = node.cluster().forKeys(keys);
+        start();
+    }
+
+    private void start()
+    {
+        Set<Id> contact = new HashSet<>();
+        shards.forEach(shard -> contact.addAll(shard.nodes));
+        waitingOn = contact.size();
+        node.send(shards, new FetchTxn(txnId, keys), this);
+    }
+
+    @Override
+    public synchronized void onSuccess(Id from, FetchTxnReply reply)
+    {
+        if (isDone)
+            return;
+
+        if (!reply.isOK())
+        {
+            onFailure(from, null);
+            return;
+        }
+
+        isDone = true;
+        Txn txn = ((FetchTxnOk) reply).txn;
+        node.forEachLocal(keys, instance -> {
+            // a replica that refuses the transaction must learn its outcome from whoever commits it or its invalidation
+            if (!instance.refuses(txnId))
+                instance.command(txnId).witness(txn);
+        });
+        result.complete(null);
+    }
+
+    @Override
+    public synchronized void onFailure(Id from, Throwable throwable)
+    {
+        if (isDone || --waitingOn > 0)
+            return;
+
+        isDone = true;
+        // we must not create the command where we no longer retain it
+        node.mapReduceLocal(keys, instance -> instance.hasCommand(txnId) && instance.command(txnId).is(Status.NotWitnessed), Boolean::logicalOr)
+            .thenAccept(retry -> {
+                if (Boolean.TRUE.equals(retry))
+                    node.scheduler().once(() -> new Fetch(node, txnId, keys, attempts + 1, result), ProgressLog.delay(attempts, node.random()), TimeUnit.MILLISECONDS);
+                else
+                    result.complete(null);
+            });
+    }
+
+    static CompletionStage<Void> fetch(Node node, TxnId txnId, Keys keys)
+    {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        new Fetch(node, txnId, keys, 0, result);
+        return result;
+    }
+}
@@ -0,0 +1,25 @@
+package accord.coordinate;
+
+/**
+ * Decides how long a coordinator waits for a replica to answer a read before also asking the next closest replica:
+ * the configured percentile of the most recent read latencies we observed, so that only the slowest reads are
+ * duplicated.
+ */
+public class HedgedReads extends LatencyPercentile
+{
+    public static final HedgedReads DISABLED = new HedgedReads(0, 0, 0, 0);
+
+    public HedgedReads()
+    {
+        this(0.99, 1, 500, 1024);
+    }
+
+    /**
+     * @param percentile the fraction of reads we expect to complete before we hedge
+     * @param window the number of recent latencies the percentile is computed over
+     */
+    public HedgedReads(double percentile, long minDelay, long maxDelay, int window)
+    {
+        super(percentile, minDelay, maxDelay, window);
+    }
+}
@@ -0,0 +1,24 @@
+package accord.coordinate;
+
+import accord.local.Node;
+import accord.messages.Apply;
+import accord.topology.Shards;
+import accord.txn.Dependencies;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+
+/**
+ * Invalidate a transaction that too many replicas of some shard refuse for it ever to reach a quorum, so that it can
+ * never be committed. As this is a fact rather than a proposal, whoever learns it may commit in its place the
+ * transaction's invalidation, which does nothing, without an Accept round: every replica applies this, releasing any
+ * transaction that depends on it, and so does its original coordinator, which learns that it must try again.
+ */
+class Invalidate
+{
+    static void invalidate(Node node, TxnId txnId, Txn txn, Shards shards)
+    {
+        Txn invalidated = txn.invalidate();
+        Apply apply = new Apply(txnId, invalidated, txnId, Dependencies.NONE, invalidated.execute(txnId, null), null);
+        Persist.persist(node, txnId, txn.keys(), shards, apply);
+    }
+}
@@ -0,0 +1,9 @@
+package accord.messages;
+
+/**
+ * Thrown when a transaction has been invalidated, as too many replicas of some shard refuse to witness it for it
+ * ever to reach a quorum; it will never execute, so its original coordinator must coordinate it again
+ */
+public class Invalidated extends RuntimeException
+{
+}
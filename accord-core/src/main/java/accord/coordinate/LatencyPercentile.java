@@ -0,0 +1,68 @@
+package accord.coordinate;
+
+import java.util.Arrays;
+
+/**
+ * Estimates a percentile of the most recent latencies a coordinator observed for some kind of request (in the units
+ * of the Node's clock, i.e. milliseconds), bounded by {@code minDelay} and {@code maxDelay}, so that it may wait that
+ * long for a reply before acting without it. Until we have observed enough latencies to estimate the percentile
+ * we wait {@code maxDelay}.
+ */
+public abstract class LatencyPercentile
+{
+    private static final int MIN_SAMPLES = 16;
+
+    final double percentile;
+    final long minDelay, maxDelay;
+
+    // a ring buffer of recent latencies, and the delay derived from them, which we recompute as the buffer turns over
+    private final long[] samples;
+    private int count, next, sinceComputed;
+    private long delay;
+
+    /**
+     * @param percentile the fraction of requests we expect to complete before we stop waiting
+     * @param window the number of recent latencies the percentile is computed over, or zero to disable waiting
+     */
+    protected LatencyPercentile(double percentile, long minDelay, long maxDelay, int window)
+    {
+        this.percentile = percentile;
+        this.minDelay = minDelay;
+        this.maxDelay = maxDelay;
+        this.samples = new long[window];
+        this.delay = maxDelay;
+    }
+
+    public boolean isEnabled()
+    {
+        return samples.length > 0;
+    }
+
+    public synchronized void onLatency(long latency)
+    {
+        if (!isEnabled())
+            return;
+
+        samples[next] = latency;
+        next = (next + 1) % samples.length;
+        if (count < samples.length)
+            ++count;
+        ++sinceComputed;
+    }
+
+    /**
+     * @return how long to wait for a reply before acting without it
+     */
+    public synchronized long delay()
+    {
+        if (count >= MIN_SAMPLES && sinceComputed >= Math.min(count, samples.length) / 8)
+        {
+            long[] sorted = Arrays.copyOf(samples, count);
+            Arrays.sort(sorted);
+            int index = Math.max(0, (int) Math.ceil(percentile * count) - 1);
+            delay = Math.max(minDelay, Math.min(maxDelay, sorted[index]));
+            sinceComputed = 0;
+        }
+        return delay;
+    }
+}
@@ -0,0 +1,94 @@
+package accord.coordinate;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import accord.local.Node;
+import accord.local.Node.Id;
+import accord.messages.Apply;
+import accord.messages.Apply.ApplyOk;
+import accord.messages.Callback;
+import accord.messages.InformDurable;
+import accord.messages.Reply;
+import accord.topology.Shards;
+import accord.txn.Keys;
+import accord.txn.Timestamp;
+import accord.txn.TxnId;
+
+/**
+ * Send Apply to every replica, and once they have all Applied the transaction inform them that it is durable.
+ * A replica that does not respond to either is retried until it does, after a delay as it may be unreachable
+ * for some time; otherwise every replica would retain the transaction indefinitely.
+ *
+ * Each replica also reports with its ApplyOk a bound below which it retains no command, and we inform every replica
+ * of the least of these, so that it may discard its tombstones below it.
+ *
+ * We also send Apply to the transaction's original coordinator, and wait for it too: until it acknowledges, it may
+ * not know the transaction's outcome, and so treats any refusal of it as proof it was never witnessed.
+ */
+class Persist implements Callback<Reply>
+{
+    static final long RETRY_DELAY_MILLIS = 1000;
+
+    final Node node;
+    final TxnId txnId;
+    final Keys keys;
+    final Shards shards;
+    final Apply apply;
+    InformDurable informDurable;
+    Timestamp durableBefore = Timestamp.MAX;
+    final Set<Id> applying = new HashSet<>();
+    final Set<Id> informing = new HashSet<>();
+
+    private Persist(Node node, TxnId txnId, Keys keys, Shards shards, Apply apply)
+    {
+        this.node = node;
+        this.txnId = txnId;
+        this.keys = keys;
+        this.shards = shards;
+        this.apply = apply;
+        shards.forEach(shard -> applying.addAll(shard.nodes));
+        node.send(shards, apply, this);
+        if (applying.add(txnId.node))
+            node.send(txnId.node, apply, this);
+    }
+
+    @Override
+    public synchronized void onSuccess(Id from, Reply response)
+    {
+        if (!(response instanceof ApplyOk))
+        {
+            informing.remove(from);
+            return;
+        }
+
+        if (!applying.remove(from))
+            return;
+
+        durableBefore = Timestamp.min(durableBefore, ((ApplyOk) response).retainedBefore);
+        if (applying.isEmpty())
+        {
+            informDurable = new InformDurable(txnId, keys, durableBefore);
+            shards.forEach(shard -> informing.addAll(shard.nodes));
+            node.send(shards, informDurable, this);
+        }
+    }
+
+    @Override
+    public synchronized void onFailure(Id from, Throwable throwable)
+    {
+        node.scheduler().once(() -> retry(from), RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    private synchronized void retry(Id to)
+    {
+        if (applying.contains(to)) node.send(to, apply, this);
+        else if (informing.contains(to)) node.send(to, informDurable, this);
+    }
+
+    static void persist(Node node, TxnId txnId, Keys keys, Shards shards, Apply apply)
+    {
+        new Persist(node, txnId, keys, shards, apply);
+    }
+}
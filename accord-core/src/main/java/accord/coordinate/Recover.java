@@ -2,9 +2,10 @@ package accord.coordinate;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
+import accord.messages.Invalidated;
 import accord.messages.Preempted;
+import accord.messages.Refused;
 import accord.txn.Ballot;
 import accord.messages.Callback;
 import accord.local.Node;
@@ -35,8 +36,8 @@ class Recover extends AcceptPhase implements Callback<RecoverReply>
         {
             commits = new int[waitOn.size()];
             failures = new int[waitOn.size()];
-            for (Map.Entry<TxnId, Txn> e : waitOn)
-                node.send(shards, new WaitOnCommit(e.getKey(), e.getValue().keys()), this);
+            for (int i = 0 ; i < waitOn.size() ; ++i)
+                node.send(shards, new WaitOnCommit(waitOn.txnId(i), waitOn.keys(i)), this);
         }
 
         @Override
@@ -55,7 +56,7 @@ class Recover extends AcceptPhase implements Callback<RecoverReply>
                 if (commitQuorums == commits.length)
                 {
                     new Recover(node, ballot, txnId, txn, shards).handle((success, failure) -> {
-                        if (success != null) complete(success);
+                        if (failure == null) complete(success);
                         else completeExceptionally(failure);
                         return null;
                     });
@@ -72,7 +73,7 @@ class Recover extends AcceptPhase implements Callback<RecoverReply>
                     return;
 
                 shards.forEachOn(from, (i, shard) -> {
-                    if (++failures[i] >= shard.slowPathQuorumSize)
+                    if (++failures[i] > shard.nodes.size() - shard.slowPathQuorumSize)
                         completeExceptionally(new accord.messages.Timeout());
                 });
             }
@@ -81,6 +82,7 @@ class Recover extends AcceptPhase implements Callback<RecoverReply>
 
     final List<RecoverOk> recoverOks = new ArrayList<>();
     int[] failure;
+    int[] refusals;
     int[] recovery;
     int[] recoveryWithFastPath;
     int recoveryWithFastPathQuorums = 0;
@@ -95,6 +97,7 @@ class Recover extends AcceptPhase implements Callback<RecoverReply>
     {
         super(node, ballot, txnId, txn, shards);
         this.failure = new int[this.shards.size()];
+        this.refusals = new int[this.shards.size()];
         this.recovery = new int[this.shards.size()];
         this.recoveryWithFastPath = new int[this.shards.size()];
         node.send(this.shards, new BeginRecovery(txnId, txn, ballot), this);
@@ -106,6 +109,12 @@ class Recover extends AcceptPhase implements Callback<RecoverReply>
         if (isDone() || recoveryQuorums == shards.size())
             return;
 
+        if (response instanceof Refused)
+        {
+            onRefused(from, (Refused) response);
+            return;
+        }
+
         if (!response.isOK())
         {
             completeExceptionally(new Preempted());
@@ -127,6 +136,19 @@ class Recover extends AcceptPhase implements Callback<RecoverReply>
             recover();
     }
 
+    // a refusal is permanent, so if too many replicas of a shard refuse the transaction it can never be committed
+    private void onRefused(Id from, Refused refused)
+    {
+        shards.forEachOn(from, refused.keys, (i, shard) -> {
+            if (++refusals[i] > shard.nodes.size() - shard.slowPathQuorumSize && !isDone())
+            {
+                Invalidate.invalidate(node, txnId, txn, shards);
+                completeExceptionally(new Invalidated());
+            }
+        });
+        onFailure(from, null);
+    }
+
     private void recover()
     {
         // first look for the most recent Accept; if present, go straight to proposing it again
@@ -149,7 +171,8 @@ class Recover extends AcceptPhase implements Callback<RecoverReply>
                     startAccept(acceptOrCommit.executeAt, acceptOrCommit.deps);
                     return;
                 case Committed:
-                case ReadyToExecute:
+                case ReadyToRead:
+                case ReadyToWrite:
                 case Executed:
                 case Applied:
                     complete(new Agreed(txnId, txn, acceptOrCommit.executeAt, acceptOrCommit.deps, shards, acceptOrCommit.writes, acceptOrCommit.result));
@@ -159,15 +182,15 @@ class Recover extends AcceptPhase implements Callback<RecoverReply>
 
         // should all be PreAccept
         Timestamp maxExecuteAt = txnId;
-        Dependencies deps = new Dependencies();
-        Dependencies earlierAcceptedNoWitness = new Dependencies();
-        Dependencies earlierCommittedWitness = new Dependencies();
+        Dependencies.Builder deps = Dependencies.builder();
+        Dependencies.Builder earlierAcceptedNoWitnessBuilder = Dependencies.builder();
+        Dependencies.Builder earlierCommittedWitnessBuilder = Dependencies.builder();
         boolean rejectsFastPath = false;
         for (RecoverOk ok : recoverOks)
         {
             deps.addAll(ok.deps);
-            earlierAcceptedNoWitness.addAll(ok.earlierAcceptedNoWitness);
-            earlierCommittedWitness.addAll(ok.earlierCommittedWitness);
+            earlierAcceptedNoWitnessBuilder.addAll(ok.earlierAcceptedNoWitness);
+            earlierCommittedWitnessBuilder.addAll(ok.earlierCommittedWitness);
             maxExecuteAt = Timestamp.max(maxExecuteAt, ok.executeAt);
             rejectsFastPath |= ok.rejectsFastPath;
         }
@@ -179,7 +202,8 @@ class Recover extends AcceptPhase implements Callback<RecoverReply>
         }
         else
         {
-            earlierAcceptedNoWitness.removeAll(earlierCommittedWitness);
+            Dependencies earlierCommittedWitness = earlierCommittedWitnessBuilder.build();
+            Dependencies earlierAcceptedNoWitness = earlierAcceptedNoWitnessBuilder.build().without(earlierCommittedWitness);
             if (!earlierAcceptedNoWitness.isEmpty())
             {
                 new RetryAfterCommits(earlierCommittedWitness);
@@ -188,7 +212,7 @@ class Recover extends AcceptPhase implements Callback<RecoverReply>
             executeAt = txnId;
         }
 
-        startAccept(executeAt, deps);
+        startAccept(executeAt, deps.build());
     }
 
     @Override
@@ -198,7 +222,7 @@ class Recover extends AcceptPhase implements Callback<RecoverReply>
             return;
 
         shards.forEachOn(from, (i, shard) -> {
-            if (++failure[i] >= shard.slowPathQuorumSize)
+            if (++failure[i] > shard.nodes.size() - shard.slowPathQuorumSize)
                 completeExceptionally(new accord.messages.Timeout());
         });
     }
@@ -1,10 +1,7 @@
 package accord.local;
 
-import java.util.NavigableMap;
-import java.util.TreeMap;
-import java.util.function.Consumer;
-
 import accord.api.Result;
+import accord.local.Journal.Record;
 import accord.txn.Ballot;
 import accord.txn.Dependencies;
 import accord.txn.Timestamp;
@@ -18,25 +15,31 @@ import static accord.local.Status.Committed;
 import static accord.local.Status.Executed;
 import static accord.local.Status.NotWitnessed;
 import static accord.local.Status.PreAccepted;
-import static accord.local.Status.ReadyToExecute;
+import static accord.local.Status.ReadyToRead;
+import static accord.local.Status.ReadyToWrite;
 
-public class Command implements Listener, Consumer<Listener>
+public class Command implements Listener
 {
     public final Instance instance;
     private final TxnId txnId;
     private Txn txn;
     private Ballot promised = Ballot.ZERO, accepted = Ballot.ZERO;
     private Timestamp executeAt;
-    private Dependencies deps = new Dependencies();
+    private Dependencies deps = Dependencies.NONE;
     private Writes writes;
     private Result result;
 
     private Status status = NotWitnessed;
+    // a placeholder for a command we have retired; see retired()
+    private boolean retired;
 
-    private NavigableMap<TxnId, Command> waitingOnCommit;
-    private NavigableMap<Timestamp, Command> waitingOnApply;
+    // null once we are waiting on no dependency
+    private WaitingOn waitingOn;
+    // local reads of a read-only transaction that have been requested but not yet performed
+    private int pendingReads;
 
-    private final Listeners listeners = new Listeners();
+    // allocated only once a listener is added
+    private Listeners listeners;
 
     public Command(Instance instance, TxnId id)
     {
@@ -44,6 +47,19 @@ public class Command implements Listener, Consumer<Listener>
         this.txnId = id;
     }
 
+    /**
+     * A placeholder for a command that has been retired, i.e. Applied by every replica and discarded. We may no
+     * longer know when it executed, so any later Commit or Apply is ignored.
+     */
+    static Command retired(Instance instance, TxnId txnId, Timestamp executeAt)
+    {
+        Command command = new Command(instance, txnId);
+        command.executeAt = executeAt;
+        command.status = Applied;
+        command.retired = true;
+        return command;
+    }
+
     public TxnId txnId()
     {
         return txnId;
@@ -103,6 +119,8 @@ public class Command implements Listener, Consumer<Listener>
     // relies on mutual exclusion for each key
     public boolean witness(Txn txn)
     {
+        // advance our clock with every TxnId we hear of, so that it keeps pace with the other replicas of our shards
+        instance.node().witness(txnId);
         if (promised.compareTo(Ballot.ZERO) > 0)
             return false;
 
@@ -114,14 +132,21 @@ public class Command implements Listener, Consumer<Listener>
         //  - use a global logical clock to issue new timestamps; or
         //  - assign each shard _and_ process a unique id, and use both as components of the timestamp
         Timestamp witnessed = txnId.compareTo(max) > 0 ? txnId : instance.node().uniqueNow(max);
+        witness(txn, witnessed);
+        return true;
+    }
 
+    // also invoked to replay a witness from the Journal, as we must restore the timestamp we witnessed
+    void witness(Txn txn, Timestamp witnessed)
+    {
         this.txn = txn;
         this.executeAt = witnessed;
         this.status = PreAccepted;
+        journal(Record.witness(instance.index, txnId, txn, witnessed));
 
         txn.register(instance, this);
-        listeners.forEach(this);
-        return true;
+        instance.progressLog().witnessed(this);
+        notifyListeners();
     }
 
     public boolean accept(Ballot ballot, Txn txn, Timestamp executeAt, Dependencies deps)
@@ -137,13 +162,19 @@ public class Command implements Listener, Consumer<Listener>
         this.executeAt = executeAt;
         promised = accepted = ballot;
         status = Accepted;
-        listeners.forEach(this);
+        journal(Record.accept(instance.index, txnId, ballot, ifChanged(txn, this.txn), executeAt, deps));
+        notifyListeners();
         return true;
     }
 
     // relies on mutual exclusion for each key
     public boolean commit(Txn txn, Dependencies deps, Timestamp executeAt)
     {
+        // a recovery coordinator that finds too many replicas have retired a command to learn its outcome may
+        // invalidate it, but only once every replica has applied it; so if we have committed it, we know better
+        if (retired || (hasBeen(Committed) && txn.isInvalidated()))
+            return false;
+
         if (hasBeen(Committed))
         {
             if (executeAt.equals(this.executeAt))
@@ -153,56 +184,60 @@ public class Command implements Listener, Consumer<Listener>
         }
 
         witness(txn);
+        Txn witnessed = this.txn;
+        // if we witnessed the transaction before it was invalidated, we commit its replacement in its place
+        this.txn = txn;
         this.status = Committed;
         this.deps = deps;
         this.executeAt = executeAt;
-        this.waitingOnCommit = new TreeMap<>();
-        this.waitingOnApply = new TreeMap<>();
+        this.waitingOn = deps.isEmpty() ? null : new WaitingOn(deps.size());
+        journal(Record.commit(instance.index, txnId, ifChanged(txn, witnessed), deps, executeAt));
 
         for (TxnId id : savedDeps().on(instance.shard))
         {
+            int i = deps.indexOf(id);
             Command command = instance.command(id);
             switch (command.status)
             {
                 default:
                     throw new IllegalStateException();
                 case NotWitnessed:
-                    command.witness(deps.get(command.txnId));
+                    // we only know the TxnId and keys of our dependencies, so must fetch the definition from a replica
+                    instance.node().fetch(id, deps.keys(i));
                 case PreAccepted:
                 case Accepted:
                     // we don't know when these dependencies will execute, and cannot execute until we do
-                    waitingOnCommit.put(id, command);
+                    waitingOn.setCommit(i);
                     command.addListener(this);
                     break;
                 case Committed:
-                    // TODO: split into ReadyToRead and ReadyToWrite;
-                    //       the distributed read can be performed as soon as those keys are ready, and in parallel with any other reads
-                    //       the client can even ACK immediately after; only the write needs to be postponed until other in-progress reads complete
-                case ReadyToExecute:
+                case ReadyToRead:
+                case ReadyToWrite:
                 case Executed:
                 case Applied:
                     command.addListener(this);
-                    updatePredecessor(command);
+                    updatePredecessor(i, command);
                     break;
             }
         }
-        if (waitingOnCommit.isEmpty())
-        {
-            waitingOnCommit = null;
-            if (waitingOnApply.isEmpty())
-                waitingOnApply = null;
-        }
-        listeners.forEach(this);
+        if (waitingOn != null && waitingOn.isEmpty())
+            waitingOn = null;
+        notifyListeners();
         maybeExecute();
         return true;
     }
 
     public boolean apply(Txn txn, Dependencies deps, Timestamp executeAt, Writes writes, Result result)
     {
-        if (hasBeen(Executed) && executeAt.equals(this.executeAt))
+        if (retired || (hasBeen(Committed) && txn.isInvalidated()) || (hasBeen(Executed) && executeAt.equals(this.executeAt)))
             return false;
         else if (!hasBeen(Committed))
+        {
+            // committing a read-only transaction may apply it, which we must not then rewind
             commit(txn, deps, executeAt);
+            if (hasBeen(Executed))
+                return true;
+        }
         else if (!executeAt.equals(this.executeAt))
             instance.node().agent().onInconsistentTimestamp(this, this.executeAt, executeAt);
 
@@ -210,7 +245,8 @@ public class Command implements Listener, Consumer<Listener>
         this.writes = writes;
         this.result = result;
         this.status = Executed;
-        this.listeners.forEach(this);
+        journal(Record.apply(instance.index, txnId, ifChanged(txn, this.txn), deps, executeAt, writes, result));
+        notifyListeners();
         maybeExecute();
         return true;
     }
@@ -222,18 +258,57 @@ public class Command implements Listener, Consumer<Listener>
 
         witness(txn);
         this.promised = ballot;
+        journal(Record.recover(instance.index, txnId, ifChanged(txn, this.txn), ballot));
         return true;
     }
 
+    private void journal(Record record)
+    {
+        instance.node().journal().append(record);
+    }
+
+    /**
+     * A TxnId always identifies the same transaction unless we commit its invalidation in its place, so having
+     * journaled it with our WITNESS record we journal it again only in that case; replay supplies it to the rest
+     */
+    private static Txn ifChanged(Txn txn, Txn journaled)
+    {
+        return journaled.isInvalidated() == txn.isInvalidated() ? null : txn;
+    }
+
+    /**
+     * Register that a local read of this transaction has been requested. A read-only transaction has no effects,
+     * so is applied without waiting for an Apply message, but not before its registered reads have been performed.
+     */
+    public void registerRead()
+    {
+        ++pendingReads;
+    }
+
+    public void readComplete()
+    {
+        --pendingReads;
+        maybeExecute();
+    }
+
     public Command addListener(Listener listener)
     {
+        if (listeners == null)
+            listeners = new Listeners();
         listeners.add(listener);
         return this;
     }
 
     public void removeListener(Listener listener)
     {
-        listeners.remove(listener);
+        if (listeners != null)
+            listeners.remove(listener);
+    }
+
+    private void notifyListeners()
+    {
+        if (listeners != null)
+            listeners.onChange(this);
     }
 
     @Override
@@ -242,66 +317,77 @@ public class Command implements Listener, Consumer<Listener>
         switch (command.status)
         {
             case Committed:
-            case ReadyToExecute:
+            case ReadyToRead:
+            case ReadyToWrite:
             case Executed:
             case Applied:
-                if (waitingOnApply != null)
+                int i = waitingOn == null ? -1 : deps.indexOf(command.txnId);
+                if (i >= 0)
                 {
-                    updatePredecessor(command);
-                    if (waitingOnCommit != null)
-                    {
-                        if (waitingOnCommit.remove(command.txnId) != null && waitingOnCommit.isEmpty())
-                            waitingOnCommit = null;
-                    }
-                    if (waitingOnCommit == null && waitingOnApply.isEmpty())
-                        waitingOnApply = null;
+                    waitingOn.clearCommit(i);
+                    updatePredecessor(i, command);
+                    if (waitingOn.isEmpty())
+                        waitingOn = null;
                 }
                 else
                 {
                     command.removeListener(this);
                 }
-                maybeExecute();
+                instance.maybeExecute(this);
                 break;
         }
     }
 
-    private void maybeExecute()
+    void maybeExecute()
     {
-        if (status != Committed && status != Executed)
-            return;
-
-        if (waitingOnApply != null)
-            return;
-
         switch (status)
         {
             case Committed:
-                // TODO: maintain distinct ReadyToRead and ReadyToWrite states
-                status = ReadyToExecute;
-                listeners.forEach(this);
+                // we may read once every earlier dependency that may write has been applied
+                if (waitingOn != null && (waitingOn.isWaitingOnCommit() || waitingOn.isWaitingOnApplyOfWrite()))
+                    return;
+                status = ReadyToRead;
+                notifyListeners();
+                maybeExecute();
+                break;
+            case ReadyToRead:
+                // but may only write once every earlier dependency has also finished reading
+                if (waitingOn != null)
+                    return;
+                status = ReadyToWrite;
+                notifyListeners();
+                maybeExecute();
+                break;
+            case ReadyToWrite:
+                if (txn.isWrite() || pendingReads > 0)
+                    return;
+                writes = txn.execute(executeAt, null);
+                status = Applied;
+                // we track the invalidation of a write until it is applied
+                instance.progressLog().applied(this);
+                notifyListeners();
                 break;
             case Executed:
+                if (waitingOn != null)
+                    return;
                 writes.apply(instance);
                 status = Applied;
-                listeners.forEach(this);
+                instance.progressLog().applied(this);
+                notifyListeners();
         }
     }
 
-    private void updatePredecessor(Command committed)
+    private void updatePredecessor(int i, Command committed)
     {
-        if (committed.executeAt.compareTo(executeAt) > 0)
+        // cannot be a predecessor if we execute later
+        if (committed.executeAt.compareTo(executeAt) > 0 || committed.hasBeen(Applied))
         {
-            // cannot be a predecessor if we execute later
-            committed.removeListener(this);
-        }
-        else if (committed.hasBeen(Applied))
-        {
-            waitingOnApply.remove(committed.executeAt);
+            waitingOn.clearApply(i);
             committed.removeListener(this);
         }
         else
         {
-            waitingOnApply.putIfAbsent(committed.executeAt, committed);
+            waitingOn.setApply(i, committed.executeAt, committed.txn.isWrite());
         }
     }
 
@@ -320,33 +406,46 @@ public class Command implements Listener, Consumer<Listener>
     private Command directlyBlockedBy()
     {
         // firstly we're waiting on every dep to commit
-        while (waitingOnCommit != null)
+        while (waitingOn != null && waitingOn.isWaitingOnCommit())
         {
-            // TODO: when we change our liveness mechanism this may not be a problem
             // cannot guarantee that listener updating this set is invoked before this method by another listener
             // so we must check the entry is still valid, and potentially remove it if not
-            Command waitingOn = waitingOnCommit.firstEntry().getValue();
-            if (!waitingOn.hasBeen(Committed)) return waitingOn;
-            onChange(waitingOn);
+            Command command = instance.command(deps.txnId(waitingOn.nextCommit()));
+            if (!command.hasBeen(Committed)) return command;
+            onChange(command);
         }
 
-        while (waitingOnApply != null)
+        while (waitingOn != null)
         {
-            // TODO: when we change our liveness mechanism this may not be a problem
-            // cannot guarantee that listener updating this set is invoked before this method by another listener
-            // so we must check the entry is still valid, and potentially remove it if not
-            Command waitingOn = waitingOnApply.firstEntry().getValue();
-            if (!waitingOn.hasBeen(Applied)) return waitingOn;
-            onChange(waitingOn);
+            Command command = minPredecessor();
+            if (!command.hasBeen(Applied)) return command;
+            onChange(command);
         }
 
         return null;
     }
 
-    @Override
-    public void accept(Listener listener)
+    /**
+     * The awaited predecessor with the lowest executeAt, found by visiting each only if we no longer know it
+     */
+    private Command minPredecessor()
     {
-        listener.onChange(this);
+        int min = waitingOn.minApply();
+        if (min >= 0)
+            return instance.command(deps.txnId(min));
+
+        Command result = null;
+        for (int i = waitingOn.nextApply(0) ; i >= 0 ; i = waitingOn.nextApply(i + 1))
+        {
+            Command command = instance.command(deps.txnId(i));
+            if (result == null || command.executeAt.compareTo(result.executeAt) < 0)
+            {
+                result = command;
+                min = i;
+            }
+        }
+        waitingOn.setMinApply(min, result.executeAt);
+        return result;
     }
 
     @Override
@@ -0,0 +1,329 @@
+package accord.local;
+
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import accord.txn.Timestamp;
+import accord.txn.TimestampArray;
+
+/**
+ * An ordered map of Timestamp to Command, maintained as a sorted sequence of small chunks of packed timestamps
+ * (see {@link TimestampArray}), each with a parallel array of Commands. Inserts and removes shift at most one chunk,
+ * lookups binary search primitive arrays, and range scans visit the chunks in order without allocating iterators.
+ */
+public class CommandIndex
+{
+    private static final int MAX_CHUNK_SIZE = 64;
+
+    private static class Chunk
+    {
+        final TimestampArray timestamps;
+        Command[] commands;
+
+        Chunk(int capacity)
+        {
+            this.timestamps = new TimestampArray(capacity);
+            this.commands = new Command[capacity];
+        }
+
+        int size()
+        {
+            return timestamps.size();
+        }
+
+        void add(long msb, long lsb, Command command)
+        {
+            insert(size(), msb, lsb, command);
+        }
+
+        void insert(int i, long msb, long lsb, Command command)
+        {
+            int size = size();
+            if (size == commands.length)
+                commands = Arrays.copyOf(commands, Math.min(MAX_CHUNK_SIZE, Math.max(4, size * 2)));
+            System.arraycopy(commands, i, commands, i + 1, size - i);
+            commands[i] = command;
+            timestamps.insert(i, msb, lsb);
+        }
+
+        void remove(int i)
+        {
+            int size = size();
+            System.arraycopy(commands, i + 1, commands, i, size - (i + 1));
+            commands[size - 1] = null;
+            timestamps.remove(i);
+        }
+
+        void truncate(int size)
+        {
+            Arrays.fill(commands, size, size(), null);
+            timestamps.truncate(size);
+        }
+    }
+
+    // the first timestamp of each chunk
+    private final TimestampArray firsts = new TimestampArray(1);
+    private Chunk[] chunks = new Chunk[1];
+    private int size;
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public Command first()
+    {
+        return size == 0 ? null : chunks[0].commands[0];
+    }
+
+    public Command get(Timestamp timestamp)
+    {
+        if (size == 0)
+            return null;
+
+        Chunk chunk = chunks[chunkIndex(timestamp)];
+        int i = chunk.timestamps.binarySearch(timestamp);
+        return i < 0 ? null : chunk.commands[i];
+    }
+
+    /**
+     * @return the Command previously associated with this timestamp, if any
+     */
+    public Command put(Timestamp timestamp, Command command)
+    {
+        long msb = timestamp.msb(), lsb = timestamp.lsb();
+        if (size == 0)
+        {
+            Chunk chunk = new Chunk(1);
+            chunk.add(msb, lsb, command);
+            insertChunk(0, chunk);
+            ++size;
+            return null;
+        }
+
+        int ci = chunkIndex(timestamp);
+        Chunk chunk = chunks[ci];
+        int i = chunk.timestamps.binarySearch(timestamp);
+        if (i >= 0)
+        {
+            Command prev = chunk.commands[i];
+            chunk.commands[i] = command;
+            return prev;
+        }
+
+        i = -1 - i;
+        if (chunk.size() == MAX_CHUNK_SIZE)
+        {
+            if (i == MAX_CHUNK_SIZE && ci == firsts.size() - 1)
+            {
+                // timestamps typically arrive in approximately ascending order, so when appending
+                // start a new chunk rather than splitting, leaving the preceding chunk full
+                Chunk next = new Chunk(1);
+                next.add(msb, lsb, command);
+                insertChunk(ci + 1, next);
+                ++size;
+                return null;
+            }
+
+            int split = MAX_CHUNK_SIZE / 2;
+            Chunk next = new Chunk(MAX_CHUNK_SIZE);
+            for (int j = split ; j < MAX_CHUNK_SIZE ; ++j)
+                next.add(chunk.timestamps.msb(j), chunk.timestamps.lsb(j), chunk.commands[j]);
+            chunk.truncate(split);
+            insertChunk(ci + 1, next);
+
+            if (i > split)
+            {
+                i -= split;
+                chunk = next;
+                ++ci;
+            }
+        }
+
+        chunk.insert(i, msb, lsb, command);
+        if (i == 0)
+            firsts.set(ci, msb, lsb);
+        ++size;
+        return null;
+    }
+
+    public Command remove(Timestamp timestamp)
+    {
+        if (size == 0)
+            return null;
+
+        int ci = chunkIndex(timestamp);
+        Chunk chunk = chunks[ci];
+        int i = chunk.timestamps.binarySearch(timestamp);
+        if (i < 0)
+            return null;
+
+        Command removed = chunk.commands[i];
+        chunk.remove(i);
+        --size;
+        if (chunk.size() == 0)
+        {
+            removeChunk(ci);
+            return removed;
+        }
+
+        if (i == 0)
+            firsts.set(ci, chunk.timestamps.msb(0), chunk.timestamps.lsb(0));
+
+        // merge with our successor if we are both sparse, to bound the number of chunks
+        if (ci + 1 < firsts.size() && chunk.size() + chunks[ci + 1].size() <= MAX_CHUNK_SIZE / 2)
+        {
+            Chunk next = chunks[ci + 1];
+            for (int j = 0 ; j < next.size() ; ++j)
+                chunk.add(next.timestamps.msb(j), next.timestamps.lsb(j), next.commands[j]);
+            removeChunk(ci + 1);
+        }
+        return removed;
+    }
+
+    /**
+     * Visit, in ascending order, every Command with a timestamp strictly less than {@code before}
+     */
+    public void forEachBefore(Timestamp before, Consumer<Command> forEach)
+    {
+        if (size == 0)
+            return;
+
+        int endChunk = chunkIndex(before);
+        for (int ci = 0 ; ci < endChunk ; ++ci)
+        {
+            Chunk chunk = chunks[ci];
+            for (int i = 0, size = chunk.size() ; i < size ; ++i)
+                forEach.accept(chunk.commands[i]);
+        }
+
+        Chunk chunk = chunks[endChunk];
+        for (int i = 0, end = endIndex(chunk, before) ; i < end ; ++i)
+            forEach.accept(chunk.commands[i]);
+    }
+
+    /**
+     * Visit, in ascending order, every Command with a timestamp strictly greater than {@code after}
+     */
+    public void forEachAfter(Timestamp after, Consumer<Command> forEach)
+    {
+        if (size == 0)
+            return;
+
+        int startChunk = chunkIndex(after);
+        Chunk chunk = chunks[startChunk];
+        for (int i = startIndex(chunk, after), size = chunk.size() ; i < size ; ++i)
+            forEach.accept(chunk.commands[i]);
+
+        for (int ci = startChunk + 1, count = firsts.size() ; ci < count ; ++ci)
+        {
+            chunk = chunks[ci];
+            for (int i = 0, size = chunk.size() ; i < size ; ++i)
+                forEach.accept(chunk.commands[i]);
+        }
+    }
+
+    /**
+     * @return true iff {@code test} is true for any Command with a timestamp strictly less than {@code before}
+     */
+    public boolean anyBefore(Timestamp before, Predicate<Command> test)
+    {
+        if (size == 0)
+            return false;
+
+        int endChunk = chunkIndex(before);
+        for (int ci = 0 ; ci < endChunk ; ++ci)
+        {
+            Chunk chunk = chunks[ci];
+            for (int i = 0, size = chunk.size() ; i < size ; ++i)
+                if (test.test(chunk.commands[i]))
+                    return true;
+        }
+
+        Chunk chunk = chunks[endChunk];
+        for (int i = 0, end = endIndex(chunk, before) ; i < end ; ++i)
+            if (test.test(chunk.commands[i]))
+                return true;
+        return false;
+    }
+
+    /**
+     * @return true iff {@code test} is true for any Command with a timestamp strictly greater than {@code after}
+     */
+    public boolean anyAfter(Timestamp after, Predicate<Command> test)
+    {
+        if (size == 0)
+            return false;
+
+        int startChunk = chunkIndex(after);
+        Chunk chunk = chunks[startChunk];
+        for (int i = startIndex(chunk, after), size = chunk.size() ; i < size ; ++i)
+            if (test.test(chunk.commands[i]))
+                return true;
+
+        for (int ci = startChunk + 1, count = firsts.size() ; ci < count ; ++ci)
+        {
+            chunk = chunks[ci];
+            for (int i = 0, size = chunk.size() ; i < size ; ++i)
+                if (test.test(chunk.commands[i]))
+                    return true;
+        }
+        return false;
+    }
+
+    public void forEach(Consumer<Command> forEach)
+    {
+        for (int ci = 0, count = firsts.size() ; ci < count ; ++ci)
+        {
+            Chunk chunk = chunks[ci];
+            for (int i = 0, size = chunk.size() ; i < size ; ++i)
+                forEach.accept(chunk.commands[i]);
+        }
+    }
+
+    // the index of the chunk that would contain the timestamp, i.e. the last chunk starting at or before it (or zero)
+    private int chunkIndex(Timestamp timestamp)
+    {
+        int i = firsts.binarySearch(timestamp);
+        if (i < 0) i = -2 - i;
+        return Math.max(0, i);
+    }
+
+    // the index of the first entry in the chunk that is >= the timestamp
+    private static int endIndex(Chunk chunk, Timestamp timestamp)
+    {
+        int i = chunk.timestamps.binarySearch(timestamp);
+        return i < 0 ? -1 - i : i;
+    }
+
+    // the index of the first entry in the chunk that is > the timestamp
+    private static int startIndex(Chunk chunk, Timestamp timestamp)
+    {
+        int i = chunk.timestamps.binarySearch(timestamp);
+        return i < 0 ? -1 - i : i + 1;
+    }
+
+    private void insertChunk(int ci, Chunk chunk)
+    {
+        int count = firsts.size();
+        if (count == chunks.length)
+            chunks = Arrays.copyOf(chunks, count * 2);
+        System.arraycopy(chunks, ci, chunks, ci + 1, count - ci);
+        chunks[ci] = chunk;
+        firsts.insert(ci, chunk.timestamps.msb(0), chunk.timestamps.lsb(0));
+    }
+
+    private void removeChunk(int ci)
+    {
+        int count = firsts.size();
+        System.arraycopy(chunks, ci + 1, chunks, ci, count - (ci + 1));
+        chunks[count - 1] = null;
+        firsts.remove(ci);
+    }
+}
@@ -1,17 +1,15 @@
 package accord.local;
 
-import java.util.NavigableMap;
-import java.util.TreeMap;
-
 import accord.txn.Timestamp;
-import accord.txn.TxnId;
 
 public class CommandsForKey implements Listener
 {
-    // TODO: efficiency
-    public final NavigableMap<Timestamp, Command> uncommitted = new TreeMap<>();
-    public final NavigableMap<TxnId, Command> committedById = new TreeMap<>();
-    public final NavigableMap<Timestamp, Command> committedByExecuteAt = new TreeMap<>();
+    public final CommandIndex uncommitted = new CommandIndex();
+    public final CommandIndex committedById = new CommandIndex();
+    public final CommandIndex committedByExecuteAt = new CommandIndex();
+    // commands Applied by every replica, that we cannot yet retire because an uncommitted command on this key
+    // started before they execute, and its recovery may depend on our knowledge of them; indexed by executeAt
+    private final CommandIndex durable = new CommandIndex();
 
     private Timestamp max = Timestamp.NONE;
 
@@ -33,10 +31,45 @@ public class CommandsForKey implements Listener
                 committedById.put(command.txnId(), command);
                 committedByExecuteAt.put(command.executeAt(), command);
                 command.removeListener(this);
+                retire();
                 break;
         }
     }
 
+    void onDurable(Command command)
+    {
+        if (committedById.get(command.txnId()) != command)
+            return;
+
+        durable.put(command.executeAt(), command);
+        retire();
+    }
+
+    /**
+     * Retire every durable command that executes before our low watermark, i.e. the earliest TxnId still uncommitted
+     */
+    private void retire()
+    {
+        Command retire;
+        while (null != (retire = durable.first()))
+        {
+            Command uncommitted = this.uncommitted.first();
+            if (uncommitted != null && uncommitted.txnId().compareTo(retire.executeAt()) <= 0)
+                break;
+
+            durable.remove(retire.executeAt());
+            committedById.remove(retire.txnId());
+            committedByExecuteAt.remove(retire.executeAt());
+            retire.instance.onRetired(retire);
+        }
+    }
+
+    // restore the max of commands we have since retired from a Snapshot
+    void restoreMax(Timestamp max)
+    {
+        this.max = Timestamp.max(this.max, max);
+    }
+
     public void register(Command command)
     {
         max = Timestamp.max(max, command.executeAt());
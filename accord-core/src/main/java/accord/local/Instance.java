@@ -1,11 +1,17 @@
 package accord.local;
 
+import java.util.Comparator;
 import java.util.NavigableMap;
+import java.util.PriorityQueue;
 import java.util.TreeMap;
+import java.util.concurrent.Executor;
 
 import accord.api.Key;
 import accord.api.Store;
 import accord.topology.Shard;
+import accord.txn.Keys;
+import accord.txn.Timestamp;
+import accord.txn.TimestampArray;
 import accord.txn.TxnId;
 
 /**
@@ -13,22 +19,232 @@ import accord.txn.TxnId;
  */
 public class Instance
 {
+    static final int MAX_EXECUTIONS_PER_SLICE = 1024;
+
+    // our position amongst the Instances of our Node
+    public final int index;
     public final Shard shard;
     private final Node node;
     private final Store store;
+    // all access to this instance's state must be submitted to its executor
+    private final Executor executor;
     private final NavigableMap<TxnId, Command> commands = new TreeMap<>();
     private final NavigableMap<Key, CommandsForKey> commandsForKey = new TreeMap<>();
+    // the TxnId and executeAt of every command we have retired since durableBefore, so that we may recognise any later
+    // references to them
+    private final TimestampArray retiredTxnIds = new TimestampArray(), retiredExecuteAts = new TimestampArray();
+    // every replica of our shard has reported retaining no command below this, so any command below it that we do not
+    // know has been retired by every replica, or can never be witnessed by any; see retainedBefore
+    private Timestamp durableBefore = Timestamp.NONE;
+    // the greatest bound we have reported by retainedBefore, below which we must never witness a command we do not know
+    private Timestamp refuseBefore = Timestamp.NONE;
+    private final ProgressLog progressLog = new ProgressLog(this);
+    // commands whose dependencies have progressed, so that they may now be able to execute
+    private final PriorityQueue<Command> ready = new PriorityQueue<>(Comparator.comparing(Command::executeAt));
+    private boolean draining;
 
-    public Instance(Shard shard, Node node, Store store)
+    public Instance(int index, Shard shard, Node node, Store store, Executor executor)
     {
+        this.index = index;
         this.shard = shard;
         this.node = node;
         this.store = store;
+        this.executor = executor;
+    }
+
+    public void execute(Runnable run)
+    {
+        executor.execute(run);
+    }
+
+    /**
+     * A dependency of the command has progressed, so that it may now be able to execute. Rather than try immediately,
+     * which would recurse through every command that executing it unblocks in turn, we queue it to be tried once
+     * any command we are already trying has finished, in executeAt order.
+     */
+    void maybeExecute(Command command)
+    {
+        ready.add(command);
+        if (!draining)
+            drain();
+    }
+
+    private void drain()
+    {
+        draining = true;
+        try
+        {
+            for (int i = 0 ; i < MAX_EXECUTIONS_PER_SLICE ; ++i)
+            {
+                Command next = ready.poll();
+                if (next == null)
+                    return;
+                next.maybeExecute();
+            }
+            // yield to any other work submitted to our executor before continuing
+            execute(this::drain);
+        }
+        finally
+        {
+            draining = false;
+        }
     }
 
     public Command command(TxnId txnId)
     {
-        return commands.computeIfAbsent(txnId, id -> new Command(this, id));
+        Command command = commands.get(txnId);
+        if (command == null)
+        {
+            int i = retiredTxnIds.binarySearch(txnId);
+            if (i >= 0)
+                return Command.retired(this, txnId, retiredExecuteAts.get(i));
+            // we no longer know when a command we retired below durableBefore executed, only that it has been applied
+            if (txnId.compareTo(durableBefore) < 0)
+                return Command.retired(this, txnId, txnId);
+
+            command = new Command(this, txnId);
+            commands.put(txnId, command);
+        }
+        return command;
+    }
+
+    /**
+     * The number of commands we are retaining, excluding those we have retired
+     */
+    public int commandCount()
+    {
+        return commands.size();
+    }
+
+    /**
+     * The number of tombstones we are retaining for the commands we have retired
+     */
+    public int retiredCount()
+    {
+        return retiredTxnIds.size();
+    }
+
+    /**
+     * Whether we must refuse to witness the command, so that it may never reach a quorum through us: either we have
+     * committed its invalidation, or retired it, or we do not know it but have reported retaining no command below
+     * it, so that another replica may already treat it as retired.
+     */
+    public boolean refuses(TxnId txnId)
+    {
+        Command command = commands.get(txnId);
+        if (command != null && !command.is(Status.NotWitnessed))
+            return command.txn().isInvalidated();
+
+        return txnId.compareTo(refuseBefore) < 0 || isRetired(txnId);
+    }
+
+    /**
+     * A bound below which we retain no command, reported to whoever persists a transaction so that, once every
+     * replica of our shard has reported one, they may inform us of a new durableBefore. From now on we refuse to
+     * witness any command below it that we do not already know, as durableBefore may then exceed it; so it also
+     * trails the clock our Node had a margin ago, lest we refuse a transaction whose messages are merely delayed.
+     */
+    public Timestamp retainedBefore()
+    {
+        Timestamp bound = !commands.isEmpty() ? commands.firstKey()
+                        : !retiredTxnIds.isEmpty() ? retiredTxnIds.get(retiredTxnIds.size() - 1)
+                        : durableBefore;
+        bound = Timestamp.max(durableBefore, Timestamp.min(bound, node.refusableBefore()));
+        refuseBefore = Timestamp.max(refuseBefore, bound);
+        return bound;
+    }
+
+    /**
+     * The transaction has been Applied by every replica; retire it once it can no longer be needed.
+     * Every replica of our shard has also reported retaining no command below {@code durableBefore}, so we may
+     * discard our tombstones below it.
+     */
+    public void onDurable(TxnId txnId, Timestamp durableBefore)
+    {
+        if (durableBefore.compareTo(this.durableBefore) > 0)
+        {
+            this.durableBefore = durableBefore;
+            int i = retiredTxnIds.binarySearch(durableBefore);
+            int count = i < 0 ? -1 - i : i;
+            retiredTxnIds.removeFirst(count);
+            retiredExecuteAts.removeFirst(count);
+        }
+
+        Command command = commands.get(txnId);
+        if (command == null || !command.hasBeen(Status.Applied))
+            return;
+
+        // commands are registered with every key of their transaction, not only those we own
+        Keys keys = command.txn().keys();
+        for (int i = 0 ; i < keys.size() ; ++i)
+            commandsForKey(keys.get(i)).onDurable(command);
+    }
+
+    // invoked by each CommandsForKey as it retires the command; once none retain it, discard it and leave a tombstone
+    void onRetired(Command command)
+    {
+        Keys keys = command.txn().keys();
+        for (int i = 0 ; i < keys.size() ; ++i)
+        {
+            CommandsForKey forKey = commandsForKey.get(keys.get(i));
+            if (forKey != null && forKey.committedById.get(command.txnId()) == command)
+                return;
+        }
+
+        commands.remove(command.txnId());
+        int i = -1 - retiredTxnIds.binarySearch(command.txnId());
+        retiredTxnIds.insert(i, command.txnId());
+        retiredExecuteAts.insert(i, command.executeAt());
+    }
+
+    // the commands we are retaining, for Snapshot to capture
+    NavigableMap<TxnId, Command> commands()
+    {
+        return commands;
+    }
+
+    NavigableMap<Key, CommandsForKey> commandsForKey()
+    {
+        return commandsForKey;
+    }
+
+    TimestampArray retiredTxnIds()
+    {
+        return retiredTxnIds;
+    }
+
+    TimestampArray retiredExecuteAts()
+    {
+        return retiredExecuteAts;
+    }
+
+    boolean isRetired(TxnId txnId)
+    {
+        return txnId.compareTo(durableBefore) < 0 || retiredTxnIds.binarySearch(txnId) >= 0;
+    }
+
+    Timestamp durableBefore()
+    {
+        return durableBefore;
+    }
+
+    public Timestamp refuseBefore()
+    {
+        return refuseBefore;
+    }
+
+    // restore our bounds from a Snapshot, before any tombstones
+    void restoreBounds(Timestamp durableBefore, Timestamp refuseBefore)
+    {
+        this.durableBefore = durableBefore;
+        this.refuseBefore = refuseBefore;
+    }
+
+    // restore a tombstone from a Snapshot, which supplies them in order
+    void restoreRetired(TxnId txnId, Timestamp executeAt)
+    {
+        retiredTxnIds.add(txnId);
+        retiredExecuteAts.add(executeAt);
     }
 
     public boolean hasCommand(TxnId txnId)
@@ -46,6 +262,11 @@ public class Instance
         return commandsForKey.containsKey(key);
     }
 
+    public ProgressLog progressLog()
+    {
+        return progressLog;
+    }
+
     public Store store()
     {
         return store;
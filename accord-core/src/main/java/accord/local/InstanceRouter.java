@@ -0,0 +1,84 @@
+package accord.local;
+
+import java.util.function.Consumer;
+
+import accord.api.Key;
+import accord.api.KeyRange;
+import accord.topology.Shards;
+import accord.txn.Keys;
+
+/**
+ * An immutable index from the ranges of our local shards to the Instance that replicates each, so that we may route
+ * keys to Instances without allocating. The ranges are sorted and do not overlap, so that we may visit the Instances
+ * replicating any sorted Keys in a single merge pass, skipping the keys within each matched range by binary search.
+ */
+class InstanceRouter
+{
+    private final KeyRange[] ranges;
+    private final Instance[] instances;
+
+    InstanceRouter(Shards local, Instance[] instances)
+    {
+        this.ranges = new KeyRange[local.size()];
+        for (int i = 0 ; i < ranges.length ; ++i)
+            ranges[i] = local.get(i).range;
+        this.instances = instances;
+    }
+
+    /**
+     * Invoke {@code forEach} with each Instance replicating any of the keys, in the calling thread and in range order
+     */
+    void forEach(Keys keys, Consumer<Instance> forEach)
+    {
+        for (int i = 0, j = 0 ; i < keys.size() && j < ranges.length ;)
+        {
+            int c = ranges[j].compareKey(keys.get(i));
+            if (c < 0) ++i;
+            else if (c > 0) ++j;
+            else
+            {
+                forEach.accept(instances[j]);
+                i = ranges[j].higherKeyIndex(keys, i + 1, keys.size());
+                ++j;
+            }
+        }
+    }
+
+    /**
+     * The number of Instances replicating any of the keys
+     */
+    int count(Keys keys)
+    {
+        int count = 0;
+        for (int i = 0, j = 0 ; i < keys.size() && j < ranges.length ;)
+        {
+            int c = ranges[j].compareKey(keys.get(i));
+            if (c < 0) ++i;
+            else if (c > 0) ++j;
+            else
+            {
+                ++count;
+                i = ranges[j].higherKeyIndex(keys, i + 1, keys.size());
+                ++j;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * The Instance replicating the key, or null if it is not replicated locally
+     */
+    Instance forKey(Key key)
+    {
+        int lb = 0, ub = ranges.length;
+        while (lb < ub)
+        {
+            int mid = (lb + ub) >>> 1;
+            int c = ranges[mid].compareKey(key);
+            if (c < 0) ub = mid;
+            else if (c > 0) lb = mid + 1;
+            else return instances[mid];
+        }
+        return null;
+    }
+}
@@ -0,0 +1,212 @@
+package accord.local;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+import accord.api.Result;
+import accord.txn.Ballot;
+import accord.txn.Dependencies;
+import accord.txn.Timestamp;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import accord.txn.TxnSerializer;
+import accord.txn.Writes;
+
+/**
+ * A durable log of every Command state transition, which a Node replays on startup to recover its state.
+ *
+ * A reply may only be sent once the transitions it reports are durable, so that we never forget a promise we
+ * have made; replies are therefore deferred by {@link #afterDurable}, which permits an implementation to make
+ * many transitions durable together.
+ */
+public interface Journal
+{
+    enum Kind { WITNESS, ACCEPT, COMMIT, APPLY, RECOVER }
+
+    /**
+     * A Command state transition, with the arguments it was invoked with. Fields that are not relevant to
+     * the transition are null, as is the Txn of any transition after the first that does not change it, in which
+     * case we replay the transition with the Txn the Command has by then been restored with.
+     */
+    class Record
+    {
+        public final Kind kind;
+        // the index of the Instance on its Node
+        public final int instance;
+        public final TxnId txnId;
+        public final Txn txn;
+        public final Ballot ballot;
+        public final Timestamp executeAt;
+        public final Dependencies deps;
+        public final Writes writes;
+        public final Result result;
+
+        public Record(Kind kind, int instance, TxnId txnId, Txn txn, Ballot ballot, Timestamp executeAt, Dependencies deps, Writes writes, Result result)
+        {
+            this.kind = kind;
+            this.instance = instance;
+            this.txnId = txnId;
+            this.txn = txn;
+            this.ballot = ballot;
+            this.executeAt = executeAt;
+            this.deps = deps;
+            this.writes = writes;
+            this.result = result;
+        }
+
+        public static Record witness(int instance, TxnId txnId, Txn txn, Timestamp executeAt)
+        {
+            return new Record(Kind.WITNESS, instance, txnId, txn, null, executeAt, null, null, null);
+        }
+
+        public static Record accept(int instance, TxnId txnId, Ballot ballot, Txn txn, Timestamp executeAt, Dependencies deps)
+        {
+            return new Record(Kind.ACCEPT, instance, txnId, txn, ballot, executeAt, deps, null, null);
+        }
+
+        public static Record commit(int instance, TxnId txnId, Txn txn, Dependencies deps, Timestamp executeAt)
+        {
+            return new Record(Kind.COMMIT, instance, txnId, txn, null, executeAt, deps, null, null);
+        }
+
+        public static Record apply(int instance, TxnId txnId, Txn txn, Dependencies deps, Timestamp executeAt, Writes writes, Result result)
+        {
+            return new Record(Kind.APPLY, instance, txnId, txn, null, executeAt, deps, writes, result);
+        }
+
+        public static Record recover(int instance, TxnId txnId, Txn txn, Ballot ballot)
+        {
+            return new Record(Kind.RECOVER, instance, txnId, txn, ballot, null, null, null, null);
+        }
+
+        /**
+         * Re-apply this transition to the Command it was recorded for
+         */
+        void replay(Command command)
+        {
+            Txn txn = this.txn != null ? this.txn : command.txn();
+            // we may replay transitions that a snapshot already reflects, which every transition but WITNESS ignores
+            switch (kind)
+            {
+                default: throw new IllegalStateException();
+                case WITNESS:
+                    if (!command.hasBeen(Status.PreAccepted))
+                        command.witness(txn, executeAt);
+                    break;
+                case ACCEPT: command.accept(ballot, txn, executeAt, deps); break;
+                case COMMIT: command.commit(txn, deps, executeAt); break;
+                case APPLY: command.apply(txn, deps, executeAt, writes, result); break;
+                case RECOVER: command.recover(txn, ballot);
+            }
+        }
+
+        public static void serialize(Record record, TxnSerializer serializer, DataOutput out) throws IOException
+        {
+            out.writeByte(record.kind.ordinal());
+            out.writeInt(record.instance);
+            serializer.serialize(record.txnId, out);
+            out.writeBoolean(record.txn != null);
+            if (record.txn != null)
+                serializer.serialize(record.txn, out);
+            switch (record.kind)
+            {
+                case ACCEPT:
+                case RECOVER:
+                    serializer.serialize(record.ballot, out);
+            }
+            if (record.kind != Kind.RECOVER)
+                serializer.serialize(record.executeAt, out);
+            switch (record.kind)
+            {
+                case ACCEPT:
+                case COMMIT:
+                case APPLY:
+                    serializer.serialize(record.deps, out);
+            }
+            if (record.kind == Kind.APPLY)
+            {
+                serializer.serialize(record.writes, out);
+                serializer.serialize(record.result, out);
+            }
+        }
+
+        public static Record deserialize(TxnSerializer serializer, DataInput in) throws IOException
+        {
+            Kind kind = Kind.values()[in.readByte()];
+            int instance = in.readInt();
+            TxnId txnId = serializer.deserializeTxnId(in);
+            Txn txn = in.readBoolean() ? serializer.deserializeTxn(in) : null;
+            Ballot ballot = kind == Kind.ACCEPT || kind == Kind.RECOVER ? serializer.deserializeBallot(in) : null;
+            Timestamp executeAt = kind != Kind.RECOVER ? serializer.deserializeTimestamp(in) : null;
+            Dependencies deps = kind == Kind.ACCEPT || kind == Kind.COMMIT || kind == Kind.APPLY ? serializer.deserializeDependencies(in) : null;
+            Writes writes = kind == Kind.APPLY ? serializer.deserializeWrites(in) : null;
+            Result result = kind == Kind.APPLY ? serializer.deserializeResult(in) : null;
+            return new Record(kind, instance, txnId, txn, ballot, executeAt, deps, writes, result);
+        }
+    }
+
+    /**
+     * A Journal that retains nothing, for a Node whose state need not survive a restart
+     */
+    Journal NONE = new Journal()
+    {
+        @Override
+        public void append(Record record)
+        {
+        }
+
+        @Override
+        public void afterDurable(Runnable run)
+        {
+            run.run();
+        }
+
+        @Override
+        public long position()
+        {
+            return 0;
+        }
+
+        @Override
+        public void replay(long from, Consumer<Record> replay)
+        {
+        }
+
+        @Override
+        public void truncate(long before)
+        {
+        }
+    };
+
+    void append(Record record);
+
+    /**
+     * Invoke {@code run} once every record appended before this call is durable
+     */
+    void afterDurable(Runnable run);
+
+    /**
+     * @return the position at which the next record will be appended, which orders after every record already appended
+     */
+    long position();
+
+    /**
+     * Supply every durable record to {@code replay}, in the order they were appended
+     */
+    default void replay(Consumer<Record> replay)
+    {
+        replay(0, replay);
+    }
+
+    /**
+     * Supply every durable record appended at or after {@code from} to {@code replay}, in the order they were appended
+     */
+    void replay(long from, Consumer<Record> replay);
+
+    /**
+     * Permit the Journal to discard records appended before {@code before}, as they are no longer needed to restore our state
+     */
+    void truncate(long before);
+}
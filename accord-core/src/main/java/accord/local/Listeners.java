@@ -1,7 +1,138 @@
 package accord.local;
 
-import accord.utils.DeterministicIdentitySet;
+import java.util.IdentityHashMap;
 
-class Listeners extends DeterministicIdentitySet<Listener>
+/**
+ * The listeners of a Command, in the order they were added. Most commands have only a handful, so they are kept in a
+ * small array that is scanned to find them, and indexed by identity only once there are more than INDEX_THRESHOLD.
+ *
+ * Listeners may be added and removed while they are being notified: a removed listener's slot is cleared, and the
+ * array compacted only once no notification is in progress; a listener added during a notification is not notified
+ * by it. As with the commands they belong to, all access must be made from the executor of the Instance.
+ */
+class Listeners
 {
+    private static final int INDEX_THRESHOLD = 16;
+
+    private Listener[] listeners = new Listener[2];
+    // the number of slots in use, including those cleared by remove
+    private int count;
+    private int removed;
+    private int notifying;
+    private IdentityHashMap<Listener, Integer> index;
+
+    boolean add(Listener listener)
+    {
+        if (indexOf(listener) >= 0)
+            return false;
+
+        if (count == listeners.length)
+        {
+            if (notifying == 0 && removed > 0) compact();
+            else grow();
+        }
+        listeners[count] = listener;
+        if (index != null) index.put(listener, count);
+        ++count;
+        if (index == null && count > INDEX_THRESHOLD)
+            buildIndex();
+        return true;
+    }
+
+    boolean remove(Listener listener)
+    {
+        int i = indexOf(listener);
+        if (i < 0)
+            return false;
+
+        listeners[i] = null;
+        if (index != null) index.remove(listener);
+        ++removed;
+        if (notifying == 0 && removed * 2 > count)
+            compact();
+        return true;
+    }
+
+    int size()
+    {
+        return count - removed;
+    }
+
+    boolean isEmpty()
+    {
+        return count == removed;
+    }
+
+    void onChange(Command command)
+    {
+        ++notifying;
+        try
+        {
+            // listeners may grow the array, so we must re-read it for each slot
+            for (int i = 0, end = count ; i < end ; ++i)
+            {
+                Listener listener = listeners[i];
+                if (listener != null)
+                    listener.onChange(command);
+            }
+        }
+        finally
+        {
+            if (--notifying == 0 && removed * 2 > count)
+                compact();
+        }
+    }
+
+    private int indexOf(Listener listener)
+    {
+        if (index != null)
+        {
+            Integer i = index.get(listener);
+            return i == null ? -1 : i;
+        }
+
+        for (int i = 0 ; i < count ; ++i)
+        {
+            if (listeners[i] == listener)
+                return i;
+        }
+        return -1;
+    }
+
+    private void grow()
+    {
+        Listener[] grown = new Listener[listeners.length * 2];
+        System.arraycopy(listeners, 0, grown, 0, count);
+        listeners = grown;
+    }
+
+    private void compact()
+    {
+        int live = 0;
+        for (int i = 0 ; i < count ; ++i)
+        {
+            if (listeners[i] != null)
+                listeners[live++] = listeners[i];
+        }
+        for (int i = live ; i < count ; ++i)
+            listeners[i] = null;
+        count = live;
+        removed = 0;
+        if (index != null)
+        {
+            index = null;
+            if (count > INDEX_THRESHOLD)
+                buildIndex();
+        }
+    }
+
+    private void buildIndex()
+    {
+        index = new IdentityHashMap<>(count * 2);
+        for (int i = 0 ; i < count ; ++i)
+        {
+            if (listeners[i] != null)
+                index.put(listeners[i], i);
+        }
+    }
 }
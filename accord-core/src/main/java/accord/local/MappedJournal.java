@@ -0,0 +1,330 @@
+package accord.local;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+import accord.txn.TxnSerializer;
+
+/**
+ * A Journal that appends records to a sequence of fixed size, memory-mapped segment files.
+ *
+ * Each record is framed by its length and a CRC32 of its contents; a zero length (i.e. the unwritten remainder of a
+ * segment) marks the end of the segment, and a record whose CRC does not match marks the end of the log, as it
+ * was not durable when we stopped.
+ *
+ * A position is the index of a segment in the upper 32 bits, and an offset within it in the lower 32 bits.
+ *
+ * Appends serialize and checksum their record before taking the lock, under which they only reserve space for it
+ * and copy it into the mapped segment, so that a record is wholly written before any force can claim it. A single sync thread forces the segments to disk and
+ * then invokes every callback waiting on those records, so that each force covers every record appended by
+ * any Instance since the previous force. A callback waits until every record appended before it was registered
+ * is durable, i.e. until the durable position, which is advanced only once a force has completed, reaches the
+ * position at which it was registered.
+ */
+public class MappedJournal implements Journal, AutoCloseable
+{
+    public static final int DEFAULT_SEGMENT_SIZE = 32 << 20;
+    private static final String PREFIX = "journal-", SUFFIX = ".log";
+    private static final int HEADER_SIZE = 8;
+
+    private final File directory;
+    private final int segmentSize;
+    private final TxnSerializer serializer;
+    private final ExecutorService sync = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "journal-sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // the buffers each appending thread serializes its records into
+    private static class Serializing
+    {
+        final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(buffer);
+        final CRC32 crc = new CRC32();
+    }
+    private final ThreadLocal<Serializing> serializing = ThreadLocal.withInitial(Serializing::new);
+
+    private int nextSegment;
+    private MappedByteBuffer segment;
+    // segments that have been written to since they were last forced, including the current segment
+    private final List<MappedByteBuffer> unsynced = new ArrayList<>();
+    private List<Runnable> awaitingSync = new ArrayList<>();
+    private boolean syncScheduled;
+    // every record before this position has been forced
+    private long durable;
+
+    public MappedJournal(File directory, TxnSerializer serializer)
+    {
+        this(directory, DEFAULT_SEGMENT_SIZE, serializer);
+    }
+
+    public MappedJournal(File directory, int segmentSize, TxnSerializer serializer)
+    {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.serializer = serializer;
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IllegalArgumentException("Could not create " + directory);
+        truncateInvalidTail();
+        File[] segments = segments();
+        this.nextSegment = segments.length == 0 ? 0 : index(segments[segments.length - 1]) + 1;
+        this.durable = position();
+    }
+
+    // discard any record that was not durable when we stopped, and everything after it, so that we may append new segments
+    private void truncateInvalidTail()
+    {
+        File[] segments = segments();
+        for (int i = 0 ; i < segments.length ; ++i)
+        {
+            int end = scan(segments[i], 0, ignore -> {});
+            if (end < 0)
+                continue;
+
+            try (FileChannel channel = FileChannel.open(segments[i].toPath(), StandardOpenOption.WRITE))
+            {
+                channel.truncate(end);
+            }
+            catch (IOException e)
+            {
+                throw new UncheckedIOException(e);
+            }
+            for (int j = i + 1 ; j < segments.length ; ++j)
+            {
+                if (!segments[j].delete())
+                    throw new IllegalStateException("Could not delete " + segments[j]);
+            }
+            return;
+        }
+    }
+
+    @Override
+    public void append(Record record)
+    {
+        Serializing serializing = this.serializing.get();
+        try
+        {
+            serializing.buffer.reset();
+            Record.serialize(record, serializer, serializing.out);
+            byte[] bytes = serializing.buffer.toByteArray();
+            serializing.crc.reset();
+            serializing.crc.update(bytes);
+            append(bytes, (int) serializing.crc.getValue());
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private synchronized void append(byte[] bytes, int checksum) throws IOException
+    {
+        // reserve space for the record, then copy it in before a force may claim it
+        if (segment == null || segment.remaining() < HEADER_SIZE + bytes.length)
+            nextSegment(bytes.length);
+
+        segment.putInt(bytes.length);
+        segment.putInt(checksum);
+        segment.put(bytes);
+        if (unsynced.isEmpty() || unsynced.get(unsynced.size() - 1) != segment)
+            unsynced.add(segment);
+    }
+
+    private void nextSegment(int minSize) throws IOException
+    {
+        // we never append to a segment we did not create, as its tail may not be valid
+        File file = new File(directory, PREFIX + nextSegment++ + SUFFIX);
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE))
+        {
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(minSize + HEADER_SIZE, segmentSize));
+        }
+    }
+
+    @Override
+    public void afterDurable(Runnable run)
+    {
+        synchronized (this)
+        {
+            // a force may be in progress that has already claimed our records, but we cannot run until it completes
+            if (position() > durable)
+            {
+                awaitingSync.add(run);
+                if (!syncScheduled)
+                {
+                    syncScheduled = true;
+                    sync.execute(this::sync);
+                }
+                return;
+            }
+        }
+        run.run();
+    }
+
+    private void sync()
+    {
+        List<MappedByteBuffer> force;
+        List<Runnable> run;
+        long position;
+        synchronized (this)
+        {
+            position = position();
+            force = new ArrayList<>(unsynced);
+            unsynced.clear();
+            run = awaitingSync;
+            awaitingSync = new ArrayList<>();
+            syncScheduled = false;
+        }
+
+        // any records appended while we force are left for the next sync, which their callbacks will have scheduled
+        for (MappedByteBuffer segment : force)
+            force(segment);
+        synchronized (this)
+        {
+            durable = Math.max(durable, position);
+        }
+        run.forEach(Runnable::run);
+    }
+
+    // overridden by tests, to observe callbacks registered while we force
+    void force(MappedByteBuffer segment)
+    {
+        segment.force();
+    }
+
+    @Override
+    public synchronized long position()
+    {
+        if (segment == null)
+            return position(nextSegment, 0);
+        return position(nextSegment - 1, segment.position());
+    }
+
+    private static long position(int segment, int offset)
+    {
+        return ((long) segment << 32) | offset;
+    }
+
+    private static int segment(long position)
+    {
+        return (int) (position >>> 32);
+    }
+
+    private static int offset(long position)
+    {
+        return (int) position;
+    }
+
+    @Override
+    public void replay(long from, Consumer<Record> replay)
+    {
+        for (File file : segments())
+        {
+            int index = index(file);
+            if (index >= segment(from))
+                scan(file, index == segment(from) ? offset(from) : 0, replay);
+        }
+    }
+
+    /**
+     * Delete every segment that contains only records appended before {@code before}
+     */
+    @Override
+    public void truncate(long before)
+    {
+        for (File file : segments())
+        {
+            if (index(file) < segment(before) && !file.delete())
+                throw new IllegalStateException("Could not delete " + file);
+        }
+    }
+
+    /**
+     * Supply each valid record of the segment from {@code offset} to {@code replay}, stopping at the end of its written records
+     *
+     * @return -1 if the segment ends cleanly, or else the offset of its first invalid record
+     */
+    private int scan(File file, int offset, Consumer<Record> replay)
+    {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ))
+        {
+            MappedByteBuffer segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            // the position may follow an invalid tail that we have since truncated
+            segment.position(Math.min(offset, segment.limit()));
+            CRC32 crc = new CRC32();
+            while (segment.remaining() >= HEADER_SIZE)
+            {
+                int start = segment.position();
+                int size = segment.getInt();
+                int checksum = segment.getInt();
+                if (size == 0)
+                    return checksum == 0 ? -1 : start;
+                if (size < 0 || size > segment.remaining())
+                    return start;
+
+                byte[] bytes = new byte[size];
+                segment.get(bytes);
+                crc.update(bytes);
+                if ((int) crc.getValue() != checksum)
+                    return start;
+                crc.reset();
+
+                replay.accept(Record.deserialize(serializer, new DataInputStream(new ByteArrayInputStream(bytes))));
+            }
+            return -1;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private File[] segments()
+    {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null)
+            return new File[0];
+        Arrays.sort(files, (a, b) -> Integer.compare(index(a), index(b)));
+        return files;
+    }
+
+    private static int index(File file)
+    {
+        String name = file.getName();
+        return Integer.parseInt(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+
+    /**
+     * Force any unsynced records, invoke any waiting callbacks, and stop the sync thread
+     */
+    @Override
+    public void close()
+    {
+        sync.execute(this::sync);
+        sync.shutdown();
+        try
+        {
+            sync.awaitTermination(1, TimeUnit.MINUTES);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -2,9 +2,14 @@ package accord.local;
 
 import java.util.*;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
@@ -16,9 +21,13 @@ import accord.api.Result;
 import accord.api.Scheduler;
 import accord.api.Store;
 import accord.coordinate.Coordinate;
+import accord.coordinate.FastPathWait;
+import accord.coordinate.HedgedReads;
 import accord.messages.Callback;
 import accord.messages.Request;
 import accord.messages.Reply;
+import accord.topology.LocalityProximity;
+import accord.topology.Proximity;
 import accord.topology.Shard;
 import accord.topology.Shards;
 import accord.topology.Topology;
@@ -26,13 +35,15 @@ import accord.txn.Keys;
 import accord.txn.Timestamp;
 import accord.txn.Txn;
 import accord.txn.TxnId;
+import accord.utils.InstanceExecutors;
 
 public class Node
 {
     public static class Id implements Comparable<Id>
     {
         public static final Id NONE = new Id(0);
-        public static final Id MAX = new Id(Long.MAX_VALUE);
+        // the largest Id a Timestamp may carry
+        public static final Id MAX = new Id(0xFFFFFFFFL);
 
         public final long id;
 
@@ -74,56 +85,198 @@ public class Node
     private final Topology cluster;
     private final Shards local;
     private final Instance[] instances;
+    private final InstanceRouter router;
     private final MessageSink messageSink;
     private final Random random;
+    private final Proximity proximity;
+    private final HedgedReads hedgedReads;
+    private final FastPathWait fastPathWait;
+    private final long refuseMarginMillis;
+    // Journal.NONE until we have replayed our journal
+    private Journal journal = Journal.NONE;
 
     private final LongSupplier nowSupplier;
-    private final AtomicReference<Timestamp> now;
+    // the most recent Timestamp we issued, packed as real << LOGICAL_BITS | logical so it may be updated without allocation
+    // if logical overflows it carries into real, which may then run ahead of the clock; real must fit in 47 bits
+    private static final int LOGICAL_BITS = 16;
+    private static final long LOGICAL_MASK = (1L << LOGICAL_BITS) - 1;
+    private final AtomicLong now;
+    // our clock sampled every refuseMargin / CLOCK_SAMPLES, so that the oldest sample trails it by the margin
+    static final int CLOCK_SAMPLES = 4;
+    private final long[] clockSamples = new long[CLOCK_SAMPLES];
+    private int nextClockSample;
+    private volatile long refusableBefore;
     private final Agent agent;
 
     // TODO: this really needs to be thought through some more, as it needs to be per-instance in some cases, and per-node in others
     private final Scheduler scheduler;
 
     private final Map<TxnId, CompletionStage<Result>> coordinating = new ConcurrentHashMap<>();
-    private final Set<TxnId> pendingRecovery = Collections.newSetFromMap(new ConcurrentHashMap<>());
+    // the write transactions we have coordinated whose outcome we have yet to learn, which we may need to coordinate
+    // again should they be invalidated
+    private final Map<TxnId, Txn> unresolved = new ConcurrentHashMap<>();
+    // the dependencies we must fetch, collected while we restore our state as we cannot yet send messages; null after
+    private Map<TxnId, Keys> fetchAfterReplay = new HashMap<>();
+    // the transactions we are fetching, so that every command depending on one shares a single Fetch
+    private final Set<TxnId> fetching = ConcurrentHashMap.newKeySet();
+
+    /**
+     * The optional collaborators of a Node, each of which has a default suitable for a node whose state is not durable
+     */
+    public static class Options
+    {
+        Supplier<Executor> executorSupplier = InstanceExecutors.INLINE;
+        Proximity proximity;
+        HedgedReads hedgedReads = new HedgedReads();
+        FastPathWait fastPathWait = new FastPathWait();
+        Journal journal = Journal.NONE;
+        Snapshots snapshots = Snapshots.NONE;
+        long refuseMarginMillis = 5000;
+
+        /**
+         * @param executorSupplier supplies the executor for each local Instance, to which all access to its state is confined
+         */
+        public Options executors(Supplier<Executor> executorSupplier)
+        {
+            this.executorSupplier = executorSupplier;
+            return this;
+        }
+
+        /**
+         * @param proximity orders replicas by their distance from us, so we may read from the closest;
+         *                  by default a LocalityProximity
+         */
+        public Options proximity(Proximity proximity)
+        {
+            this.proximity = proximity;
+            return this;
+        }
+
+        /**
+         * @param hedgedReads decides when to also read from another replica if the first is slow to answer
+         */
+        public Options hedgedReads(HedgedReads hedgedReads)
+        {
+            this.hedgedReads = hedgedReads;
+            return this;
+        }
+
+        /**
+         * @param fastPathWait decides how long to wait for the fast path once we could propose a transaction by Accept
+         */
+        public Options fastPathWait(FastPathWait fastPathWait)
+        {
+            this.fastPathWait = fastPathWait;
+            return this;
+        }
+
+        /**
+         * @param journal records every Command state transition, and is replayed to restore our state before we return
+         */
+        public Options journal(Journal journal)
+        {
+            this.journal = journal;
+            return this;
+        }
 
-    public Node(Id id, Topology cluster, Shards local, MessageSink messageSink, Random random, LongSupplier nowSupplier, Supplier<Store> dataSupplier, Agent agent, Scheduler scheduler)
+        /**
+         * @param snapshots from which we restore our state before replaying only the remainder of the journal, and to
+         *                  which we periodically snapshot our state thereafter
+         */
+        public Options snapshots(Snapshots snapshots)
+        {
+            this.snapshots = snapshots;
+            return this;
+        }
+
+        /**
+         * @param refuseMarginMillis how long after our clock first reaches a TxnId that we may refuse to witness it,
+         *                           which should comfortably exceed the delay of any message we still expect to deliver;
+         *                           by default 5s. Our clock advances with every TxnId we witness, so this is measured
+         *                           by our Scheduler, and is independent of the skew between our clocks or their units.
+         */
+        public Options refuseMargin(long refuseMarginMillis)
+        {
+            this.refuseMarginMillis = refuseMarginMillis;
+            return this;
+        }
+    }
+
+    public Node(Id id, Topology cluster, Shards local, MessageSink messageSink, Random random, LongSupplier nowSupplier, Supplier<Store> dataSupplier, Agent agent, Scheduler scheduler, Options options)
     {
         this.id = id;
         this.cluster = cluster;
         this.random = random;
+        this.proximity = options.proximity != null ? options.proximity : new LocalityProximity(id);
+        this.hedgedReads = options.hedgedReads;
+        this.fastPathWait = options.fastPathWait;
+        this.refuseMarginMillis = options.refuseMarginMillis;
         this.agent = agent;
-        this.now = new AtomicReference<>(new Timestamp(nowSupplier.getAsLong(), 0, id));
+        this.now = new AtomicLong(nowSupplier.getAsLong() << LOGICAL_BITS);
         this.local = local;
         this.messageSink = messageSink;
         this.instances = new Instance[local.size()];
         this.nowSupplier = nowSupplier;
         this.scheduler = scheduler;
         for (int i = 0 ; i < instances.length ; ++i)
-            instances[i] = new Instance(local.get(i), this, dataSupplier.get());
+        {
+            Store store = dataSupplier.get();
+            if (options.snapshots.isEnabled() && !store.isDurable())
+                throw new IllegalArgumentException("Snapshots may only be enabled for a durable Store, as they discard the journaled writes of retired commands");
+            instances[i] = new Instance(i, local.get(i), this, store, options.executorSupplier.get());
+        }
+        this.router = new InstanceRouter(local, instances);
+
+        long replayFrom = options.snapshots.restore(instances);
+        options.journal.replay(replayFrom, record -> {
+            // we must never issue a timestamp that we may already have witnessed
+            uniqueNow(record.txnId);
+            if (record.executeAt != null)
+                uniqueNow(record.executeAt);
+            record.replay(instances[record.instance].command(record.txnId));
+        });
+        this.journal = options.journal;
+
+        // a later record may have witnessed a dependency we found missing when we replayed its dependent's commit
+        Map<TxnId, Keys> fetch = fetchAfterReplay;
+        fetchAfterReplay = null;
+        fetch.forEach((txnId, keys) -> {
+            for (Instance instance : instances)
+            {
+                if (instance.hasCommand(txnId) && instance.command(txnId).is(Status.NotWitnessed))
+                {
+                    fetch(txnId, keys);
+                    return;
+                }
+            }
+        });
+        options.snapshots.start(this);
+        if (refuseMarginMillis > 0)
+            scheduler.recurring(this::sampleClock, Math.max(1, refuseMarginMillis / CLOCK_SAMPLES), TimeUnit.MILLISECONDS);
     }
 
     public Timestamp uniqueNow()
     {
-        return now.updateAndGet(cur -> {
-            // TODO: this diverges from proof; either show isomorphism or make consistent
-            long now = nowSupplier.getAsLong();
-            if (now > cur.real) return new Timestamp(now, 0, id);
-            else return new Timestamp(cur.real, cur.logical + 1, id);
-        });
+        // TODO: this diverges from proof; either show isomorphism or make consistent
+        long next = now.updateAndGet(cur -> Math.max(cur + 1, nowSupplier.getAsLong() << LOGICAL_BITS));
+        return new Timestamp(next >>> LOGICAL_BITS, (int) (next & LOGICAL_MASK), id);
     }
 
     public Timestamp uniqueNow(Timestamp atLeast)
     {
-        if (now.get().compareTo(atLeast) < 0)
-            now.accumulateAndGet(atLeast, (a, b) -> a.compareTo(b) < 0 ? new Timestamp(b.real, b.logical + 1, id) : a);
+        witness(atLeast);
+        return uniqueNow();
+    }
 
-        return now.updateAndGet(cur -> {
-            // TODO: this diverges from proof; either show isomorphism or make consistent
-            long now = nowSupplier.getAsLong();
-            if (now > cur.real) return new Timestamp(now, 0, id);
-            else return new Timestamp(cur.real, cur.logical + 1, id);
-        });
+    /**
+     * Advance our clock to at least {@code witnessed}, so that we issue only later timestamps
+     */
+    public void witness(Timestamp witnessed)
+    {
+        // the logical component may only exceed LOGICAL_MASK for sentinel values; if so it carries into real
+        long min = (witnessed.real << LOGICAL_BITS) + witnessed.logical;
+        if (now.get() < min)
+            now.accumulateAndGet(min, Math::max);
     }
 
     public long now()
@@ -131,22 +284,112 @@ public class Node
         return nowSupplier.getAsLong();
     }
 
+    /**
+     * A bound that trails our clock by Options.refuseMargin, below which no TxnId should still be proposed
+     */
+    Timestamp refusableBefore()
+    {
+        long before = refuseMarginMillis > 0 ? refusableBefore : clock();
+        return before == 0 ? Timestamp.NONE : new Timestamp(before >>> LOGICAL_BITS, (int) (before & LOGICAL_MASK), Id.NONE);
+    }
+
+    private long clock()
+    {
+        return Math.max(now.get(), nowSupplier.getAsLong() << LOGICAL_BITS);
+    }
+
+    private synchronized void sampleClock()
+    {
+        refusableBefore = clockSamples[nextClockSample];
+        clockSamples[nextClockSample] = clock();
+        nextClockSample = (nextClockSample + 1) % CLOCK_SAMPLES;
+    }
+
     public Topology cluster()
     {
         return cluster;
     }
 
+    public Stream<Instance> local()
+    {
+        return Stream.of(instances);
+    }
+
     public Stream<Instance> local(Keys keys)
     {
-        // TODO: efficiency
-        return Stream.of(local.select(keys, instances, Instance[]::new));
+        Stream.Builder<Instance> builder = Stream.builder();
+        router.forEach(keys, builder);
+        return builder.build();
     }
 
     public Optional<Instance> local(Key key)
     {
-        return local(Keys.of(key)).reduce((i1, i2) -> {
-            throw new IllegalStateException("more than one instance encountered for key");
-        });
+        return Optional.ofNullable(router.forKey(key));
+    }
+
+    /**
+     * Invoke {@code forEach} with each local Instance replicating any of the keys, in the calling thread, without
+     * allocating. Unlike forEachLocal, this must not access the state of the Instances.
+     */
+    public void local(Keys keys, Consumer<Instance> forEach)
+    {
+        router.forEach(keys, forEach);
+    }
+
+    /**
+     * The number of local Instances replicating any of the keys
+     */
+    public int localCount(Keys keys)
+    {
+        return router.count(keys);
+    }
+
+    /**
+     * Submit {@code forEach} to the executor of each local Instance replicating any of the keys
+     */
+    public void forEachLocal(Keys keys, Consumer<Instance> forEach)
+    {
+        router.forEach(keys, instance -> instance.execute(() -> forEach.accept(instance)));
+    }
+
+    /**
+     * Submit {@code map} to the executor of each local Instance replicating any of the keys, and merge their results
+     * with {@code reduce} as they complete, in whichever order they arrive. Completes with null if no Instance is local.
+     */
+    public <T> CompletionStage<T> mapReduceLocal(Keys keys, Function<Instance, T> map, BinaryOperator<T> reduce)
+    {
+        MapReduce<T> result = new MapReduce<>(router.count(keys), reduce);
+        router.forEach(keys, instance -> instance.execute(() -> result.add(map.apply(instance))));
+        return result;
+    }
+
+    private static class MapReduce<T> extends CompletableFuture<T>
+    {
+        final BinaryOperator<T> reduce;
+        int waitingOn;
+        T accumulate;
+
+        MapReduce(int waitingOn, BinaryOperator<T> reduce)
+        {
+            this.reduce = reduce;
+            this.waitingOn = waitingOn;
+            if (waitingOn == 0)
+                complete(null);
+        }
+
+        void add(T next)
+        {
+            T result;
+            synchronized (this)
+            {
+                accumulate = accumulate == null ? next : reduce.apply(accumulate, next);
+                if (--waitingOn > 0)
+                    return;
+                result = accumulate;
+            }
+            // complete outside of the lock, as this invokes any dependent actions
+            complete(result);
+        }
     }
 
     // send to every node besides ourselves
@@ -204,26 +447,48 @@ public class Node
 
     public void reply(Id replyingToNode, long replyingToMessage, Reply send)
     {
-        messageSink.reply(replyingToNode, replyingToMessage, send);
+        // we may not report any state transition until it is durable
+        journal.afterDurable(() -> messageSink.reply(replyingToNode, replyingToMessage, send));
     }
 
     public CompletionStage<Result> coordinate(Txn txn)
     {
+        if (!txn.isWrite())
+        {
+            CompletableFuture<Result> result = new CompletableFuture<>();
+            coordinateReadOnly(txn, result);
+            return result;
+        }
+
         TxnId txnId = new TxnId(uniqueNow());
+        unresolved.put(txnId, txn);
         CompletionStage<Result> result = Coordinate.execute(this, txnId, txn);
         coordinating.put(txnId, result);
-        result.handle((success, fail) ->
-                      {
-                          coordinating.remove(txnId);
-                          // if we don't succeed, try again in 30s to make sure somebody finishes it
-                          // TODO: this is an ugly liveness mechanism
-                          if (fail != null && pendingRecovery.add(txnId))
-                              scheduler.once(() -> { pendingRecovery.remove(txnId); recover(txnId, txn); } , 30L, TimeUnit.SECONDS);
-                          return null;
-                      });
+        result.handle((success, fail) -> {
+            coordinating.remove(txnId);
+            // if we don't succeed, keep trying until somebody finishes it, as it may not be known to any replica's ProgressLog
+            if (fail == null) unresolved.remove(txnId);
+            else recoverLater(txnId, txn, 0);
+            return null;
+        });
         return result;
     }
 
+    // replicas apply a read-only transaction without an Apply, after which its outcome cannot be recovered by reading it
+    // again; but it has no effects, so if we fail to execute it we may simply try again with a new TxnId
+    private void coordinateReadOnly(Txn txn, CompletableFuture<Result> result)
+    {
+        TxnId txnId = new TxnId(uniqueNow());
+        CompletionStage<Result> attempt = Coordinate.execute(this, txnId, txn);
+        coordinating.put(txnId, attempt);
+        attempt.handle((success, fail) -> {
+            coordinating.remove(txnId);
+            if (fail == null) result.complete(success);
+            else scheduler.once(() -> coordinateReadOnly(txn, result), 1L, TimeUnit.SECONDS);
+            return null;
+        });
+    }
+
     // TODO: encapsulate in Coordinate, so we can request that e.g. commits be re-sent?
     public CompletionStage<Result> recover(TxnId txnId, Txn txn)
     {
@@ -236,15 +501,47 @@ public class Node
         result.handle((success, fail) -> {
             coordinating.remove(txnId);
             agent.onRecover(this, success, fail);
-            // if we don't succeed, try again in 30s to make sure somebody finishes it
-            // TODO: this is an ugly liveness mechanism
-            if (fail != null && pendingRecovery.add(txnId))
-                scheduler.once(() -> { pendingRecovery.remove(txnId); recover(txnId, txn); } , 30L, TimeUnit.SECONDS);
             return null;
         });
         return result;
     }
 
+    private void recoverLater(TxnId txnId, Txn txn, int attempts)
+    {
+        scheduler.once(() -> {
+            // we may have learned its outcome from an Apply in the meantime
+            if (!unresolved.containsKey(txnId))
+                return;
+
+            recover(txnId, txn).handle((success, fail) -> {
+                if (fail == null) unresolved.remove(txnId);
+                else recoverLater(txnId, txn, attempts + 1);
+                return null;
+            });
+        }, ProgressLog.delay(attempts, random), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * A transaction we coordinated has been persisted, so that whoever executed it has reported its outcome; unless it
+     * was invalidated, in which case it will never execute, and we must coordinate it again with a new TxnId and report
+     * that outcome instead. Once we have acknowledged this, replicas may retire it, so we must stop trying to recover it.
+     */
+    public void onApply(TxnId txnId, Txn txn)
+    {
+        Txn coordinated = unresolved.remove(txnId);
+        if (coordinated != null && txn.isInvalidated())
+            coordinate(coordinated).thenAccept(success -> agent.onRecover(this, success, null));
+    }
+
+    /**
+     * Fetch the definition of a transaction we know only by its TxnId and keys, and witness it locally
+     */
+    public void fetch(TxnId txnId, Keys keys)
+    {
+        if (fetchAfterReplay != null) fetchAfterReplay.put(txnId, keys);
+        else if (fetching.add(txnId)) Coordinate.fetch(this, txnId, keys).whenComplete((success, fail) -> fetching.remove(txnId));
+    }
+
     public void receive(Request request, Id from, long messageId)
     {
         scheduler.now(() -> request.process(this, from, messageId));
@@ -260,6 +557,26 @@ public class Node
         return random;
     }
 
+    public Proximity proximity()
+    {
+        return proximity;
+    }
+
+    public HedgedReads hedgedReads()
+    {
+        return hedgedReads;
+    }
+
+    public FastPathWait fastPathWait()
+    {
+        return fastPathWait;
+    }
+
+    public Journal journal()
+    {
+        return journal;
+    }
+
     public Agent agent()
     {
         return agent;
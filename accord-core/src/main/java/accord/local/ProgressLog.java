@@ -0,0 +1,160 @@
+package accord.local;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import accord.api.Scheduler.Scheduled;
+import accord.topology.Shard;
+import accord.txn.TxnId;
+
+/**
+ * Tracks the commands of an Instance from when they are witnessed until they are applied, and ensures that they make
+ * progress if whoever should complete them, or their dependencies, has failed.
+ *
+ * A command that has not been applied when its deadline passes has its progress log attempt to complete exactly the
+ * transaction that blocks it: if it is committed, whichever dependency ultimately blocks it, as found by
+ * {@link Command#blockedBy()}; otherwise, or if no dependency blocks it, its own transaction, which may have lost its
+ * coordinator. If the same transaction still blocks it at its next deadline the delay doubles, up to MAX_DELAY_MILLIS;
+ * once it is blocked by another, some progress has been made and the delay resets.
+ *
+ * Every replica blocked by the same transaction would otherwise compete to recover it, so only its home replica, the
+ * first replica of the shard owning its first key, recovers it from the initial delay, which exceeds the timeout after
+ * which a live coordinator abandons a round; the others wait as if they had already made NON_HOME_ATTEMPTS, and so
+ * recover it only if the home replica has failed to. Each delay is also jittered.
+ *
+ * A read-only transaction has no effects, so a replica applies it once committed without waiting to be told, and it
+ * is rarely worth recovering; but if its coordinator fails before committing it, and no later transaction comes to
+ * depend on it, nothing else would, and we would retain it forever. So we track it too, but wait as if we had already
+ * made READ_ONLY_ATTEMPTS.
+ *
+ * All access must be made from the executor of the Instance.
+ */
+public class ProgressLog
+{
+    static final long INITIAL_DELAY_MILLIS = 2000;
+    static final long MAX_DELAY_MILLIS = 30000;
+    static final int NON_HOME_ATTEMPTS = 2;
+    static final int READ_ONLY_ATTEMPTS = 1;
+
+    /**
+     * The delay before our next attempt to make progress, having made {@code attempts} already
+     */
+    public static long delay(int attempts, Random random)
+    {
+        long delay = Math.min(MAX_DELAY_MILLIS, INITIAL_DELAY_MILLIS << Math.min(attempts, 16));
+        return delay + (long) (random.nextDouble() * delay / 2);
+    }
+
+    class Entry implements Runnable
+    {
+        final Command command;
+        TxnId blockedBy;
+        // the attempts we wait as if we had already made, before we first try to progress blockedBy ourselves
+        int skipAttempts;
+        int attempts;
+        Scheduled scheduled;
+
+        Entry(Command command)
+        {
+            this.command = command;
+            this.blockedBy = command.txnId();
+            this.skipAttempts = skipAttempts(command);
+        }
+
+        void schedule()
+        {
+            long delay = delay(attempts + skipAttempts, instance.node().random());
+            scheduled = instance.node().scheduler().once(this, delay, TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public void run()
+        {
+            instance.execute(this::check);
+        }
+
+        private void check()
+        {
+            if (entries.get(command.txnId()) != this)
+                return;
+
+            Command blocker = command.hasBeen(Status.Committed) ? command.blockedBy() : null;
+            // finding the blocker may itself progress the command, so that we no longer track it
+            if (entries.get(command.txnId()) != this)
+                return;
+            if (blocker == null)
+                blocker = command;
+
+            if (!blockedBy.equals(blocker.txnId()))
+            {
+                blockedBy = blocker.txnId();
+                attempts = 0;
+                // we have yet to give the home replica of the new blocker its chance to recover it
+                skipAttempts = skipAttempts(blocker);
+                if (skipAttempts > 0)
+                {
+                    schedule();
+                    return;
+                }
+            }
+            else
+            {
+                ++attempts;
+            }
+
+            // until we have witnessed the blocking transaction we are still fetching its definition, and cannot recover it
+            if (!blocker.is(Status.NotWitnessed))
+                instance.node().recover(blocker.txnId(), blocker.txn());
+            schedule();
+        }
+    }
+
+    private final Instance instance;
+    private final Map<TxnId, Entry> entries = new HashMap<>();
+
+    /**
+     * The attempts to progress the command that we leave to others, or do not think worth making: those of its home
+     * replica if we are not it, or cannot yet tell as we have not witnessed it; and the first if it is read-only
+     */
+    private int skipAttempts(Command command)
+    {
+        if (command.is(Status.NotWitnessed))
+            return NON_HOME_ATTEMPTS;
+
+        Shard home = instance.node().cluster().forKey(command.txn().keys().get(0));
+        int skip = home.nodes.get(0).equals(instance.node().id()) ? 0 : NON_HOME_ATTEMPTS;
+        return command.txn().isWrite() ? skip : skip + READ_ONLY_ATTEMPTS;
+    }
+
+    ProgressLog(Instance instance)
+    {
+        this.instance = instance;
+    }
+
+    void witnessed(Command command)
+    {
+        if (entries.containsKey(command.txnId()))
+            return;
+
+        Entry entry = new Entry(command);
+        entries.put(command.txnId(), entry);
+        entry.schedule();
+    }
+
+    void applied(Command command)
+    {
+        Entry entry = entries.remove(command.txnId());
+        if (entry != null)
+            entry.scheduled.cancel();
+    }
+
+    /**
+     * The number of commands we are tracking
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+}
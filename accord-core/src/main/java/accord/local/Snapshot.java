@@ -0,0 +1,227 @@
+package accord.local;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+import accord.api.Key;
+import accord.api.Result;
+import accord.txn.Ballot;
+import accord.txn.Dependencies;
+import accord.txn.Timestamp;
+import accord.txn.TimestampArray;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import accord.txn.TxnSerializer;
+import accord.txn.Writes;
+
+/**
+ * The binary form of an Instance's state: every command we retain, the tombstones of those we have retired and the
+ * bounds below which we keep none, and the max timestamp witnessed for each key.
+ *
+ * A snapshot is captured incrementally by a sequence of tasks on the Instance's executor, each of which serializes
+ * a bounded number of commands, so that we never pause the Instance for long. It is therefore not a consistent
+ * point-in-time image, but every command reflects at least every transition journaled before we started, so that
+ * replaying the Journal from that position restores a consistent state. Tombstones, their bounds and key maxima
+ * only grow, so we capture them last.
+ */
+class Snapshot
+{
+    static final int CHUNK_SIZE = 64;
+
+    static class Capture implements Runnable
+    {
+        final Instance instance;
+        final TxnSerializer serializer;
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        TxnId last;
+
+        Capture(Instance instance, TxnSerializer serializer)
+        {
+            this.instance = instance;
+            this.serializer = serializer;
+        }
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                int count = 0;
+                Iterable<Command> commands = (last == null ? instance.commands() : instance.commands().tailMap(last, false)).values();
+                for (Command command : commands)
+                {
+                    if (count++ == CHUNK_SIZE)
+                    {
+                        // yield to other work before continuing; any new commands are also journaled
+                        instance.execute(this);
+                        return;
+                    }
+                    out.writeBoolean(true);
+                    serialize(command);
+                    last = command.txnId();
+                }
+                out.writeBoolean(false);
+
+                serializer.serialize(instance.durableBefore(), out);
+                serializer.serialize(instance.refuseBefore(), out);
+                TimestampArray retiredTxnIds = instance.retiredTxnIds(), retiredExecuteAts = instance.retiredExecuteAts();
+                out.writeInt(retiredTxnIds.size());
+                for (int i = 0 ; i < retiredTxnIds.size() ; ++i)
+                {
+                    serializer.serialize(retiredTxnIds.get(i), out);
+                    serializer.serialize(retiredExecuteAts.get(i), out);
+                }
+
+                out.writeInt(instance.commandsForKey().size());
+                for (Map.Entry<Key, CommandsForKey> e : instance.commandsForKey().entrySet())
+                {
+                    serializer.serialize(e.getKey(), out);
+                    serializer.serialize(e.getValue().max(), out);
+                }
+                result.complete(bytes.toByteArray());
+            }
+            catch (Throwable t)
+            {
+                result.completeExceptionally(t);
+            }
+        }
+
+        private void serialize(Command command) throws IOException
+        {
+            serializer.serialize(command.txnId(), out);
+            out.writeByte(command.status().ordinal());
+            serializer.serialize(command.promised(), out);
+            serializer.serialize(command.accepted(), out);
+            if (!command.hasBeen(Status.PreAccepted))
+                return;
+
+            serializer.serialize(command.txn(), out);
+            serializer.serialize(command.executeAt(), out);
+            serializer.serialize(command.savedDeps(), out);
+            if (command.hasBeen(Status.Executed))
+            {
+                serializer.serialize(command.writes(), out);
+                serializer.serialize(command.result(), out);
+            }
+        }
+    }
+
+    /**
+     * Serialize the state of {@code instance}, on its executor
+     */
+    static CompletableFuture<byte[]> capture(Instance instance, TxnSerializer serializer)
+    {
+        Capture capture = new Capture(instance, serializer);
+        instance.execute(capture);
+        return capture.result;
+    }
+
+    static class Restoring
+    {
+        final TxnId txnId;
+        final Status status;
+        final Ballot promised, accepted;
+        Txn txn;
+        Timestamp executeAt;
+        Dependencies deps;
+        Writes writes;
+        Result result;
+
+        Restoring(TxnId txnId, Status status, Ballot promised, Ballot accepted)
+        {
+            this.txnId = txnId;
+            this.status = status;
+            this.promised = promised;
+            this.accepted = accepted;
+        }
+
+        boolean hasBeen(Status status)
+        {
+            return this.status.compareTo(status) >= 0;
+        }
+    }
+
+    /**
+     * Restore the state of a newly constructed {@code instance}. We drive each command through the transitions that
+     * lead to its captured state, so that our indexes and the relationships between commands are rebuilt; as when
+     * replaying the Journal, this applies again the writes of every command we had Executed or Applied.
+     */
+    static void restore(Instance instance, TxnSerializer serializer, DataInput in)
+    {
+        try
+        {
+            List<Restoring> restoring = new ArrayList<>();
+            while (in.readBoolean())
+            {
+                Restoring command = new Restoring(serializer.deserializeTxnId(in), Status.values()[in.readByte()],
+                                                  serializer.deserializeBallot(in), serializer.deserializeBallot(in));
+                if (command.hasBeen(Status.PreAccepted))
+                {
+                    command.txn = serializer.deserializeTxn(in);
+                    command.executeAt = serializer.deserializeTimestamp(in);
+                    command.deps = serializer.deserializeDependencies(in);
+                    if (command.hasBeen(Status.Executed))
+                    {
+                        command.writes = serializer.deserializeWrites(in);
+                        command.result = serializer.deserializeResult(in);
+                    }
+                    restoring.add(command);
+                }
+            }
+
+            instance.restoreBounds(serializer.deserializeTimestamp(in), serializer.deserializeTimestamp(in));
+            int retired = in.readInt();
+            for (int i = 0 ; i < retired ; ++i)
+                instance.restoreRetired(serializer.deserializeTxnId(in), serializer.deserializeTimestamp(in));
+
+            // a command may have been retired after we captured it
+            restoring.removeIf(command -> instance.isRetired(command.txnId));
+            for (Restoring command : restoring)
+            {
+                instance.node().uniqueNow(command.executeAt);
+                instance.command(command.txnId).witness(command.txn, command.executeAt);
+            }
+
+            for (Restoring command : restoring)
+            {
+                if (command.status == Status.Accepted)
+                    instance.command(command.txnId).accept(command.accepted, command.txn, command.executeAt, command.deps);
+                if (command.promised.compareTo(command.accepted) > 0)
+                    instance.command(command.txnId).recover(command.txn, command.promised);
+            }
+
+            restoring.removeIf(command -> !command.hasBeen(Status.Committed));
+            restoring.sort(Comparator.comparing(command -> command.executeAt));
+            for (Restoring restore : restoring)
+            {
+                Command command = instance.command(restore.txnId);
+                command.commit(restore.txn, restore.deps, restore.executeAt);
+                if (restore.hasBeen(Status.Executed))
+                    command.apply(restore.txn, restore.deps, restore.executeAt, restore.writes, restore.result);
+            }
+
+            int keys = in.readInt();
+            for (int i = 0 ; i < keys ; ++i)
+            {
+                Key key = serializer.deserializeKey(in);
+                Timestamp max = serializer.deserializeTimestamp(in);
+                instance.node().uniqueNow(max);
+                instance.commandsForKey(key).restoreMax(max);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
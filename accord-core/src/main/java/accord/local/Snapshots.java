@@ -0,0 +1,202 @@
+package accord.local;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import accord.txn.TxnSerializer;
+
+/**
+ * Periodically writes a snapshot of every Instance of a Node, from which the Node is restored on startup before
+ * replaying only those records of its Journal appended after the snapshot began; the Journal may discard the rest.
+ *
+ * A snapshot contains only protocol state. We apply again the writes of the commands it retains, as we do when
+ * replaying the Journal, but not those of commands we retired before it, whose records the Journal may then discard;
+ * so snapshots may only be enabled for a Store that is itself durable (see {@link accord.api.Store#isDurable}).
+ *
+ * Each snapshot is named for the Journal position at which it began, and is written to a temporary file
+ * that is renamed once durable, so that the latest snapshot is always complete.
+ */
+public class Snapshots
+{
+    public static final Snapshots NONE = new Snapshots(null, null, 0);
+
+    private static final String PREFIX = "snapshot-", SUFFIX = ".bin";
+
+    final File directory;
+    final TxnSerializer serializer;
+    final long intervalMillis;
+    private ExecutorService writer;
+    private boolean snapshotting;
+
+    /**
+     * @param intervalMillis how often to snapshot, or zero to snapshot only when requested
+     */
+    public Snapshots(File directory, TxnSerializer serializer, long intervalMillis)
+    {
+        this.directory = directory;
+        this.serializer = serializer;
+        this.intervalMillis = intervalMillis;
+        if (directory != null && !directory.isDirectory() && !directory.mkdirs())
+            throw new IllegalArgumentException("Could not create " + directory);
+    }
+
+    public boolean isEnabled()
+    {
+        return directory != null;
+    }
+
+    /**
+     * Restore each Instance from the latest snapshot, if any
+     *
+     * @return the Journal position from which to replay
+     */
+    long restore(Instance[] instances)
+    {
+        File latest = isEnabled() ? latest() : null;
+        if (latest == null)
+            return 0;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(latest))))
+        {
+            long position = in.readLong();
+            int count = in.readInt();
+            if (count != instances.length)
+                throw new IllegalStateException("Snapshot " + latest + " has " + count + " instances, but we have " + instances.length);
+
+            for (Instance instance : instances)
+            {
+                in.readInt(); // the length of this instance's snapshot
+                Snapshot.restore(instance, serializer, in);
+            }
+            return position;
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void start(Node node)
+    {
+        if (isEnabled() && intervalMillis > 0)
+            node.scheduler().recurring(() -> snapshot(node), intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Snapshot every Instance of {@code node}, unless a snapshot is already in progress
+     */
+    public CompletableFuture<Void> snapshot(Node node)
+    {
+        synchronized (this)
+        {
+            if (!isEnabled() || snapshotting)
+                return CompletableFuture.completedFuture(null);
+            snapshotting = true;
+            if (writer == null)
+            {
+                writer = Executors.newSingleThreadExecutor(runnable -> {
+                    Thread thread = new Thread(runnable, "snapshot-writer");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+            }
+        }
+
+        Journal journal = node.journal();
+        long position = journal.position();
+        List<CompletableFuture<byte[]>> captures = node.local()
+                                                       .map(instance -> Snapshot.capture(instance, serializer))
+                                                       .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(captures.toArray(CompletableFuture[]::new))
+                                .thenRunAsync(() -> {
+                                    write(position, captures);
+                                    journal.truncate(position);
+                                }, writer)
+                                .whenComplete((success, fail) -> {
+                                    synchronized (this) { snapshotting = false; }
+                                });
+    }
+
+    private void write(long position, List<CompletableFuture<byte[]>> captures)
+    {
+        File tmp = new File(directory, PREFIX + position + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(tmp))
+        {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file));
+            out.writeLong(position);
+            out.writeInt(captures.size());
+            for (CompletableFuture<byte[]> capture : captures)
+            {
+                byte[] bytes = capture.join();
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+            out.flush();
+            file.getFD().sync();
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+
+        try
+        {
+            File snapshot = new File(directory, PREFIX + position + SUFFIX);
+            Files.move(tmp.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            // the rename is durable only once the directory is, and until then we need our older snapshot and journal
+            try (FileChannel dir = FileChannel.open(directory.toPath(), StandardOpenOption.READ))
+            {
+                dir.force(true);
+            }
+            for (File older : snapshots())
+            {
+                if (!older.equals(snapshot))
+                    Files.delete(older.toPath());
+            }
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private File latest()
+    {
+        File[] snapshots = snapshots();
+        return snapshots.length == 0 ? null : snapshots[snapshots.length - 1];
+    }
+
+    private File[] snapshots()
+    {
+        File[] files = directory.listFiles((dir, name) -> name.startsWith(PREFIX) && name.endsWith(SUFFIX));
+        if (files == null)
+            return new File[0];
+        Arrays.sort(files, (a, b) -> Long.compare(position(a), position(b)));
+        return files;
+    }
+
+    private static long position(File file)
+    {
+        String name = file.getName();
+        return Long.parseLong(name.substring(PREFIX.length(), name.length() - SUFFIX.length()));
+    }
+}
@@ -2,7 +2,20 @@ package accord.local;
 
 public enum Status
 {
-    NotWitnessed, PreAccepted, Accepted, Committed, ReadyToExecute, Executed, Applied;
+    NotWitnessed, PreAccepted, Accepted, Committed,
+
+    /**
+     * Every dependency that executes before us and may write has been Applied, so we may read, and may do so
+     * in parallel with other reads; we may not yet write, as earlier transactions may still be reading
+     */
+    ReadyToRead,
+
+    /**
+     * Every dependency that executes before us has been Applied (and so has performed its reads)
+     */
+    ReadyToWrite,
+
+    Executed, Applied;
 
     public static Status max(Status a, Status b)
     {
@@ -0,0 +1,149 @@
+package accord.local;
+
+import accord.txn.Timestamp;
+
+/**
+ * The dependencies a committed Command is waiting on, addressed by their index in its Dependencies: a bit for each
+ * that has yet to commit, and for each predecessor (i.e. each that executes before it) that has yet to be applied,
+ * with a count of each, so that each notification and each test of readiness is constant time.
+ *
+ * We also track the awaited predecessor with the lowest executeAt, for {@link Command#blockedBy()}, but only while
+ * it is cheap to do so: once it has been applied the cursor is invalidated, and the Command must find its successor.
+ */
+class WaitingOn
+{
+    // the words for dependencies awaiting commit, followed by the same number for predecessors awaiting apply,
+    // and for those of the latter that write, as a retired predecessor no longer knows if it did
+    private final long[] bits;
+    private final int words;
+    private int commitCount, applyCount, applyWrites;
+    private int minApply = -1;
+    private Timestamp minApplyAt;
+
+    WaitingOn(int size)
+    {
+        this.words = (size + 63) >>> 6;
+        this.bits = new long[words * 3];
+    }
+
+    void setCommit(int i)
+    {
+        if (set(i))
+            ++commitCount;
+    }
+
+    void clearCommit(int i)
+    {
+        if (clear(i))
+            --commitCount;
+    }
+
+    void setApply(int i, Timestamp executeAt, boolean isWrite)
+    {
+        if (!set(words * 64 + i))
+            return;
+
+        if (++applyCount == 1 || (minApply >= 0 && executeAt.compareTo(minApplyAt) < 0))
+            setMinApply(i, executeAt);
+        if (isWrite && set(words * 128 + i))
+            ++applyWrites;
+    }
+
+    void clearApply(int i)
+    {
+        if (!clear(words * 64 + i))
+            return;
+
+        --applyCount;
+        if (clear(words * 128 + i))
+            --applyWrites;
+        if (i == minApply)
+            minApply = -1;
+    }
+
+    void setMinApply(int i, Timestamp executeAt)
+    {
+        minApply = i;
+        minApplyAt = executeAt;
+    }
+
+    /**
+     * @return the index of the awaited predecessor with the lowest executeAt, or -1 if it must be found
+     */
+    int minApply()
+    {
+        return minApply;
+    }
+
+    boolean isWaitingOnCommit()
+    {
+        return commitCount > 0;
+    }
+
+    boolean isWaitingOnApply()
+    {
+        return applyCount > 0;
+    }
+
+    boolean isWaitingOnApplyOfWrite()
+    {
+        return applyWrites > 0;
+    }
+
+    boolean isEmpty()
+    {
+        return commitCount == 0 && applyCount == 0;
+    }
+
+    /**
+     * @return the lowest index of a dependency awaiting commit, or -1 if none
+     */
+    int nextCommit()
+    {
+        return next(0, 0);
+    }
+
+    /**
+     * @return the lowest index no less than {@code from} of a predecessor awaiting apply, or -1 if none
+     */
+    int nextApply(int from)
+    {
+        int i = next(words, from);
+        return i < 0 ? -1 : i - words * 64;
+    }
+
+    private int next(int fromWord, int from)
+    {
+        int word = fromWord + (from >>> 6);
+        int endWord = fromWord + words;
+        if (word >= endWord)
+            return -1;
+
+        long bit = bits[word] & (-1L << from);
+        while (bit == 0)
+        {
+            if (++word == endWord)
+                return -1;
+            bit = bits[word];
+        }
+        return word * 64 + Long.numberOfTrailingZeros(bit);
+    }
+
+    private boolean set(int i)
+    {
+        long bit = 1L << i;
+        if ((bits[i >>> 6] & bit) != 0)
+            return false;
+        bits[i >>> 6] |= bit;
+        return true;
+    }
+
+    private boolean clear(int i)
+    {
+        long bit = 1L << i;
+        if ((bits[i >>> 6] & bit) == 0)
+            return false;
+        bits[i >>> 6] &= ~bit;
+        return true;
+    }
+}
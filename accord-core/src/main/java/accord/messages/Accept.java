@@ -31,21 +31,23 @@ public class Accept implements Request
 
     public void process(Node on, Node.Id replyToNode, long replyToMessage)
     {
-        on.reply(replyToNode, replyToMessage, txn.local(on).map(instance -> {
+        on.mapReduceLocal(txn.keys(), instance -> {
+            if (instance.refuses(txnId))
+                return new Refused(txn.keys().slice(instance.shard.range), instance.refuseBefore());
+
             Command command = instance.command(txnId);
             if (!command.accept(ballot, txn, executeAt, deps))
                 return new AcceptNack(command.promised());
             return new AcceptOk(calculateDeps(instance, txnId, txn, executeAt));
-        }).reduce((r1, r2) -> {
+        }, (AcceptReply r1, AcceptReply r2) -> {
+            if (r1 instanceof Refused || r2 instanceof Refused) return Refused.merge(r1, r2);
             if (!r1.isOK()) return r1;
             if (!r2.isOK()) return r2;
             AcceptOk ok1 = (AcceptOk) r1;
             AcceptOk ok2 = (AcceptOk) r2;
-            if (ok1.deps.isEmpty()) return ok2;
-            if (ok2.deps.isEmpty()) return ok1;
-            ok1.deps.addAll(ok2.deps);
-            return ok1;
-        }).orElseThrow());
+            Dependencies deps = ok1.deps.with(ok2.deps);
+            return deps == ok1.deps ? ok1 : deps == ok2.deps ? ok2 : new AcceptOk(deps);
+        }).thenAccept(reply -> on.reply(replyToNode, replyToMessage, reply));
     }
 
     public interface AcceptReply extends Reply
@@ -1,5 +1,8 @@
 package accord.messages;
 
+import accord.local.Command;
+import accord.local.Instance;
+import accord.local.Listener;
 import accord.local.Node;
 import accord.local.Node.Id;
 import accord.messages.Request;
@@ -10,8 +13,61 @@ import accord.txn.Writes;
 import accord.txn.Txn;
 import accord.txn.TxnId;
 
+import static accord.local.Status.Applied;
+
 public class Apply implements Request
 {
+    static class LocalApply implements Listener
+    {
+        final Node node;
+        final Id replyToNode;
+        final long replyToMessage;
+
+        int waitingOn;
+        // the least bound below which each local Instance retains no command
+        Timestamp retainedBefore = Timestamp.MAX;
+
+        LocalApply(Node node, Id replyToNode, long replyToMessage)
+        {
+            this.node = node;
+            this.replyToNode = replyToNode;
+            this.replyToMessage = replyToMessage;
+        }
+
+        @Override
+        public synchronized void onChange(Command command)
+        {
+            if (!command.hasBeen(Applied))
+                return;
+
+            command.removeListener(this);
+            ack();
+        }
+
+        private void ack()
+        {
+            if (--waitingOn == 0)
+                node.reply(replyToNode, replyToMessage, new ApplyOk(retainedBefore));
+        }
+
+        void setup(Apply apply)
+        {
+            waitingOn = node.localCount(apply.txn.keys());
+            // we may be only the transaction's original coordinator
+            if (waitingOn == 0) node.reply(replyToNode, replyToMessage, new ApplyOk(retainedBefore));
+            else node.forEachLocal(apply.txn.keys(), instance -> setup(apply, instance));
+        }
+
+        private synchronized void setup(Apply apply, Instance instance)
+        {
+            Command command = instance.command(apply.txnId);
+            command.apply(apply.txn, apply.deps, apply.executeAt, apply.writes, apply.result);
+            retainedBefore = Timestamp.min(retainedBefore, instance.retainedBefore());
+            if (command.hasBeen(Applied)) ack();
+            else command.addListener(this);
+        }
+    }
+
     final TxnId txnId;
     final Txn txn;
     // TODO: these only need to be sent if we don't know if this node has witnessed a Commit
@@ -32,7 +88,29 @@ public class Apply implements Request
 
     public void process(Node node, Id replyToNode, long replyToMessage)
     {
-        txn.local(node).forEach(instance -> instance.command(txnId).apply(txn, deps, executeAt, writes, result));
+        if (txnId.node.equals(node.id()))
+            node.onApply(txnId, txn);
+        new LocalApply(node, replyToNode, replyToMessage).setup(this);
+    }
+
+    /**
+     * Sent once the transaction has been Applied by every local shard
+     */
+    public static class ApplyOk implements Reply
+    {
+        // no local shard retains any command below this; see Instance.retainedBefore
+        public final Timestamp retainedBefore;
+
+        public ApplyOk(Timestamp retainedBefore)
+        {
+            this.retainedBefore = retainedBefore;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "ApplyOk{" + retainedBefore + '}';
+        }
     }
 
     @Override
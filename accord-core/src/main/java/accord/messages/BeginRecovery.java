@@ -36,7 +36,10 @@ public class BeginRecovery implements Request
 
     public void process(Node node, Id replyToNode, long replyToMessage)
     {
-        RecoverReply reply = txn.local(node).map(instance -> {
+        node.mapReduceLocal(txn.keys(), instance -> {
+            if (instance.refuses(txnId))
+                return new Refused(txn.keys().slice(instance.shard.range), instance.refuseBefore());
+
             Command command = instance.command(txnId);
 
             if (!command.recover(txn, ballot))
@@ -51,28 +54,32 @@ public class BeginRecovery implements Request
             if (command.hasBeen(Committed))
             {
                 rejectsFastPath = false;
-                earlierCommittedWitness = earlierAcceptedNoWitness = new Dependencies();
+                earlierCommittedWitness = earlierAcceptedNoWitness = Dependencies.NONE;
             }
             else
             {
-                rejectsFastPath = txn.uncommittedStartedAfter(instance, txnId)
-                                             .filter(c -> c.hasBeen(Accepted))
-                                             .anyMatch(c -> !c.savedDeps().contains(txnId));
+                // a later transaction need only have witnessed us if one of us writes, as reads do not depend on reads
+                rejectsFastPath = txn.anyUncommittedStartedAfter(instance, txnId, c -> (txn.isWrite() || c.txn().isWrite()) && c.hasBeen(Accepted) && !c.savedDeps().contains(txnId));
                 if (!rejectsFastPath)
-                    rejectsFastPath = txn.committedExecutesAfter(instance, txnId)
-                                         .anyMatch(c -> !c.savedDeps().contains(txnId));
-
-                earlierCommittedWitness = txn.committedStartedBefore(instance, txnId)
-                                             .filter(c -> c.savedDeps().contains(txnId))
-                                             .collect(Dependencies::new, Dependencies::add, Dependencies::addAll);
-
-                earlierAcceptedNoWitness = txn.uncommittedStartedBefore(instance, txnId)
-                                              .filter(c -> c.is(Accepted) && !c.savedDeps().contains(txnId))
-                                              .filter(c -> c.savedDeps().contains(txnId))
-                                              .collect(Dependencies::new, Dependencies::add, Dependencies::addAll);
+                    rejectsFastPath = txn.anyCommittedExecutesAfter(instance, txnId, c -> (txn.isWrite() || c.txn().isWrite()) && !c.savedDeps().contains(txnId));
+
+                Dependencies.Builder committedWitness = Dependencies.builder();
+                txn.committedStartedBefore(instance, txnId, c -> {
+                    if (c.savedDeps().contains(txnId))
+                        committedWitness.add(c);
+                });
+                earlierCommittedWitness = committedWitness.build();
+
+                Dependencies.Builder acceptedNoWitness = Dependencies.builder();
+                txn.uncommittedStartedBefore(instance, txnId, c -> {
+                    if (c.is(Accepted) && !c.savedDeps().contains(txnId) && c.savedDeps().contains(txnId))
+                        acceptedNoWitness.add(c);
+                });
+                earlierAcceptedNoWitness = acceptedNoWitness.build();
             }
             return new RecoverOk(command.status(), command.accepted(), command.executeAt(), deps, earlierCommittedWitness, earlierAcceptedNoWitness, rejectsFastPath, command.writes(), command.result());
-        }).reduce((r1, r2) -> {
+        }, (RecoverReply r1, RecoverReply r2) -> {
+            if (r1 instanceof Refused || r2 instanceof Refused) return Refused.merge(r1, r2);
             if (!r1.isOK()) return r1;
             if (!r2.isOK()) return r2;
             RecoverOk ok1 = (RecoverOk) r1;
@@ -97,7 +104,8 @@ public class BeginRecovery implements Request
                         return ok1.accepted.compareTo(ok2.accepted) >= 0 ? ok1 : ok2;
 
                 case Committed:
-                case ReadyToExecute:
+                case ReadyToRead:
+                case ReadyToWrite:
                 case Executed:
                 case Applied:
                     // we currently replicate all deps to every shard, so all Committed should have the same information
@@ -105,38 +113,28 @@ public class BeginRecovery implements Request
             }
 
             // ok1 and ok2 both PreAccepted
-            Dependencies deps;
-            if (ok1.deps.equals(ok2.deps))
-            {
-                deps = ok1.deps;
-            }
-            else
-            {
-                deps = new Dependencies();
-                deps.addAll(ok1.deps);
-                deps.addAll(ok2.deps);
-            }
-            ok1.earlierCommittedWitness.addAll(ok2.earlierCommittedWitness);
-            ok1.earlierAcceptedNoWitness.addAll(ok2.earlierAcceptedNoWitness);
-            ok1.earlierAcceptedNoWitness.removeAll(ok1.earlierCommittedWitness);
+            Dependencies deps = ok1.deps.with(ok2.deps);
+            Dependencies earlierCommittedWitness = ok1.earlierCommittedWitness.with(ok2.earlierCommittedWitness);
+            Dependencies earlierAcceptedNoWitness = ok1.earlierAcceptedNoWitness.with(ok2.earlierAcceptedNoWitness)
+                                                                             .without(earlierCommittedWitness);
             return new RecoverOk(
             ok1.status,
             Ballot.max(ok1.accepted, ok2.accepted),
             Timestamp.max(ok1.executeAt, ok2.executeAt),
             deps,
-            ok1.earlierCommittedWitness,
-            ok1.earlierAcceptedNoWitness,
+            earlierCommittedWitness,
+            earlierAcceptedNoWitness,
                 ok1.rejectsFastPath | ok2.rejectsFastPath,
             ok1.writes, ok1.result);
-        }).orElseThrow();
-
-        node.reply(replyToNode, replyToMessage, reply);
-        if (reply instanceof RecoverOk && ((RecoverOk) reply).status == Applied)
-        {
-            // disseminate directly
-            RecoverOk ok = (RecoverOk) reply;
-            node.send(node.cluster().forKeys(txn.keys), new Apply(txnId, txn, ok.executeAt, ok.deps, ok.writes, ok.result));
-        }
+        }).thenAccept(reply -> {
+            node.reply(replyToNode, replyToMessage, reply);
+            if (reply instanceof RecoverOk && ((RecoverOk) reply).status == Applied)
+            {
+                // disseminate directly
+                RecoverOk ok = (RecoverOk) reply;
+                node.send(node.cluster().forKeys(txn.keys), new Apply(txnId, txn, ok.executeAt, ok.deps, ok.writes, ok.result));
+            }
+        });
     }
 
     public interface RecoverReply extends Reply
@@ -195,7 +193,7 @@ public class BeginRecovery implements Request
     public static class RecoverNack implements RecoverReply
     {
         final Ballot supersededBy;
-        private RecoverNack(Ballot supersededBy)
+        RecoverNack(Ballot supersededBy)
         {
             this.supersededBy = supersededBy;
         }
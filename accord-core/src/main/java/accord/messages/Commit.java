@@ -1,5 +1,9 @@
 package accord.messages;
 
+import java.util.concurrent.TimeUnit;
+
+import accord.local.Command;
+import accord.local.Instance;
 import accord.local.Node;
 import accord.local.Node.Id;
 import accord.messages.Request;
@@ -14,28 +18,48 @@ public class Commit extends ReadData implements Request
     final Timestamp executeAt;
     final Dependencies deps;
     final boolean read;
+    // if we do not read, how long a read-only transaction must remain readable before we apply it, so that a
+    // coordinator may still hedge its read with us
+    final long readableForMillis;
 
     public Commit(TxnId txnId, Txn txn, Timestamp executeAt, Dependencies deps, boolean read)
+    {
+        this(txnId, txn, executeAt, deps, read, 0);
+    }
+
+    public Commit(TxnId txnId, Txn txn, Timestamp executeAt, Dependencies deps, boolean read, long readableForMillis)
     {
         super(txnId, txn);
         this.executeAt = executeAt;
         this.deps = deps;
         this.read = read;
+        this.readableForMillis = readableForMillis;
     }
 
     public void process(Node node, Id from, long messageId)
     {
-        txn.local(node).forEach(instance -> instance.command(txnId).commit(txn, deps, executeAt));
+        // register our read before committing, so that a read-only transaction is not applied before we perform it
         if (read) super.process(node, from, messageId);
+        else if (readableForMillis > 0 && !txn.isWrite()) node.forEachLocal(txn.keys(), instance -> remainReadable(node, instance));
+        node.forEachLocal(txn.keys(), instance -> instance.command(txnId).commit(txn, deps, executeAt));
+    }
+
+    // register a read that we release once the hedged read would have reached us, if it was sent at all
+    private void remainReadable(Node node, Instance instance)
+    {
+        Command command = instance.command(txnId);
+        command.registerRead();
+        node.scheduler().once(() -> instance.execute(command::readComplete), readableForMillis, TimeUnit.MILLISECONDS);
     }
 
     @Override
     public String toString()
     {
         return "Commit{" +
-               "executeAt: " + executeAt +
+               "txnId: " + txnId + ", executeAt: " + executeAt +
                ", deps: " + deps +
                ", read: " + read +
+               ", readableFor: " + readableForMillis +
                '}';
     }
 }
@@ -0,0 +1,85 @@
+package accord.messages;
+
+import accord.local.Node;
+import accord.local.Node.Id;
+import accord.txn.Keys;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+
+/**
+ * Request the definition of a transaction we know only by its TxnId and keys, for instance
+ * because it is a dependency of a transaction we are committing but have not yet witnessed
+ */
+public class FetchTxn implements Request
+{
+    final TxnId txnId;
+    final Keys keys;
+
+    public FetchTxn(TxnId txnId, Keys keys)
+    {
+        this.txnId = txnId;
+        this.keys = keys;
+    }
+
+    public void process(Node node, Id replyToNode, long replyToMessage)
+    {
+        node.mapReduceLocal(keys, instance -> instance.hasCommand(txnId) ? instance.command(txnId).txn() : null,
+                            (Txn txn1, Txn txn2) -> txn1 != null ? txn1 : txn2)
+            .thenAccept(txn -> node.reply(replyToNode, replyToMessage, txn == null ? FetchTxnNack.INSTANCE : new FetchTxnOk(txn)));
+    }
+
+    public interface FetchTxnReply extends Reply
+    {
+        boolean isOK();
+    }
+
+    public static class FetchTxnOk implements FetchTxnReply
+    {
+        public final Txn txn;
+
+        public FetchTxnOk(Txn txn)
+        {
+            this.txn = txn;
+        }
+
+        @Override
+        public boolean isOK()
+        {
+            return true;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "FetchTxnOk{" + txn + '}';
+        }
+    }
+
+    public static class FetchTxnNack implements FetchTxnReply
+    {
+        public static final FetchTxnNack INSTANCE = new FetchTxnNack();
+
+        private FetchTxnNack() {}
+
+        @Override
+        public boolean isOK()
+        {
+            return false;
+        }
+
+        @Override
+        public String toString()
+        {
+            return "FetchTxnNack{}";
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "FetchTxn{" +
+               "txnId:" + txnId +
+               ", keys:" + keys +
+               '}';
+    }
+}
@@ -0,0 +1,50 @@
+package accord.messages;
+
+import accord.local.Node;
+import accord.local.Node.Id;
+import accord.txn.Keys;
+import accord.txn.Timestamp;
+import accord.txn.TxnId;
+
+/**
+ * Inform replicas that a transaction has been Applied by every replica of every shard it touches,
+ * so that it may be retired once it can no longer be needed by other transactions, and that each of
+ * those replicas has reported retaining no command below durableBefore
+ */
+public class InformDurable implements Request
+{
+    public final TxnId txnId;
+    public final Keys keys;
+    public final Timestamp durableBefore;
+
+    public InformDurable(TxnId txnId, Keys keys, Timestamp durableBefore)
+    {
+        this.txnId = txnId;
+        this.keys = keys;
+        this.durableBefore = durableBefore;
+    }
+
+    public void process(Node node, Id replyToNode, long replyToMessage)
+    {
+        node.forEachLocal(keys, instance -> instance.onDurable(txnId, durableBefore));
+        node.reply(replyToNode, replyToMessage, new InformDurableOk());
+    }
+
+    public static class InformDurableOk implements Reply
+    {
+        @Override
+        public String toString()
+        {
+            return "InformDurableOk";
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return "InformDurable{" +
+               "txnId:" + txnId +
+               ", durableBefore:" + durableBefore +
+               '}';
+    }
+}
@@ -0,0 +1,318 @@
+package accord.messages;
+
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+import accord.local.Status;
+import accord.messages.Accept.AcceptNack;
+import accord.messages.Accept.AcceptOk;
+import accord.messages.Apply.ApplyOk;
+import accord.messages.BeginRecovery.RecoverNack;
+import accord.messages.BeginRecovery.RecoverOk;
+import accord.messages.FetchTxn.FetchTxnNack;
+import accord.messages.FetchTxn.FetchTxnOk;
+import accord.messages.InformDurable.InformDurableOk;
+import accord.messages.PreAccept.PreAcceptNack;
+import accord.messages.PreAccept.PreAcceptOk;
+import accord.messages.ReadData.ReadNack;
+import accord.messages.ReadData.ReadOk;
+import accord.messages.WaitOnCommit.WaitOnCommitOk;
+import accord.txn.TxnId;
+import accord.txn.TxnSerializer;
+import accord.utils.BufferPool;
+
+/**
+ * A compact binary encoding of every message of the protocol, for use by a transport
+ * that does not wish to define its own: each message is a single byte identifying its type, followed by
+ * its fields as encoded by a TxnSerializer.
+ */
+public class MessageSerializer
+{
+    enum Type
+    {
+        PreAccept, PreAcceptOk, PreAcceptNack,
+        Accept, AcceptOk, AcceptNack,
+        Commit, Apply, ApplyOk,
+        ReadData, ReadOk, ReadNack,
+        BeginRecovery, RecoverOk, RecoverNack,
+        Refused,
+        FetchTxn, FetchTxnOk, FetchTxnNack,
+        InformDurable, InformDurableOk,
+        WaitOnCommit, WaitOnCommitOk;
+
+        static final Type[] VALUES = values();
+    }
+
+    final TxnSerializer serializer;
+    final BufferPool pool;
+
+    public MessageSerializer(TxnSerializer serializer, BufferPool pool)
+    {
+        this.serializer = serializer;
+        this.pool = pool;
+    }
+
+    /**
+     * @return whether {@code message} may be serialized
+     */
+    public static boolean supports(Message message)
+    {
+        return type(message) != null;
+    }
+
+    private static Type type(Message message)
+    {
+        // Commit extends ReadData, so must be tested first
+        if (message instanceof Commit) return Type.Commit;
+        if (message instanceof ReadData) return Type.ReadData;
+        if (message instanceof PreAccept) return Type.PreAccept;
+        if (message instanceof PreAcceptOk) return Type.PreAcceptOk;
+        if (message instanceof PreAcceptNack) return Type.PreAcceptNack;
+        if (message instanceof Accept) return Type.Accept;
+        if (message instanceof AcceptOk) return Type.AcceptOk;
+        if (message instanceof AcceptNack) return Type.AcceptNack;
+        if (message instanceof Apply) return Type.Apply;
+        if (message instanceof ApplyOk) return Type.ApplyOk;
+        if (message instanceof ReadOk) return Type.ReadOk;
+        if (message instanceof ReadNack) return Type.ReadNack;
+        if (message instanceof BeginRecovery) return Type.BeginRecovery;
+        if (message instanceof RecoverOk) return Type.RecoverOk;
+        if (message instanceof RecoverNack) return Type.RecoverNack;
+        if (message instanceof Refused) return Type.Refused;
+        if (message instanceof FetchTxn) return Type.FetchTxn;
+        if (message instanceof FetchTxnOk) return Type.FetchTxnOk;
+        if (message instanceof FetchTxnNack) return Type.FetchTxnNack;
+        if (message instanceof InformDurable) return Type.InformDurable;
+        if (message instanceof InformDurableOk) return Type.InformDurableOk;
+        if (message instanceof WaitOnCommit) return Type.WaitOnCommit;
+        if (message instanceof WaitOnCommitOk) return Type.WaitOnCommitOk;
+        return null;
+    }
+
+    /**
+     * @return a buffer from our pool containing {@code message}, flipped for reading; release it to the pool once sent
+     */
+    public ByteBuffer serialize(Message message)
+    {
+        BufferPool.Output output = pool.new Output();
+        try
+        {
+            serialize(message, new DataOutputStream(output));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+        return output.flip();
+    }
+
+    public Message deserialize(ByteBuffer buffer)
+    {
+        try
+        {
+            return deserialize(new DataInputStream(new BufferPool.Input(buffer)));
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void serialize(Message message, DataOutput out) throws IOException
+    {
+        Type type = type(message);
+        if (type == null)
+            throw new IllegalArgumentException("Unsupported message " + message.getClass());
+
+        out.writeByte(type.ordinal());
+        switch (type)
+        {
+            default: throw new IllegalStateException();
+            case PreAccept:
+            {
+                PreAccept preAccept = (PreAccept) message;
+                serializer.serialize(preAccept.txnId, out);
+                serializer.serialize(preAccept.txn, out);
+                break;
+            }
+            case PreAcceptOk:
+            {
+                PreAcceptOk ok = (PreAcceptOk) message;
+                serializer.serialize(ok.witnessedAt, out);
+                serializer.serialize(ok.deps, out);
+                break;
+            }
+            case Accept:
+            {
+                Accept accept = (Accept) message;
+                serializer.serialize(accept.ballot, out);
+                serializer.serialize(accept.txnId, out);
+                serializer.serialize(accept.txn, out);
+                serializer.serialize(accept.executeAt, out);
+                serializer.serialize(accept.deps, out);
+                break;
+            }
+            case AcceptOk:
+                serializer.serialize(((AcceptOk) message).deps, out);
+                break;
+            case AcceptNack:
+                serializer.serialize(((AcceptNack) message).reject, out);
+                break;
+            case Commit:
+            {
+                Commit commit = (Commit) message;
+                serializer.serialize(commit.txnId, out);
+                serializer.serialize(commit.txn, out);
+                serializer.serialize(commit.executeAt, out);
+                serializer.serialize(commit.deps, out);
+                out.writeBoolean(commit.read);
+                out.writeLong(commit.readableForMillis);
+                break;
+            }
+            case Apply:
+            {
+                Apply apply = (Apply) message;
+                serializer.serialize(apply.txnId, out);
+                serializer.serialize(apply.txn, out);
+                serializer.serialize(apply.executeAt, out);
+                serializer.serialize(apply.deps, out);
+                serializer.serialize(apply.writes, out);
+                serializer.serialize(apply.result, out);
+                break;
+            }
+            case ReadData:
+            {
+                ReadData read = (ReadData) message;
+                serializer.serialize(read.txnId, out);
+                serializer.serialize(read.txn, out);
+                break;
+            }
+            case ReadOk:
+                serializer.serialize(((ReadOk) message).data, out);
+                break;
+            case BeginRecovery:
+            {
+                BeginRecovery recover = (BeginRecovery) message;
+                serializer.serialize(recover.txnId, out);
+                serializer.serialize(recover.txn, out);
+                serializer.serialize(recover.ballot, out);
+                break;
+            }
+            case RecoverOk:
+            {
+                RecoverOk ok = (RecoverOk) message;
+                out.writeByte(ok.status.ordinal());
+                serializer.serialize(ok.accepted, out);
+                serializer.serialize(ok.executeAt, out);
+                serializer.serialize(ok.deps, out);
+                serializer.serialize(ok.earlierCommittedWitness, out);
+                serializer.serialize(ok.earlierAcceptedNoWitness, out);
+                out.writeBoolean(ok.rejectsFastPath);
+                out.writeBoolean(ok.writes != null);
+                if (ok.writes != null)
+                    serializer.serialize(ok.writes, out);
+                serializer.serialize(ok.result, out);
+                break;
+            }
+            case RecoverNack:
+                serializer.serialize(((RecoverNack) message).supersededBy, out);
+                break;
+            case ApplyOk:
+                serializer.serialize(((ApplyOk) message).retainedBefore, out);
+                break;
+            case Refused:
+                serializer.serialize(((Refused) message).keys, out);
+                serializer.serialize(((Refused) message).refuseBefore, out);
+                break;
+            case FetchTxn:
+                serializer.serialize(((FetchTxn) message).txnId, out);
+                serializer.serialize(((FetchTxn) message).keys, out);
+                break;
+            case FetchTxnOk:
+                serializer.serialize(((FetchTxnOk) message).txn, out);
+                break;
+            case InformDurable:
+            {
+                InformDurable inform = (InformDurable) message;
+                serializer.serialize(inform.txnId, out);
+                serializer.serialize(inform.keys, out);
+                serializer.serialize(inform.durableBefore, out);
+                break;
+            }
+            case WaitOnCommit:
+                serializer.serialize(((WaitOnCommit) message).txnId, out);
+                serializer.serialize(((WaitOnCommit) message).keys, out);
+                break;
+            case PreAcceptNack:
+            case ReadNack:
+            case FetchTxnNack:
+            case InformDurableOk:
+            case WaitOnCommitOk:
+        }
+    }
+
+    public Message deserialize(DataInput in) throws IOException
+    {
+        Type type = Type.VALUES[in.readByte()];
+        switch (type)
+        {
+            default: throw new IllegalStateException();
+            case PreAccept:
+                return new PreAccept(serializer.deserializeTxnId(in), serializer.deserializeTxn(in));
+            case PreAcceptOk:
+                return new PreAcceptOk(serializer.deserializeTimestamp(in), serializer.deserializeDependencies(in));
+            case PreAcceptNack:
+                return PreAcceptNack.INSTANCE;
+            case Accept:
+                return new Accept(serializer.deserializeBallot(in), serializer.deserializeTxnId(in), serializer.deserializeTxn(in),
+                                  serializer.deserializeTimestamp(in), serializer.deserializeDependencies(in));
+            case AcceptOk:
+                return new AcceptOk(serializer.deserializeDependencies(in));
+            case AcceptNack:
+                return new AcceptNack(serializer.deserializeTimestamp(in));
+            case Commit:
+                return new Commit(serializer.deserializeTxnId(in), serializer.deserializeTxn(in), serializer.deserializeTimestamp(in),
+                                  serializer.deserializeDependencies(in), in.readBoolean(), in.readLong());
+            case Apply:
+                return new Apply(serializer.deserializeTxnId(in), serializer.deserializeTxn(in), serializer.deserializeTimestamp(in),
+                                 serializer.deserializeDependencies(in), serializer.deserializeWrites(in), serializer.deserializeResult(in));
+            case ApplyOk:
+                return new ApplyOk(serializer.deserializeTimestamp(in));
+            case ReadData:
+                return new ReadData(serializer.deserializeTxnId(in), serializer.deserializeTxn(in));
+            case ReadOk:
+                return new ReadOk(serializer.deserializeData(in));
+            case ReadNack:
+                return new ReadNack();
+            case BeginRecovery:
+                return new BeginRecovery(serializer.deserializeTxnId(in), serializer.deserializeTxn(in), serializer.deserializeBallot(in));
+            case RecoverOk:
+                return new RecoverOk(Status.values()[in.readByte()], serializer.deserializeBallot(in), serializer.deserializeTimestamp(in),
+                                     serializer.deserializeDependencies(in), serializer.deserializeDependencies(in), serializer.deserializeDependencies(in),
+                                     in.readBoolean(), in.readBoolean() ? serializer.deserializeWrites(in) : null, serializer.deserializeResult(in));
+            case RecoverNack:
+                return new RecoverNack(serializer.deserializeBallot(in));
+            case Refused:
+                return new Refused(serializer.deserializeKeys(in), serializer.deserializeTimestamp(in));
+            case FetchTxn:
+                return new FetchTxn(serializer.deserializeTxnId(in), serializer.deserializeKeys(in));
+            case FetchTxnOk:
+                return new FetchTxnOk(serializer.deserializeTxn(in));
+            case FetchTxnNack:
+                return FetchTxnNack.INSTANCE;
+            case InformDurable:
+                return new InformDurable(serializer.deserializeTxnId(in), serializer.deserializeKeys(in), serializer.deserializeTimestamp(in));
+            case InformDurableOk:
+                return new InformDurableOk();
+            case WaitOnCommit:
+                return new WaitOnCommit(serializer.deserializeTxnId(in), serializer.deserializeKeys(in));
+            case WaitOnCommitOk:
+                return new WaitOnCommitOk();
+        }
+    }
+}
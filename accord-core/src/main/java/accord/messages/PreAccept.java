@@ -1,8 +1,6 @@
 package accord.messages;
 
-import java.util.NavigableMap;
 import java.util.Objects;
-import java.util.TreeMap;
 
 import accord.local.Instance;
 import accord.local.Node;
@@ -28,23 +26,26 @@ public class PreAccept implements Request
 
     public void process(Node node, Id from, long messageId)
     {
-        node.reply(from, messageId, txn.local(node).map(instance -> {
+        node.mapReduceLocal(txn.keys(), instance -> {
+            if (instance.refuses(txnId))
+                return new Refused(txn.keys().slice(instance.shard.range), instance.refuseBefore());
+
             Command command = instance.command(txnId);
             if (!command.witness(txn))
                 return PreAcceptNack.INSTANCE;
             // TODO: only lookup keys relevant to this instance
             // TODO: why don't we calculate deps from the executeAt timestamp??
             return new PreAcceptOk(command.executeAt(), calculateDeps(instance, txnId, txn, txnId));
-        }).reduce((r1, r2) -> {
+        }, (PreAcceptReply r1, PreAcceptReply r2) -> {
+            if (r1 instanceof Refused || r2 instanceof Refused) return Refused.merge(r1, r2);
             if (!r1.isOK()) return r1;
             if (!r2.isOK()) return r2;
             PreAcceptOk ok1 = (PreAcceptOk) r1;
             PreAcceptOk ok2 = (PreAcceptOk) r2;
             PreAcceptOk okMax = ok1.witnessedAt.compareTo(ok2.witnessedAt) >= 0 ? ok1 : ok2;
-            if (ok1 != okMax && !ok1.deps.isEmpty()) okMax.deps.addAll(ok1.deps);
-            if (ok2 != okMax && !ok2.deps.isEmpty()) okMax.deps.addAll(ok2.deps);
-            return okMax;
-        }).orElseThrow());
+            Dependencies deps = ok1.deps.with(ok2.deps);
+            return deps == okMax.deps ? okMax : new PreAcceptOk(okMax.witnessedAt, deps);
+        }).thenAccept(reply -> node.reply(from, messageId, reply));
     }
 
     public interface PreAcceptReply extends Reply
@@ -115,15 +116,15 @@ public class PreAccept implements Request
 
     static Dependencies calculateDeps(Instance instance, TxnId txnId, Txn txn, Timestamp executeAt)
     {
-        NavigableMap<TxnId, Txn> deps = new TreeMap<>();
-        txn.conflictsMayExecuteBefore(instance, executeAt).forEach(conflict -> {
+        Dependencies.Builder deps = Dependencies.builder();
+        txn.conflictsMayExecuteBefore(instance, executeAt, conflict -> {
             if (conflict.txnId().equals(txnId))
                 return;
 
             if (txn.isWrite() || conflict.txn().isWrite())
-                deps.put(conflict.txnId(), conflict.txn());
+                deps.add(conflict);
         });
-        return new Dependencies(deps);
+        return deps.build();
     }
 
     @Override
@@ -1,9 +1,6 @@
 package accord.messages;
 
-import java.util.Iterator;
 import java.util.Set;
-import java.util.concurrent.TimeUnit;
-import java.util.stream.Collectors;
 
 import accord.local.Instance;
 import accord.local.Node;
@@ -13,11 +10,8 @@ import accord.messages.Reply;
 import accord.messages.Request;
 import accord.local.Command;
 import accord.local.Listener;
-import accord.local.Status;
 import accord.txn.Txn;
 import accord.txn.TxnId;
-import accord.txn.Timestamp;
-import accord.api.Scheduler.Scheduled;
 import accord.utils.DeterministicIdentitySet;
 
 public class ReadData implements Request
@@ -32,7 +26,6 @@ public class ReadData implements Request
         Data data;
         boolean isObsolete; // TODO: respond with the Executed result we have stored?
         Set<Instance> waitingOn;
-        Scheduled waitingOnReporter;
 
         LocalRead(TxnId txnId, Node node, Id replyToNode, long replyToMessage)
         {
@@ -40,30 +33,6 @@ public class ReadData implements Request
             this.node = node;
             this.replyToNode = replyToNode;
             this.replyToMessage = replyToMessage;
-            // TODO: this is messy, we want a complete separate liveness mechanism that ensures progress for all transactions
-            this.waitingOnReporter = node.scheduler().once(new ReportWaiting(), 1L, TimeUnit.SECONDS);
-        }
-
-        class ReportWaiting implements Listener, Runnable
-        {
-            @Override
-            public void onChange(Command command)
-            {
-                command.removeListener(this);
-                run();
-            }
-
-            @Override
-            public void run()
-            {
-                Iterator<Instance> i = waitingOn.iterator();
-                Command blockedBy = null;
-                while (i.hasNext() && null == (blockedBy = i.next().command(txnId).blockedBy()));
-                if (blockedBy == null) return;
-                blockedBy.addListener(this);
-                assert blockedBy.status().compareTo(Status.NotWitnessed) > 0;
-                node.reply(replyToNode, replyToMessage, new ReadWaiting(blockedBy.txnId(), blockedBy.txn(), blockedBy.executeAt(), blockedBy.status()));
-            }
         }
 
         @Override
@@ -80,26 +49,37 @@ public class ReadData implements Request
                 case Executed:
                 case Applied:
                     obsolete(command);
-                case ReadyToExecute:
+                case ReadyToRead:
+                case ReadyToWrite:
             }
 
             command.removeListener(this);
-            if (!isObsolete)
-                read(command);
+            // we registered our read when we began listening, so must release it if we will not perform it
+            if (!isObsolete) read(command);
+            else command.readComplete();
         }
 
         private void read(Command command)
         {
-            // TODO: threading/futures (don't want to perform expensive reads within this mutually exclusive context)
-            Data next = command.txn().read(command);
+            Instance instance = command.instance;
+            command.txn().readAsync(command).whenComplete((next, fail) -> {
+                // if the read failed we do not reply, so that the coordinator times out and reads from another replica
+                if (fail == null)
+                    onRead(instance, next);
+                instance.execute(command::readComplete);
+            });
+        }
+
+        private synchronized void onRead(Instance instance, Data next)
+        {
+            if (isObsolete)
+                return;
+
             data = data == null ? next : data.merge(next);
 
-            waitingOn.remove(command.instance);
+            waitingOn.remove(instance);
             if (waitingOn.isEmpty())
-            {
-                waitingOnReporter.cancel();
                 node.reply(replyToNode, replyToMessage, new ReadOk(data));
-            }
         }
 
         void obsolete(Command command)
@@ -107,39 +87,49 @@ public class ReadData implements Request
             if (!isObsolete)
             {
                 isObsolete = true;
-                waitingOnReporter.cancel();
-                node.send(command.instance.shard, new Apply(command.txnId(), command.txn(), command.executeAt(), command.savedDeps(), command.writes(), command.result()));
+                // if the command has been retired then every replica has already applied it, and every replica
+                // applies a read-only transaction without being told to
+                if (command.txn() != null && command.txn().isWrite())
+                    node.send(command.instance.shard, new Apply(command.txnId(), command.txn(), command.executeAt(), command.savedDeps(), command.writes(), command.result()));
                 node.reply(replyToNode, replyToMessage, new ReadNack());
             }
         }
 
-        synchronized void setup(TxnId txnId, Txn txn)
+        void setup(TxnId txnId, Txn txn)
         {
-            // TODO: simple hash set supporting concurrent modification, or else avoid concurrent modification
-            waitingOn = txn.local(node).collect(Collectors.toCollection(() -> new DeterministicIdentitySet<>()));
-            waitingOn.forEach(instance -> {
-                Command command = instance.command(txnId);
-                command.witness(txn);
-                switch (command.status())
-                {
-                    case NotWitnessed:
-                        throw new IllegalStateException();
-                    case PreAccepted:
-                    case Accepted:
-                    case Committed:
-                        command.addListener(this);
-                        break;
-
-                    case Executed:
-                    case Applied:
-                        obsolete(command);
-                        break;
-
-                    case ReadyToExecute:
-                        if (!isObsolete)
-                            read(command);
-                }
-            });
+            waitingOn = new DeterministicIdentitySet<>();
+            node.local(txn.keys(), waitingOn::add);
+            node.forEachLocal(txn.keys(), instance -> setup(txnId, txn, instance));
+        }
+
+        private synchronized void setup(TxnId txnId, Txn txn, Instance instance)
+        {
+            Command command = instance.command(txnId);
+            command.witness(txn);
+            switch (command.status())
+            {
+                case NotWitnessed:
+                    throw new IllegalStateException();
+                case PreAccepted:
+                case Accepted:
+                case Committed:
+                    command.registerRead();
+                    command.addListener(this);
+                    break;
+
+                case Executed:
+                case Applied:
+                    obsolete(command);
+                    break;
+
+                case ReadyToRead:
+                case ReadyToWrite:
+                    if (!isObsolete)
+                    {
+                        command.registerRead();
+                        read(command);
+                    }
+            }
         }
     }
 
@@ -189,39 +179,6 @@ public class ReadData implements Request
         }
     }
 
-    public static class ReadWaiting extends ReadReply
-    {
-        public final TxnId txnId;
-        public final Txn txn;
-        public final Timestamp executeAt;
-        public final Status status;
-
-        public ReadWaiting(TxnId txnId, Txn txn, Timestamp executeAt, Status status)
-        {
-            this.txnId = txnId;
-            this.txn = txn;
-            this.executeAt = executeAt;
-            this.status = status;
-        }
-
-        @Override
-        public boolean isFinal()
-        {
-            return false;
-        }
-
-        @Override
-        public String toString()
-        {
-            return "ReadWaiting{" +
-                   "txnId:" + txnId +
-                   ", txn:" + txn +
-                   ", executeAt:" + executeAt +
-                   ", status:" + status +
-                   '}';
-        }
-    }
-
     @Override
     public String toString()
     {
@@ -0,0 +1,49 @@
+package accord.messages;
+
+import accord.messages.Accept.AcceptReply;
+import accord.messages.BeginRecovery.RecoverReply;
+import accord.messages.PreAccept.PreAcceptReply;
+import accord.txn.Keys;
+import accord.txn.Timestamp;
+
+/**
+ * Sent in place of a PreAccept, Accept or BeginRecovery reply by a replica that will never witness the transaction
+ * for {@code keys}; see {@link accord.local.Instance#refuses}. Unlike a Nack this is permanent, so a transaction
+ * refused by enough replicas of any shard can never reach a quorum, and may be invalidated by whoever learns this.
+ */
+public class Refused implements PreAcceptReply, AcceptReply, RecoverReply
+{
+    public final Keys keys;
+    // the replica refuses every TxnId it does not know below this, so a coordinator should issue its next above it
+    public final Timestamp refuseBefore;
+
+    public Refused(Keys keys, Timestamp refuseBefore)
+    {
+        this.keys = keys;
+        this.refuseBefore = refuseBefore;
+    }
+
+    @Override
+    public boolean isOK()
+    {
+        return false;
+    }
+
+    /**
+     * A node that refuses a transaction for some of its shards cannot report what it witnessed for the others,
+     * so its reply is refused if any of its shards' replies is
+     */
+    static Refused merge(Reply r1, Reply r2)
+    {
+        if (!(r1 instanceof Refused)) return (Refused) r2;
+        if (!(r2 instanceof Refused)) return (Refused) r1;
+        Refused refused1 = (Refused) r1, refused2 = (Refused) r2;
+        return new Refused(refused1.keys.union(refused2.keys), Timestamp.max(refused1.refuseBefore, refused2.refuseBefore));
+    }
+
+    @Override
+    public String toString()
+    {
+        return "Refused{" + keys + ", " + refuseBefore + '}';
+    }
+}
@@ -1,8 +1,5 @@
 package accord.messages;
 
-import java.util.List;
-import java.util.stream.Collectors;
-
 import accord.local.Instance;
 import accord.local.Node;
 import accord.local.Node.Id;
@@ -45,7 +42,8 @@ public class WaitOnCommit implements Request
                 case Committed:
                 case Executed:
                 case Applied:
-                case ReadyToExecute:
+                case ReadyToRead:
+                case ReadyToWrite:
             }
 
             command.removeListener(this);
@@ -58,27 +56,30 @@ public class WaitOnCommit implements Request
                 node.reply(replyToNode, replyToMessage, new WaitOnCommitOk());
         }
 
-        synchronized void setup(TxnId txnId, Keys keys)
+        void setup(TxnId txnId, Keys keys)
         {
-            List<Instance> instances = node.local(keys).collect(Collectors.toList());
-            waitingOn = instances.size();
-            instances.forEach(instance -> {
-                Command command = instance.command(txnId);
-                switch (command.status())
-                {
-                    case NotWitnessed:
-                    case PreAccepted:
-                    case Accepted:
-                        command.addListener(this);
-                        break;
+            waitingOn = node.localCount(keys);
+            node.forEachLocal(keys, instance -> setup(txnId, instance));
+        }
 
-                    case Committed:
-                    case Executed:
-                    case Applied:
-                    case ReadyToExecute:
-                        ack();
-                }
-            });
+        private synchronized void setup(TxnId txnId, Instance instance)
+        {
+            Command command = instance.command(txnId);
+            switch (command.status())
+            {
+                case NotWitnessed:
+                case PreAccepted:
+                case Accepted:
+                    command.addListener(this);
+                    break;
+
+                case Committed:
+                case Executed:
+                case Applied:
+                case ReadyToRead:
+                case ReadyToWrite:
+                    ack();
+            }
         }
     }
 
@@ -0,0 +1,49 @@
+package accord.topology;
+
+import java.util.Objects;
+
+/**
+ * The static placement of a node, used to estimate its distance from other nodes
+ */
+public class Locality
+{
+    public final String dc;
+    public final String rack;
+
+    public Locality(String dc, String rack)
+    {
+        this.dc = dc;
+        this.rack = rack;
+    }
+
+    public boolean sameDc(Locality that)
+    {
+        return dc.equals(that.dc);
+    }
+
+    public boolean sameRack(Locality that)
+    {
+        return sameDc(that) && rack.equals(that.rack);
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        Locality that = (Locality) o;
+        return dc.equals(that.dc) && rack.equals(that.rack);
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(dc, rack);
+    }
+
+    @Override
+    public String toString()
+    {
+        return dc + ':' + rack;
+    }
+}
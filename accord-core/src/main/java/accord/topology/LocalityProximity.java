@@ -0,0 +1,77 @@
+package accord.topology;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import accord.local.Node.Id;
+
+/**
+ * Orders nodes first by their static Locality relative to us (ourselves, then our rack, then our DC, then
+ * any other or unknown location), and then by an exponentially weighted moving average of the latencies
+ * we have observed to each. A node we have no latency observations for is considered as close as possible
+ * amongst those of the same Locality, so that we discover its latency.
+ */
+public class LocalityProximity implements Proximity
+{
+    public static final double DEFAULT_ALPHA = 0.2;
+
+    private static final int SELF = 0, SAME_RACK = 1, SAME_DC = 2, REMOTE = 3;
+
+    final Id self;
+    final Map<Id, Locality> localities;
+    final double alpha;
+    final Map<Id, Double> latencies = new ConcurrentHashMap<>();
+
+    /**
+     * Prefer only ourselves; all other nodes are ordered by their observed latency
+     */
+    public LocalityProximity(Id self)
+    {
+        this(self, Collections.emptyMap(), DEFAULT_ALPHA);
+    }
+
+    /**
+     * @param alpha the weight given to each new latency observation
+     */
+    public LocalityProximity(Id self, Map<Id, Locality> localities, double alpha)
+    {
+        this.self = self;
+        this.localities = localities;
+        this.alpha = alpha;
+    }
+
+    @Override
+    public void onLatency(Id node, long latency)
+    {
+        latencies.merge(node, (double) latency, (prev, next) -> prev + alpha * (next - prev));
+    }
+
+    @Override
+    public int compare(Id a, Id b)
+    {
+        int c = Integer.compare(tier(a), tier(b));
+        if (c == 0) c = Double.compare(latency(a), latency(b));
+        return c;
+    }
+
+    double latency(Id node)
+    {
+        return latencies.getOrDefault(node, 0d);
+    }
+
+    private int tier(Id node)
+    {
+        if (node.equals(self))
+            return SELF;
+
+        Locality ours = localities.get(self);
+        Locality theirs = localities.get(node);
+        if (ours == null || theirs == null)
+            return REMOTE;
+
+        if (ours.sameRack(theirs)) return SAME_RACK;
+        if (ours.sameDc(theirs)) return SAME_DC;
+        return REMOTE;
+    }
+}
@@ -0,0 +1,32 @@
+package accord.topology;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import accord.local.Node.Id;
+
+/**
+ * Orders other nodes by their distance from this one, so that we may prefer the closest replica when only
+ * one is needed. Implementations may learn from the latencies we observe communicating with each node.
+ */
+public interface Proximity extends Comparator<Id>
+{
+    /**
+     * Report the round-trip latency (in the units of the Node's clock) of a request to {@code node}
+     */
+    void onLatency(Id node, long latency);
+
+    /**
+     * @return {@code nodes} ordered from closest to furthest, with nodes of equal distance in random order
+     */
+    default List<Id> closest(List<Id> nodes, Random random)
+    {
+        List<Id> sorted = new ArrayList<>(nodes);
+        Collections.shuffle(sorted, random);
+        sorted.sort(this);
+        return sorted;
+    }
+}
@@ -26,7 +26,7 @@ public class Shard
         this.fastPathElectorate = fastPathElectorate;
         int e = fastPathElectorate.size();
         this.recoveryFastPathSize = (f+1)/2;
-        this.slowPathQuorumSize = f + 1;
+        this.slowPathQuorumSize = slowPathQuorumSize(nodes.size(), f);
         this.fastPathQuorumSize = fastPathQuorumSize(nodes.size(), e, f);
     }
 
@@ -36,6 +36,13 @@ public class Shard
         return (replicas - 1) / 2;
     }
 
+    // a simple majority, so that any two quorums intersect even when there are an even number of replicas
+    @VisibleForTesting
+    static int slowPathQuorumSize(int replicas, int f)
+    {
+        return replicas - f;
+    }
+
     @VisibleForTesting
     static int fastPathQuorumSize(int replicas, int electorate, int f)
     {
@@ -1,93 +1,480 @@
 package accord.txn;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
-import java.util.Map.Entry;
-import java.util.NavigableMap;
-import java.util.Objects;
-import java.util.TreeMap;
+import java.util.List;
+import java.util.function.Predicate;
 
+import accord.api.Key;
 import accord.local.Command;
 import accord.topology.Shard;
-import com.google.common.annotations.VisibleForTesting;
 
-// TODO: do not send Txn
-// TODO: implementation efficiency
-public class Dependencies implements Iterable<Entry<TxnId, Txn>>
+/**
+ * An immutable set of dependencies, sorted by TxnId. The keys of each dependency are stored as indexes
+ * into a single sorted union of the keys of every dependency, so that two sets may be merged linearly.
+ *
+ * Only the TxnId and keys of each dependency are retained; a replica that has not witnessed a dependency
+ * must fetch its definition from another replica.
+ */
+public class Dependencies implements Iterable<TxnId>
 {
-    // TODO: encapsulate
-    public final NavigableMap<TxnId, Txn> deps;
+    public static final Dependencies NONE = new Dependencies(Keys.EMPTY, new TxnId[0], new int[0]);
 
-    public Dependencies()
+    final Keys keys; // the union of the keys of every dependency
+    final TxnId[] txnIds;
+    // the first txnIds.length entries are the (exclusive) end offsets of the key indexes of each txnId,
+    // which follow immediately after; the key indexes of each txnId are sorted
+    final int[] txnIdToKey;
+    // the inverse of txnIdToKey, with the same layout: for each key, the (sorted) indexes of the txnIds that reference it
+    // computed on first use, as most instances are intermediate merge results that are never queried by key; volatile,
+    // as instances are shared between threads, and any that race to compute it compute the same result
+    private volatile int[] keyToTxnId;
+
+    /**
+     * @param keys the sorted union of the keys of every dependency
+     * @param txnIds the sorted TxnId of each dependency
+     * @param txnIdToKey the end offset of the key indexes of each txnId, followed by the sorted key indexes of each txnId
+     */
+    public Dependencies(Keys keys, TxnId[] txnIds, int[] txnIdToKey)
     {
-        this.deps = new TreeMap<>();
+        this.keys = keys;
+        this.txnIds = txnIds;
+        this.txnIdToKey = txnIdToKey;
     }
 
-    public Dependencies(NavigableMap<TxnId, Txn> deps)
+    public static Builder builder()
     {
-        this.deps = deps;
+        return new Builder();
     }
 
-    public void add(Command command)
+    public static class Builder
     {
-        add(command.txnId(), command.txn());
+        TxnId[] txnIds = new TxnId[4];
+        Keys[] txnKeys = new Keys[4];
+        int count;
+        boolean isSorted = true;
+        Dependencies merged = NONE;
+
+        public Builder add(Command command)
+        {
+            return add(command.txnId(), command.txn().keys());
+        }
+
+        public Builder add(TxnId txnId, Keys keys)
+        {
+            if (count == txnIds.length)
+            {
+                txnIds = Arrays.copyOf(txnIds, count * 2);
+                txnKeys = Arrays.copyOf(txnKeys, count * 2);
+            }
+            if (count > 0 && txnIds[count - 1].compareTo(txnId) >= 0)
+                isSorted = false;
+            txnIds[count] = txnId;
+            txnKeys[count] = keys;
+            ++count;
+            return this;
+        }
+
+        public Builder addAll(Dependencies add)
+        {
+            merged = merged.with(add);
+            return this;
+        }
+
+        public Builder addAll(Builder add)
+        {
+            for (int i = 0 ; i < add.count ; ++i)
+                add(add.txnIds[i], add.txnKeys[i]);
+            return addAll(add.merged);
+        }
+
+        public boolean isEmpty()
+        {
+            return count == 0 && merged.isEmpty();
+        }
+
+        public Dependencies build()
+        {
+            if (count == 0)
+                return merged;
+
+            if (!isSorted)
+                sortAndDeduplicate();
+
+            List<Key> keyList = new ArrayList<>();
+            for (int i = 0 ; i < count ; ++i)
+            {
+                for (Key key : txnKeys[i])
+                    keyList.add(key);
+            }
+            Key[] sortedKeys = keyList.toArray(Key[]::new);
+            Arrays.sort(sortedKeys);
+            int keyCount = 0;
+            for (int i = 0 ; i < sortedKeys.length ; ++i)
+            {
+                if (keyCount == 0 || sortedKeys[keyCount - 1].compareTo(sortedKeys[i]) != 0)
+                    sortedKeys[keyCount++] = sortedKeys[i];
+            }
+            Keys keys = new Keys(Arrays.copyOf(sortedKeys, keyCount));
+
+            int[] txnIdToKey = new int[count + keyList.size()];
+            int offset = count;
+            for (int i = 0 ; i < count ; ++i)
+            {
+                int keyIndex = 0;
+                for (int j = 0 ; j < txnKeys[i].size() ; ++j)
+                {
+                    keyIndex = keys.ceilIndex(keyIndex, keys.size(), txnKeys[i].get(j));
+                    txnIdToKey[offset++] = keyIndex;
+                }
+                txnIdToKey[i] = offset;
+            }
+
+            Dependencies result = new Dependencies(keys, Arrays.copyOf(txnIds, count), txnIdToKey);
+            return merged.with(result);
+        }
+
+        private void sortAndDeduplicate()
+        {
+            Integer[] order = new Integer[count];
+            for (int i = 0 ; i < count ; ++i)
+                order[i] = i;
+            Arrays.sort(order, (a, b) -> txnIds[a].compareTo(txnIds[b]));
+
+            TxnId[] sortedTxnIds = new TxnId[count];
+            Keys[] sortedTxnKeys = new Keys[count];
+            int newCount = 0;
+            for (int i = 0 ; i < count ; ++i)
+            {
+                TxnId txnId = txnIds[order[i]];
+                if (newCount > 0 && sortedTxnIds[newCount - 1].equals(txnId))
+                    continue;
+                sortedTxnIds[newCount] = txnId;
+                sortedTxnKeys[newCount] = txnKeys[order[i]];
+                ++newCount;
+            }
+            txnIds = sortedTxnIds;
+            txnKeys = sortedTxnKeys;
+            count = newCount;
+            isSorted = true;
+        }
     }
 
-    @VisibleForTesting
-    public Dependencies add(TxnId txnId, Txn txn)
+    /**
+     * Merge two sets of dependencies in a single linear pass over each. If one set contains the other
+     * it is returned without allocating.
+     */
+    public Dependencies with(Dependencies that)
     {
-        deps.put(txnId, txn);
-        return this;
+        if (that.isEmpty() || that == this) return this;
+        if (this.isEmpty()) return that;
+
+        int keyCount = 0;
+        {
+            int i = 0, j = 0;
+            while (i < this.keys.size() && j < that.keys.size())
+            {
+                int c = this.keys.get(i).compareTo(that.keys.get(j));
+                if (c <= 0) ++i;
+                if (c >= 0) ++j;
+                ++keyCount;
+            }
+            keyCount += (this.keys.size() - i) + (that.keys.size() - j);
+        }
+
+        int txnIdCount = 0;
+        {
+            int i = 0, j = 0;
+            while (i < this.txnIds.length && j < that.txnIds.length)
+            {
+                int c = this.txnIds[i].compareTo(that.txnIds[j]);
+                if (c <= 0) ++i;
+                if (c >= 0) ++j;
+                ++txnIdCount;
+            }
+            txnIdCount += (this.txnIds.length - i) + (that.txnIds.length - j);
+        }
+
+        // a TxnId always refers to the same transaction, so if the counts match one set contains the other
+        if (keyCount == this.keys.size() && txnIdCount == this.txnIds.length)
+            return this;
+        if (keyCount == that.keys.size() && txnIdCount == that.txnIds.length)
+            return that;
+
+        Key[] keyUnion = new Key[keyCount];
+        int[] thisKeyRemap = new int[this.keys.size()];
+        int[] thatKeyRemap = new int[that.keys.size()];
+        {
+            int i = 0, j = 0, k = 0;
+            while (i < this.keys.size() || j < that.keys.size())
+            {
+                int c = i == this.keys.size() ? 1 : j == that.keys.size() ? -1 : this.keys.get(i).compareTo(that.keys.get(j));
+                if (c <= 0) { keyUnion[k] = this.keys.get(i); thisKeyRemap[i++] = k; }
+                if (c >= 0) { keyUnion[k] = that.keys.get(j); thatKeyRemap[j++] = k; }
+                ++k;
+            }
+        }
+
+        TxnId[] txnIdUnion = new TxnId[txnIdCount];
+        int[] txnIdToKey = new int[txnIdCount + this.keyIndexCount() + that.keyIndexCount()];
+        int offset = txnIdCount;
+        {
+            int i = 0, j = 0, k = 0;
+            while (i < this.txnIds.length || j < that.txnIds.length)
+            {
+                int c = i == this.txnIds.length ? 1 : j == that.txnIds.length ? -1 : this.txnIds[i].compareTo(that.txnIds[j]);
+                if (c <= 0)
+                {
+                    txnIdUnion[k] = this.txnIds[i];
+                    for (int l = this.startOffset(i), end = this.endOffset(i) ; l < end ; ++l)
+                        txnIdToKey[offset++] = thisKeyRemap[this.txnIdToKey[l]];
+                    ++i;
+                    if (c == 0) ++j;
+                }
+                else
+                {
+                    txnIdUnion[k] = that.txnIds[j];
+                    for (int l = that.startOffset(j), end = that.endOffset(j) ; l < end ; ++l)
+                        txnIdToKey[offset++] = thatKeyRemap[that.txnIdToKey[l]];
+                    ++j;
+                }
+                txnIdToKey[k++] = offset;
+            }
+        }
+
+        if (offset < txnIdToKey.length)
+            txnIdToKey = Arrays.copyOf(txnIdToKey, offset);
+        return new Dependencies(new Keys(keyUnion), txnIdUnion, txnIdToKey);
     }
 
-    public void addAll(Dependencies add)
+    /**
+     * Returns those dependencies that do not match the provided predicate, retaining only the keys they reference
+     */
+    public Dependencies without(Predicate<TxnId> remove)
     {
-        this.deps.putAll(add.deps);
+        int count = 0;
+        int keyIndexCount = 0;
+        boolean[] retain = new boolean[txnIds.length];
+        for (int i = 0 ; i < txnIds.length ; ++i)
+        {
+            if (remove.test(txnIds[i]))
+                continue;
+            retain[i] = true;
+            ++count;
+            keyIndexCount += endOffset(i) - startOffset(i);
+        }
+
+        if (count == txnIds.length)
+            return this;
+        if (count == 0)
+            return NONE;
+
+        int[] keyRemap = new int[keys.size()];
+        for (int i = 0 ; i < txnIds.length ; ++i)
+        {
+            if (!retain[i]) continue;
+            for (int l = startOffset(i), end = endOffset(i) ; l < end ; ++l)
+                keyRemap[txnIdToKey[l]] = 1;
+        }
+        int keyCount = 0;
+        for (int i = 0 ; i < keyRemap.length ; ++i)
+            keyRemap[i] = keyRemap[i] == 0 ? -1 : keyCount++;
+
+        Key[] newKeys = new Key[keyCount];
+        for (int i = 0 ; i < keyRemap.length ; ++i)
+        {
+            if (keyRemap[i] >= 0)
+                newKeys[keyRemap[i]] = keys.get(i);
+        }
+
+        TxnId[] newTxnIds = new TxnId[count];
+        int[] newTxnIdToKey = new int[count + keyIndexCount];
+        int offset = count;
+        for (int i = 0, k = 0 ; i < txnIds.length ; ++i)
+        {
+            if (!retain[i]) continue;
+            newTxnIds[k] = txnIds[i];
+            for (int l = startOffset(i), end = endOffset(i) ; l < end ; ++l)
+                newTxnIdToKey[offset++] = keyRemap[txnIdToKey[l]];
+            newTxnIdToKey[k++] = offset;
+        }
+        return new Dependencies(new Keys(newKeys), newTxnIds, newTxnIdToKey);
     }
 
-    public void removeAll(Dependencies add)
+    public Dependencies without(Dependencies remove)
     {
-        this.deps.keySet().removeAll(add.deps.keySet());
+        return remove.isEmpty() ? this : without(remove::contains);
     }
 
     public boolean contains(TxnId txnId)
     {
-        return deps.containsKey(txnId);
+        return indexOf(txnId) >= 0;
+    }
+
+    public int indexOf(TxnId txnId)
+    {
+        return Arrays.binarySearch(txnIds, txnId);
     }
 
     public boolean isEmpty()
     {
-        return deps.isEmpty();
+        return txnIds.length == 0;
+    }
+
+    public TxnId txnId(int i)
+    {
+        return txnIds[i];
+    }
+
+    /**
+     * @return the sorted union of the keys of every dependency
+     */
+    public Keys keys()
+    {
+        return keys;
+    }
+
+    /**
+     * @return the keys of the i'th dependency
+     */
+    public Keys keys(int i)
+    {
+        int start = startOffset(i), end = endOffset(i);
+        Key[] result = new Key[end - start];
+        for (int l = start ; l < end ; ++l)
+            result[l - start] = keys.get(txnIdToKey[l]);
+        return new Keys(result);
+    }
+
+    public int keyIndexCount(int i)
+    {
+        return endOffset(i) - startOffset(i);
     }
 
-    public Txn get(TxnId txnId)
+    /**
+     * @return the index in keys() of the j'th key of the i'th dependency
+     */
+    public int keyIndex(int i, int j)
     {
-        return deps.get(txnId);
+        return txnIdToKey[startOffset(i) + j];
     }
 
+    /**
+     * Returns the dependencies with a key owned by the shard, in TxnId order, in time proportional
+     * to the number of (key, dependency) pairs the shard owns
+     */
     public Iterable<TxnId> on(Shard shard)
     {
-        // TODO: efficiency
-        return deps.entrySet()
-                   .stream()
-                   .filter(e -> e.getValue().keys().stream().anyMatch(shard::contains))
-                   .map(Entry::getKey)::iterator;
+        int start = shard.range.lowKeyIndex(keys);
+        if (start < 0)
+            return List.of();
+        int end = shard.range.higherKeyIndex(keys);
+        if (start == end)
+            return List.of();
+
+        int[] keyToTxnId = keyToTxnId();
+        int from = start == 0 ? keys.size() : keyToTxnId[start - 1];
+        int to = keyToTxnId[end - 1];
+
+        int[] txnIndexes;
+        if (start + 1 == end)
+        {
+            // a single key's txnIds are already sorted and unique
+            txnIndexes = keyToTxnId;
+        }
+        else
+        {
+            txnIndexes = Arrays.copyOfRange(keyToTxnId, from, to);
+            Arrays.sort(txnIndexes);
+            to -= from;
+            from = 0;
+        }
+
+        List<TxnId> result = new ArrayList<>(to - from);
+        for (int i = from ; i < to ; ++i)
+        {
+            if (i == from || txnIndexes[i] != txnIndexes[i - 1])
+                result.add(txnIds[txnIndexes[i]]);
+        }
+        return result;
+    }
+
+    private int[] keyToTxnId()
+    {
+        int[] keyToTxnId = this.keyToTxnId;
+        if (keyToTxnId == null)
+        {
+            int[] result = new int[txnIdToKey.length - txnIds.length + keys.size()];
+            // count the txnIds referencing each key, then convert to end offsets
+            for (int l = txnIds.length ; l < txnIdToKey.length ; ++l)
+                ++result[txnIdToKey[l]];
+            int offset = keys.size();
+            for (int k = 0 ; k < keys.size() ; ++k)
+            {
+                offset += result[k];
+                result[k] = offset;
+            }
+            // fill backwards from each key's end offset, visiting txnIds in reverse so that each key's list is sorted
+            for (int i = txnIds.length - 1 ; i >= 0 ; --i)
+            {
+                for (int l = startOffset(i), end = endOffset(i) ; l < end ; ++l)
+                    result[--result[txnIdToKey[l]]] = i;
+            }
+            // the decrements have left each key pointing at its start offset, i.e. the end offset of the key before it
+            for (int k = 0 ; k < keys.size() - 1 ; ++k)
+                result[k] = result[k + 1];
+            if (keys.size() > 0)
+                result[keys.size() - 1] = result.length;
+            this.keyToTxnId = keyToTxnId = result;
+        }
+        return keyToTxnId;
+    }
+
+    private int startOffset(int i)
+    {
+        return i == 0 ? txnIds.length : txnIdToKey[i - 1];
+    }
+
+    private int endOffset(int i)
+    {
+        return txnIdToKey[i];
+    }
+
+    private int keyIndexCount()
+    {
+        return txnIdToKey.length - txnIds.length;
     }
 
     @Override
-    public Iterator<Entry<TxnId, Txn>> iterator()
+    public Iterator<TxnId> iterator()
     {
-        return deps.entrySet().iterator();
+        return new Iterator<>()
+        {
+            int i = 0;
+            @Override
+            public boolean hasNext()
+            {
+                return i < txnIds.length;
+            }
+
+            @Override
+            public TxnId next()
+            {
+                return txnIds[i++];
+            }
+        };
     }
 
     public int size()
     {
-        return deps.size();
+        return txnIds.length;
     }
 
     @Override
     public String toString()
     {
-        return deps.keySet().toString();
+        return Arrays.toString(txnIds);
     }
 
     @Override
@@ -95,13 +482,13 @@ public class Dependencies implements Iterable<Entry<TxnId, Txn>>
     {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
-        Dependencies entries = (Dependencies) o;
-        return deps.equals(entries.deps);
+        Dependencies that = (Dependencies) o;
+        return Arrays.equals(txnIds, that.txnIds);
     }
 
     @Override
     public int hashCode()
     {
-        return Objects.hash(deps);
+        return Arrays.hashCode(txnIds);
     }
 }
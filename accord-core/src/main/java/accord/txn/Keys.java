@@ -5,6 +5,7 @@ import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import accord.api.Key;
+import accord.api.KeyRange;
 
 @SuppressWarnings("rawtypes")
 public class Keys implements Iterable<Key>
@@ -48,6 +49,22 @@ public class Keys implements Iterable<Key>
         return new Keys(selection);
     }
 
+    /**
+     * The keys that fall within {@code range}
+     */
+    @SuppressWarnings("unchecked")
+    public Keys slice(KeyRange range)
+    {
+        return new Keys(stream().filter(range::containsKey).toArray(Key[]::new));
+    }
+
+    public Keys union(Keys that)
+    {
+        if (this.isEmpty()) return that;
+        if (that.isEmpty()) return this;
+        return new Keys(Stream.concat(this.stream(), that.stream()).distinct().toArray(Key[]::new));
+    }
+
     public boolean isEmpty()
     {
         return keys.length == 0;
@@ -1,7 +1,14 @@
 package accord.txn;
 
 import accord.local.Node.Id;
+import com.google.common.base.Preconditions;
 
+/**
+ * A Timestamp may also be represented as two primitive longs: the most significant is {@link #real}, and the least
+ * significant packs {@link #logical} into the upper 32 bits and the node id into the lower 32 bits. Both logical
+ * and node ids must therefore be non-negative and fit in 32 bits, and the two longs compare (signed then unsigned)
+ * in the same order as the Timestamps they represent. See {@link TimestampArray}.
+ */
 public class Timestamp implements Comparable<Timestamp>
 {
     public static final Timestamp NONE = new Timestamp(0, 0, Id.NONE);
@@ -10,12 +17,15 @@ public class Timestamp implements Comparable<Timestamp>
     public final long real;
     public final int logical;
     public final Id node;
+    private final long lsb;
 
     public Timestamp(long real, int logical, Id node)
     {
+        Preconditions.checkArgument((node.id & ~0xFFFFFFFFL) == 0, "Node id %s does not fit in 32 bits", node);
         this.real = real;
         this.logical = logical;
         this.node = node;
+        this.lsb = lsb(logical, node.id);
     }
 
     public Timestamp(Timestamp copy)
@@ -23,26 +33,56 @@ public class Timestamp implements Comparable<Timestamp>
         this.real = copy.real;
         this.logical = copy.logical;
         this.node = copy.node;
+        this.lsb = copy.lsb;
+    }
+
+    public long msb()
+    {
+        return real;
+    }
+
+    public long lsb()
+    {
+        return lsb;
+    }
+
+    public static long lsb(int logical, long node)
+    {
+        return ((long)logical << 32) | (node & 0xFFFFFFFFL);
+    }
+
+    public static int logical(long lsb)
+    {
+        return (int) (lsb >>> 32);
+    }
+
+    public static long node(long lsb)
+    {
+        return lsb & 0xFFFFFFFFL;
+    }
+
+    public static int compare(long msb1, long lsb1, long msb2, long lsb2)
+    {
+        int c = Long.compare(msb1, msb2);
+        if (c == 0) c = Long.compareUnsigned(lsb1, lsb2);
+        return c;
     }
 
     @Override
     public int compareTo(Timestamp that)
     {
-        int c = Long.compare(this.real, that.real);
-        if (c == 0) c = Integer.compare(this.logical, that.logical);
-        if (c == 0) c = this.node.compareTo(that.node);
-        return c;
+        return compare(this.real, this.lsb, that.real, that.lsb);
     }
 
     @Override
     public int hashCode()
     {
-        return (int) (((real * 31) + node.hashCode()) * 31 + logical);
+        return Long.hashCode(real) * 31 + Long.hashCode(lsb);
     }
 
     public boolean equals(Timestamp that)
     {
-        return this.real == that.real && this.logical == that.logical && this.node.equals(that.node);
+        return this.real == that.real && this.lsb == that.lsb;
     }
 
     @Override
@@ -56,6 +96,11 @@ public class Timestamp implements Comparable<Timestamp>
         return a.compareTo(b) >= 0 ? a : b;
     }
 
+    public static <T extends Timestamp> T min(T a, T b)
+    {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
     @Override
     public String toString()
     {
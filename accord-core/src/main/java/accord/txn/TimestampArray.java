@@ -0,0 +1,204 @@
+package accord.txn;
+
+import java.util.Arrays;
+
+import accord.local.Node.Id;
+
+/**
+ * A growable array of Timestamps stored in their packed two-long form, so that they may be searched and compared
+ * without dereferencing any objects. Individual elements may be inspected without allocation via a {@link View}.
+ */
+public class TimestampArray
+{
+    private long[] packed;
+    private int size;
+
+    public TimestampArray()
+    {
+        this(8);
+    }
+
+    public TimestampArray(int capacity)
+    {
+        this.packed = new long[capacity * 2];
+    }
+
+    public int size()
+    {
+        return size;
+    }
+
+    public boolean isEmpty()
+    {
+        return size == 0;
+    }
+
+    public long msb(int i)
+    {
+        return packed[i * 2];
+    }
+
+    public long lsb(int i)
+    {
+        return packed[i * 2 + 1];
+    }
+
+    public int compare(int i, Timestamp that)
+    {
+        return Timestamp.compare(msb(i), lsb(i), that.msb(), that.lsb());
+    }
+
+    public boolean equals(int i, Timestamp that)
+    {
+        return msb(i) == that.msb() && lsb(i) == that.lsb();
+    }
+
+    public void add(Timestamp timestamp)
+    {
+        insert(size, timestamp);
+    }
+
+    public void add(long msb, long lsb)
+    {
+        insert(size, msb, lsb);
+    }
+
+    public void insert(int i, Timestamp timestamp)
+    {
+        insert(i, timestamp.msb(), timestamp.lsb());
+    }
+
+    public void insert(int i, long msb, long lsb)
+    {
+        if (size * 2 == packed.length)
+            packed = Arrays.copyOf(packed, Math.max(4, packed.length * 2));
+        System.arraycopy(packed, i * 2, packed, i * 2 + 2, (size - i) * 2);
+        packed[i * 2] = msb;
+        packed[i * 2 + 1] = lsb;
+        ++size;
+    }
+
+    public void set(int i, long msb, long lsb)
+    {
+        packed[i * 2] = msb;
+        packed[i * 2 + 1] = lsb;
+    }
+
+    public void remove(int i)
+    {
+        System.arraycopy(packed, i * 2 + 2, packed, i * 2, (size - (i + 1)) * 2);
+        --size;
+    }
+
+    public void truncate(int size)
+    {
+        this.size = size;
+    }
+
+    /**
+     * Remove the first {@code count} elements
+     */
+    public void removeFirst(int count)
+    {
+        System.arraycopy(packed, count * 2, packed, 0, (size - count) * 2);
+        size -= count;
+    }
+
+    public void clear()
+    {
+        size = 0;
+    }
+
+    /**
+     * Search a sorted array for the provided Timestamp, with the semantics of {@link Arrays#binarySearch(long[], long)}
+     */
+    public int binarySearch(Timestamp find)
+    {
+        return binarySearch(0, size, find);
+    }
+
+    public int binarySearch(int from, int to, Timestamp find)
+    {
+        int lb = from, ub = to - 1;
+        long msb = find.msb(), lsb = find.lsb();
+        while (lb <= ub)
+        {
+            int i = (lb + ub) >>> 1;
+            int c = Timestamp.compare(msb(i), lsb(i), msb, lsb);
+            if (c < 0) lb = i + 1;
+            else if (c > 0) ub = i - 1;
+            else return i;
+        }
+        return -1 - lb;
+    }
+
+    public Timestamp get(int i)
+    {
+        long lsb = lsb(i);
+        return new Timestamp(msb(i), Timestamp.logical(lsb), new Id(Timestamp.node(lsb)));
+    }
+
+    public View view()
+    {
+        return new View();
+    }
+
+    /**
+     * A reusable, mutable view of one element of the enclosing array
+     */
+    public class View implements Comparable<Timestamp>
+    {
+        private int i;
+
+        public View at(int i)
+        {
+            this.i = i;
+            return this;
+        }
+
+        public int index()
+        {
+            return i;
+        }
+
+        public long real()
+        {
+            return msb(i);
+        }
+
+        public int logical()
+        {
+            return Timestamp.logical(lsb(i));
+        }
+
+        public long node()
+        {
+            return Timestamp.node(lsb(i));
+        }
+
+        @Override
+        public int compareTo(Timestamp that)
+        {
+            return compare(i, that);
+        }
+
+        @Override
+        public String toString()
+        {
+            return "[" + real() + ',' + logical() + ',' + node() + ']';
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        StringBuilder sb = new StringBuilder("[");
+        View view = view();
+        for (int i = 0 ; i < size ; ++i)
+        {
+            if (i > 0) sb.append(", ");
+            sb.append(view.at(i));
+        }
+        return sb.append(']').toString();
+    }
+}
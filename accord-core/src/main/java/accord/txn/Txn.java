@@ -1,6 +1,9 @@
 package accord.txn;
 
 import java.util.Comparator;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 import accord.api.*;
@@ -11,7 +14,7 @@ import accord.local.Node;
 
 public class Txn
 {
-    enum Kind { READ, WRITE, RECONFIGURE }
+    enum Kind { READ, WRITE, RECONFIGURE, INVALIDATED }
 
     final Kind kind;
     public final Keys keys;
@@ -30,7 +33,8 @@ public class Txn
 
     public Txn(Keys keys, Read read, Query query, Update update)
     {
-        this.kind = Kind.WRITE;
+        // a transaction that reads nothing is only ever the replacement for one that has been invalidated
+        this.kind = read == null ? Kind.INVALIDATED : update == null ? Kind.READ : Kind.WRITE;
         this.keys = keys;
         this.read = read;
         this.update = update;
@@ -44,6 +48,7 @@ public class Txn
             default:
                 throw new IllegalStateException();
             case READ:
+            case INVALIDATED:
                 return false;
             case WRITE:
             case RECONFIGURE:
@@ -51,6 +56,20 @@ public class Txn
         }
     }
 
+    /**
+     * The transaction that replaces this one once it has been invalidated: it has the same keys, so that it takes
+     * our place at every replica and releases any transaction that depends on us, but it reads and writes nothing
+     */
+    public Txn invalidate()
+    {
+        return new Txn(keys, null, null, null);
+    }
+
+    public boolean isInvalidated()
+    {
+        return kind == Kind.INVALIDATED;
+    }
+
     public Result result(Data data)
     {
         return query.compute(data);
@@ -71,6 +90,8 @@ public class Txn
 
     public String toString()
     {
+        if (isInvalidated())
+            return "invalidated:" + keys;
         return "read:" + read.toString() + (update != null ? ", update:" + update : "");
     }
 
@@ -85,6 +106,12 @@ public class Txn
         return read(instance.shard.range, instance.store());
     }
 
+    public CompletionStage<Data> readAsync(Command command)
+    {
+        Instance instance = command.instance;
+        return read.readAsync(instance.shard.range, instance.store());
+    }
+
     // TODO: move these somewhere else?
     public Stream<Instance> local(Node node)
     {
@@ -96,48 +123,47 @@ public class Txn
         return maxConflict(instance, keys());
     }
 
-    public Stream<Command> conflictsMayExecuteBefore(Instance instance, Timestamp mayExecuteBefore)
+    public void conflictsMayExecuteBefore(Instance instance, Timestamp mayExecuteBefore, Consumer<Command> forEach)
     {
-        return keys().stream().flatMap(key -> {
-            CommandsForKey forKey = instance.commandsForKey(key);
-            return Stream.concat(
-            forKey.uncommitted.headMap(mayExecuteBefore, false).values().stream(),
+        for (int i = 0 ; i < keys.size() ; ++i)
+        {
+            CommandsForKey forKey = instance.commandsForKey(keys.get(i));
+            forKey.uncommitted.forEachBefore(mayExecuteBefore, forEach);
             // TODO: only return latest of Committed?
-            forKey.committedByExecuteAt.headMap(mayExecuteBefore, false).values().stream()
-            );
-        });
+            forKey.committedByExecuteAt.forEachBefore(mayExecuteBefore, forEach);
+        }
     }
 
-    public Stream<Command> uncommittedStartedBefore(Instance instance, TxnId startedBefore)
+    public void uncommittedStartedBefore(Instance instance, TxnId startedBefore, Consumer<Command> forEach)
     {
-        return keys().stream().flatMap(key -> {
-            CommandsForKey forKey = instance.commandsForKey(key);
-            return forKey.uncommitted.headMap(startedBefore, false).values().stream();
-        });
+        for (int i = 0 ; i < keys.size() ; ++i)
+            instance.commandsForKey(keys.get(i)).uncommitted.forEachBefore(startedBefore, forEach);
     }
 
-    public Stream<Command> committedStartedBefore(Instance instance, TxnId startedBefore)
+    public void committedStartedBefore(Instance instance, TxnId startedBefore, Consumer<Command> forEach)
     {
-        return keys().stream().flatMap(key -> {
-            CommandsForKey forKey = instance.commandsForKey(key);
-            return forKey.committedById.headMap(startedBefore, false).values().stream();
-        });
+        for (int i = 0 ; i < keys.size() ; ++i)
+            instance.commandsForKey(keys.get(i)).committedById.forEachBefore(startedBefore, forEach);
     }
 
-    public Stream<Command> uncommittedStartedAfter(Instance instance, TxnId startedAfter)
+    public boolean anyUncommittedStartedAfter(Instance instance, TxnId startedAfter, Predicate<Command> test)
     {
-        return keys().stream().flatMap(key -> {
-            CommandsForKey forKey = instance.commandsForKey(key);
-            return forKey.uncommitted.tailMap(startedAfter, false).values().stream();
-        });
+        for (int i = 0 ; i < keys.size() ; ++i)
+        {
+            if (instance.commandsForKey(keys.get(i)).uncommitted.anyAfter(startedAfter, test))
+                return true;
+        }
+        return false;
     }
 
-    public Stream<Command> committedExecutesAfter(Instance instance, TxnId startedAfter)
+    public boolean anyCommittedExecutesAfter(Instance instance, TxnId startedAfter, Predicate<Command> test)
     {
-        return keys().stream().flatMap(key -> {
-            CommandsForKey forKey = instance.commandsForKey(key);
-            return forKey.committedByExecuteAt.tailMap(startedAfter, false).values().stream();
-        });
+        for (int i = 0 ; i < keys.size() ; ++i)
+        {
+            if (instance.commandsForKey(keys.get(i)).committedByExecuteAt.anyAfter(startedAfter, test))
+                return true;
+        }
+        return false;
     }
 
     public void register(Instance instance, Command command)
@@ -0,0 +1,156 @@
+package accord.txn;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+import accord.api.Data;
+import accord.api.Key;
+import accord.api.Result;
+import accord.api.Serializers;
+import accord.local.Node.Id;
+import accord.utils.Serializer;
+import accord.utils.VarInt;
+
+/**
+ * Serializes the transaction state retained by the protocol, delegating its implementation-defined components
+ * to the provided Serializers. Timestamps and lengths are written as varints, and any component that may be absent
+ * is prefixed by a flag.
+ */
+public class TxnSerializer
+{
+    final Serializers api;
+
+    public TxnSerializer(Serializers api)
+    {
+        this.api = api;
+    }
+
+    public void serialize(Timestamp timestamp, DataOutput out) throws IOException
+    {
+        VarInt.writeUnsigned(timestamp.real, out);
+        VarInt.writeUnsignedInt(timestamp.logical, out);
+        VarInt.writeSigned(timestamp.node.id, out);
+    }
+
+    public Timestamp deserializeTimestamp(DataInput in) throws IOException
+    {
+        return new Timestamp(VarInt.readUnsigned(in), VarInt.readUnsignedInt(in), new Id(VarInt.readSigned(in)));
+    }
+
+    public TxnId deserializeTxnId(DataInput in) throws IOException
+    {
+        return new TxnId(deserializeTimestamp(in));
+    }
+
+    public Ballot deserializeBallot(DataInput in) throws IOException
+    {
+        return new Ballot(deserializeTimestamp(in));
+    }
+
+    public void serialize(Key key, DataOutput out) throws IOException
+    {
+        api.key().serialize(key, out);
+    }
+
+    public Key deserializeKey(DataInput in) throws IOException
+    {
+        return api.key().deserialize(in);
+    }
+
+    public void serialize(Keys keys, DataOutput out) throws IOException
+    {
+        VarInt.writeUnsignedInt(keys.size(), out);
+        for (Key key : keys.keys)
+            serialize(key, out);
+    }
+
+    public Keys deserializeKeys(DataInput in) throws IOException
+    {
+        Key[] keys = new Key[VarInt.readUnsignedInt(in)];
+        for (int i = 0 ; i < keys.length ; ++i)
+            keys[i] = deserializeKey(in);
+        return new Keys(keys);
+    }
+
+    public void serialize(Dependencies deps, DataOutput out) throws IOException
+    {
+        serialize(deps.keys, out);
+        VarInt.writeUnsignedInt(deps.txnIds.length, out);
+        for (TxnId txnId : deps.txnIds)
+            serialize(txnId, out);
+        VarInt.writeUnsignedInt(deps.txnIdToKey.length, out);
+        for (int i : deps.txnIdToKey)
+            VarInt.writeUnsignedInt(i, out);
+    }
+
+    public Dependencies deserializeDependencies(DataInput in) throws IOException
+    {
+        Keys keys = deserializeKeys(in);
+        TxnId[] txnIds = new TxnId[VarInt.readUnsignedInt(in)];
+        for (int i = 0 ; i < txnIds.length ; ++i)
+            txnIds[i] = deserializeTxnId(in);
+        int[] txnIdToKey = new int[VarInt.readUnsignedInt(in)];
+        for (int i = 0 ; i < txnIdToKey.length ; ++i)
+            txnIdToKey[i] = VarInt.readUnsignedInt(in);
+        return new Dependencies(keys, txnIds, txnIdToKey);
+    }
+
+    public void serialize(Txn txn, DataOutput out) throws IOException
+    {
+        serialize(txn.keys, out);
+        serializeNullable(txn.read, api.read(), out);
+        serializeNullable(txn.query, api.query(), out);
+        serializeNullable(txn.update, api.update(), out);
+    }
+
+    public Txn deserializeTxn(DataInput in) throws IOException
+    {
+        Keys keys = deserializeKeys(in);
+        return new Txn(keys, deserializeNullable(api.read(), in), deserializeNullable(api.query(), in), deserializeNullable(api.update(), in));
+    }
+
+    public void serialize(Writes writes, DataOutput out) throws IOException
+    {
+        serialize(writes.executeAt, out);
+        serialize(writes.keys, out);
+        serializeNullable(writes.write, api.write(), out);
+    }
+
+    public Writes deserializeWrites(DataInput in) throws IOException
+    {
+        return new Writes(deserializeTimestamp(in), deserializeKeys(in), deserializeNullable(api.write(), in));
+    }
+
+    public void serialize(Result result, DataOutput out) throws IOException
+    {
+        serializeNullable(result, api.result(), out);
+    }
+
+    public Result deserializeResult(DataInput in) throws IOException
+    {
+        return deserializeNullable(api.result(), in);
+    }
+
+    public void serialize(Data data, DataOutput out) throws IOException
+    {
+        serializeNullable(data, api.data(), out);
+    }
+
+    public Data deserializeData(DataInput in) throws IOException
+    {
+        return deserializeNullable(api.data(), in);
+    }
+
+    public static <T> void serializeNullable(T value, Serializer<T> serializer, DataOutput out) throws IOException
+    {
+        out.writeBoolean(value != null);
+        if (value != null)
+            serializer.serialize(value, out);
+    }
+
+    public static <T> T deserializeNullable(Serializer<T> serializer, DataInput in) throws IOException
+    {
+        return in.readBoolean() ? serializer.deserialize(in) : null;
+    }
+}
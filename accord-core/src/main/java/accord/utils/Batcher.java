@@ -0,0 +1,119 @@
+package accord.utils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+import accord.api.Scheduler;
+import accord.api.Scheduler.Scheduled;
+import accord.local.Node.Id;
+
+/**
+ * Coalesces outbound messages per destination, so that a MessageSink may deliver many messages to the same node
+ * in one transport frame. A batch is flushed once it reaches {@code maxSize} messages, or {@code window} after
+ * its first message was added, whichever is sooner. Messages retain their own identity (and message ids) within
+ * the batch, so the receiver may simply process each in turn, demultiplexing replies to their callbacks as before.
+ */
+public class Batcher<T>
+{
+    class Batch implements Runnable
+    {
+        final Id to;
+        final List<T> messages = new ArrayList<>();
+        Scheduled flush;
+
+        Batch(Id to)
+        {
+            this.to = to;
+        }
+
+        @Override
+        public void run()
+        {
+            flush(this);
+        }
+    }
+
+    private final Scheduler scheduler;
+    private final long window;
+    private final TimeUnit units;
+    private final int maxSize;
+    private final BiConsumer<Id, List<T>> sink;
+    private final Map<Id, Batch> pending = new HashMap<>();
+
+    /**
+     * @param sink invoked with each batch that is flushed; it is not invoked while holding the Batcher's lock
+     */
+    public Batcher(Scheduler scheduler, long window, TimeUnit units, int maxSize, BiConsumer<Id, List<T>> sink)
+    {
+        this.scheduler = scheduler;
+        this.window = window;
+        this.units = units;
+        this.maxSize = maxSize;
+        this.sink = sink;
+    }
+
+    public void add(Id to, T message)
+    {
+        Batch flush = null;
+        synchronized (this)
+        {
+            Batch batch = pending.get(to);
+            if (batch == null)
+            {
+                batch = new Batch(to);
+                pending.put(to, batch);
+            }
+
+            batch.messages.add(message);
+            if (batch.messages.size() >= maxSize)
+            {
+                pending.remove(to);
+                if (batch.flush != null)
+                    batch.flush.cancel();
+                flush = batch;
+            }
+            else if (batch.flush == null)
+            {
+                batch.flush = scheduler.once(batch, window, units);
+            }
+        }
+
+        if (flush != null)
+            sink.accept(to, flush.messages);
+    }
+
+    /**
+     * Immediately flush every pending batch
+     */
+    public void flush()
+    {
+        List<Batch> flush;
+        synchronized (this)
+        {
+            flush = new ArrayList<>(pending.values());
+            pending.clear();
+        }
+
+        for (Batch batch : flush)
+        {
+            if (batch.flush != null)
+                batch.flush.cancel();
+            sink.accept(batch.to, batch.messages);
+        }
+    }
+
+    private void flush(Batch batch)
+    {
+        synchronized (this)
+        {
+            // we may already have been flushed on reaching maxSize
+            if (!pending.remove(batch.to, batch))
+                return;
+        }
+        sink.accept(batch.to, batch.messages);
+    }
+}
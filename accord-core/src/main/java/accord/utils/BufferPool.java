@@ -0,0 +1,131 @@
+package accord.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A pool of fixed size ByteBuffers, so that serializing a message need not allocate a new buffer.
+ * A message that outgrows its buffer is moved to a larger buffer that is not returned to the pool.
+ */
+public class BufferPool
+{
+    public static final int DEFAULT_BUFFER_SIZE = 4096;
+
+    final int bufferSize;
+    final int maxPooled;
+    private final ConcurrentLinkedQueue<ByteBuffer> pool = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pooled = new AtomicInteger();
+
+    public BufferPool()
+    {
+        this(DEFAULT_BUFFER_SIZE, 256);
+    }
+
+    public BufferPool(int bufferSize, int maxPooled)
+    {
+        this.bufferSize = bufferSize;
+        this.maxPooled = maxPooled;
+    }
+
+    /**
+     * @return an empty buffer, which should be released once no longer needed
+     */
+    public ByteBuffer acquire()
+    {
+        ByteBuffer buffer = pool.poll();
+        if (buffer == null)
+            return ByteBuffer.allocate(bufferSize);
+
+        pooled.decrementAndGet();
+        buffer.clear();
+        return buffer;
+    }
+
+    public void release(ByteBuffer buffer)
+    {
+        if (buffer.capacity() != bufferSize || pooled.incrementAndGet() > maxPooled)
+        {
+            pooled.decrementAndGet();
+            return;
+        }
+        pool.offer(buffer);
+    }
+
+    /**
+     * An OutputStream that writes to a buffer acquired from the pool, moving to a larger buffer if it fills
+     */
+    public class Output extends OutputStream
+    {
+        ByteBuffer buffer = acquire();
+
+        @Override
+        public void write(int b)
+        {
+            ensureRemaining(1);
+            buffer.put((byte) b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length)
+        {
+            ensureRemaining(length);
+            buffer.put(bytes, offset, length);
+        }
+
+        private void ensureRemaining(int length)
+        {
+            if (buffer.remaining() >= length)
+                return;
+
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+            buffer.flip();
+            grown.put(buffer);
+            release(buffer);
+            buffer = grown;
+        }
+
+        /**
+         * @return the buffer we have written to, flipped for reading
+         */
+        public ByteBuffer flip()
+        {
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    /**
+     * An InputStream that reads the remaining contents of a buffer
+     */
+    public static class Input extends InputStream
+    {
+        final ByteBuffer buffer;
+
+        public Input(ByteBuffer buffer)
+        {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read()
+        {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException
+        {
+            if (length == 0)
+                return 0;
+            if (!buffer.hasRemaining())
+                return -1;
+            length = Math.min(length, buffer.remaining());
+            buffer.get(bytes, offset, length);
+            return length;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package accord.utils;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Suppliers of the Executor each Instance uses to serialise access to its state.
+ * Each Instance is only ever mutated by its own Executor, so that Instances may proceed in parallel without locking.
+ */
+public class InstanceExecutors
+{
+    /**
+     * Run every task immediately in the calling thread, as for a deterministic simulation
+     */
+    public static final Supplier<Executor> INLINE = () -> Runnable::run;
+
+    /**
+     * Give each Instance its own (daemon) thread
+     */
+    public static Supplier<Executor> singleThreaded(String name)
+    {
+        AtomicInteger nextId = new AtomicInteger();
+        return () -> wrap(Executors.newSingleThreadExecutor(daemon(name + '-' + nextId.getAndIncrement(), null)));
+    }
+
+    /**
+     * A pool of (daemon) threads to share between Instances, e.g. for performing reads
+     */
+    public static Executor threadPool(String name, int threads)
+    {
+        return wrap(Executors.newFixedThreadPool(threads, daemon(name, new AtomicInteger())));
+    }
+
+    private static Executor wrap(ExecutorService executor)
+    {
+        return run -> executor.execute(ThreadPoolScheduler.wrap(run));
+    }
+
+    private static ThreadFactory daemon(String name, AtomicInteger nextId)
+    {
+        return run -> {
+            Thread thread = new Thread(run, nextId == null ? name : name + '-' + nextId.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
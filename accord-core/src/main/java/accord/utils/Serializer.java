@@ -0,0 +1,14 @@
+package accord.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Converts a value to and from a compact binary form
+ */
+public interface Serializer<T>
+{
+    void serialize(T value, DataOutput out) throws IOException;
+    T deserialize(DataInput in) throws IOException;
+}
@@ -0,0 +1,211 @@
+package accord.utils;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+import accord.api.Scheduler;
+import com.google.common.base.Preconditions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A hashed timing wheel, for registering and cancelling many short timeouts in constant time. Each timer is linked
+ * into the slot of the tick its deadline falls in, modulo the number of slots; each {@link #advance()} visits the
+ * slots of every tick that has elapsed since the last, firing only those timers whose deadline has been reached.
+ *
+ * Timers are run by the thread that invokes advance(), outside of the wheel's lock; a timer cancelled after it has
+ * been collected to fire, but before it is run, does not run. The wheel may either be driven
+ * by another Scheduler on every tick via {@link #start()}, or by invoking advance() directly, e.g. in a simulation.
+ */
+public class TimerWheel implements Scheduler
+{
+    private static final Logger logger = LoggerFactory.getLogger(TimerWheel.class);
+
+    public static final long DEFAULT_TICK_MILLIS = 1;
+    public static final int DEFAULT_SLOTS = 1024;
+
+    class Timer implements Scheduled
+    {
+        final Runnable run;
+        final long period;
+        long deadline;
+        Timer prev, next;
+        // read without the lock by advance(), just before running the timer
+        volatile boolean cancelled;
+
+        Timer(Runnable run, long period)
+        {
+            this.run = run;
+            this.period = period;
+        }
+
+        @Override
+        public void cancel()
+        {
+            synchronized (TimerWheel.this)
+            {
+                cancelled = true;
+                if (prev != null)
+                    unlink(this);
+            }
+        }
+    }
+
+    private final Scheduler scheduler;
+    private final LongSupplier nowMillis;
+    private final long tickMillis;
+    private final Timer[] slots;
+    private final int mask;
+    private long tick;
+    private int size;
+
+    public TimerWheel(Scheduler scheduler, LongSupplier nowMillis)
+    {
+        this(scheduler, nowMillis, DEFAULT_TICK_MILLIS, DEFAULT_SLOTS);
+    }
+
+    /**
+     * @param scheduler runs the tasks submitted to {@link #now}, and drives the wheel once started
+     * @param slots rounded up to a power of two
+     */
+    public TimerWheel(Scheduler scheduler, LongSupplier nowMillis, long tickMillis, int slots)
+    {
+        Preconditions.checkArgument(tickMillis > 0 && slots > 0);
+        this.scheduler = scheduler;
+        this.nowMillis = nowMillis;
+        this.tickMillis = tickMillis;
+        int count = 1;
+        while (count < slots)
+            count <<= 1;
+        this.slots = new Timer[count];
+        this.mask = this.slots.length - 1;
+        for (int i = 0 ; i < this.slots.length ; ++i)
+        {
+            Timer sentinel = new Timer(null, 0);
+            sentinel.prev = sentinel.next = sentinel;
+            this.slots[i] = sentinel;
+        }
+        this.tick = nowMillis.getAsLong() / tickMillis;
+    }
+
+    /**
+     * Advance the wheel on every tick of our scheduler
+     */
+    public Scheduled start()
+    {
+        return scheduler.recurring(this::advance, tickMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public Scheduled once(Runnable run, long delay, TimeUnit units)
+    {
+        Timer timer = new Timer(run, 0);
+        schedule(timer, units.toMillis(delay));
+        return timer;
+    }
+
+    @Override
+    public Scheduled recurring(Runnable run, long delay, TimeUnit units)
+    {
+        Timer timer = new Timer(run, Math.max(1, units.toMillis(delay)));
+        schedule(timer, timer.period);
+        return timer;
+    }
+
+    @Override
+    public void now(Runnable run)
+    {
+        scheduler.now(run);
+    }
+
+    /**
+     * The number of timers that have been registered but have neither fired nor been cancelled
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+    private synchronized void schedule(Timer timer, long delayMillis)
+    {
+        if (timer.cancelled)
+            return;
+
+        // round up, so that we never fire early; and never register for a tick whose slot we have already visited
+        long deadline = (nowMillis.getAsLong() + delayMillis + tickMillis - 1) / tickMillis;
+        timer.deadline = Math.max(deadline, tick + 1);
+        Timer sentinel = slots[(int) (timer.deadline & mask)];
+        timer.prev = sentinel.prev;
+        timer.next = sentinel;
+        sentinel.prev.next = timer;
+        sentinel.prev = timer;
+        ++size;
+    }
+
+    private void unlink(Timer timer)
+    {
+        timer.prev.next = timer.next;
+        timer.next.prev = timer.prev;
+        timer.prev = timer.next = null;
+        --size;
+    }
+
+    /**
+     * Fire every timer whose deadline has passed
+     */
+    public void advance()
+    {
+        List<Timer> fire = null;
+        synchronized (this)
+        {
+            long now = nowMillis.getAsLong() / tickMillis;
+            // after a long pause, visiting each slot once suffices to find every expired timer,
+            // but we must then sort them to fire in deadline order
+            boolean sort = now - tick > slots.length;
+            long end = Math.min(now, tick + slots.length);
+            for (long t = tick + 1 ; t <= end ; ++t)
+            {
+                Timer sentinel = slots[(int) (t & mask)];
+                for (Timer timer = sentinel.next ; timer != sentinel ; )
+                {
+                    Timer next = timer.next;
+                    if (timer.deadline <= now)
+                    {
+                        unlink(timer);
+                        if (fire == null) fire = new ArrayList<>();
+                        fire.add(timer);
+                    }
+                    timer = next;
+                }
+            }
+            tick = Math.max(tick, now);
+            if (sort && fire != null)
+                fire.sort(Comparator.comparingLong(timer -> timer.deadline));
+        }
+
+        if (fire == null)
+            return;
+
+        for (Timer timer : fire)
+        {
+            // e.g. the reply a timeout awaited has just arrived, and its callback must not also see the timeout
+            if (timer.cancelled)
+                continue;
+
+            try
+            {
+                timer.run.run();
+            }
+            catch (Throwable t)
+            {
+                // a failing timer must not prevent the others from firing, nor stop whatever drives the wheel
+                logger.error("Unhandled Exception", t);
+            }
+            if (timer.period > 0)
+                schedule(timer, timer.period);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package accord.utils;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Variable length encoding of integers, seven bits per byte with the high bit set on every byte but the last,
+ * so that the small values that predominate in our messages occupy only a byte or two
+ */
+public class VarInt
+{
+    public static void writeUnsigned(long value, DataOutput out) throws IOException
+    {
+        while ((value & ~0x7FL) != 0)
+        {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    public static long readUnsigned(DataInput in) throws IOException
+    {
+        long value = 0;
+        for (int shift = 0 ; shift < 64 ; shift += 7)
+        {
+            byte b = in.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    public static void writeUnsignedInt(int value, DataOutput out) throws IOException
+    {
+        writeUnsigned(value & 0xFFFFFFFFL, out);
+    }
+
+    public static int readUnsignedInt(DataInput in) throws IOException
+    {
+        return (int) readUnsigned(in);
+    }
+
+    // zig-zag encode, so that values of small magnitude are small whatever their sign
+    public static void writeSigned(long value, DataOutput out) throws IOException
+    {
+        writeUnsigned((value << 1) ^ (value >> 63), out);
+    }
+
+    public static long readSigned(DataInput in) throws IOException
+    {
+        long value = readUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+}
@@ -0,0 +1,343 @@
+package accord.coordinate;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import accord.impl.IntKey;
+import accord.impl.TestAgent;
+import accord.impl.TopologyFactory;
+import accord.impl.mock.ManualScheduler;
+import accord.impl.mock.MockCluster.Clock;
+import accord.impl.mock.MockStore;
+import accord.impl.mock.Network;
+import accord.impl.mock.RecordingMessageSink;
+import accord.impl.mock.RecordingMessageSink.Envelope;
+import accord.local.Node;
+import accord.local.Node.Id;
+import accord.messages.Accept;
+import accord.messages.Accept.AcceptOk;
+import accord.messages.Apply;
+import accord.messages.Invalidated;
+import accord.messages.PreAccept;
+import accord.messages.PreAccept.PreAcceptOk;
+import accord.messages.Refused;
+import accord.messages.Request;
+import accord.messages.Timeout;
+import accord.topology.Shards;
+import accord.txn.Dependencies;
+import accord.txn.Keys;
+import accord.txn.Timestamp;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static accord.Utils.id;
+import static accord.Utils.writeTxn;
+
+public class AgreeTest
+{
+    private static final Id ID1 = id(1);
+    private static final Id ID2 = id(2);
+    private static final Id ID3 = id(3);
+    private static final List<Id> IDS = List.of(ID1, ID2, ID3);
+    private static final Shards TOPOLOGY = TopologyFactory.toShards(IDS, 3, IntKey.range(0, 100));
+
+    private static Node createNode(Id nodeId, RecordingMessageSink messageSink, Clock clock)
+    {
+        return createNode(nodeId, messageSink, clock, new ManualScheduler());
+    }
+
+    private static Node createNode(Id nodeId, RecordingMessageSink messageSink, Clock clock, ManualScheduler scheduler)
+    {
+        return createNode(nodeId, messageSink, clock, scheduler, new Node.Options());
+    }
+
+    private static Node createNode(Id nodeId, RecordingMessageSink messageSink, Clock clock, ManualScheduler scheduler, Node.Options options)
+    {
+        MockStore store = new MockStore();
+        return new Node(nodeId, TOPOLOGY, TOPOLOGY.forNode(nodeId), messageSink, new Random(), clock, () -> store, new TestAgent(), scheduler, options);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void reply(RecordingMessageSink messageSink, Class<? extends Request> type, Id from, Object reply)
+    {
+        for (Envelope<Request> request : messageSink.requests)
+        {
+            if (type.isInstance(request.payload) && request.to.equals(from))
+            {
+                request.callback.onSuccess(from, reply);
+                return;
+            }
+        }
+        throw new AssertionError("No " + type.getSimpleName() + " sent to " + from);
+    }
+
+    private static void fail(RecordingMessageSink messageSink, Class<? extends Request> type, Id from)
+    {
+        for (Envelope<Request> request : messageSink.requests)
+        {
+            if (type.isInstance(request.payload) && request.to.equals(from))
+            {
+                request.callback.onFailure(from, new Timeout());
+                return;
+            }
+        }
+        throw new AssertionError("No " + type.getSimpleName() + " sent to " + from);
+    }
+
+    private static long sent(RecordingMessageSink messageSink, Class<? extends Request> type)
+    {
+        return messageSink.requests.stream().filter(e -> type.isInstance(e.payload)).count();
+    }
+
+    @Test
+    void fastPathTest() throws Throwable
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        Clock clock = new Clock(100);
+        ManualScheduler scheduler = new ManualScheduler();
+        Node node = createNode(ID1, messageSink, clock, scheduler);
+
+        TxnId txnId = clock.idForNode(ID1);
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        CompletableFuture<Agreed> agree = Agree.agree(node, txnId, txn).toCompletableFuture();
+        Assertions.assertEquals(3, sent(messageSink, PreAccept.class));
+
+        // a slow path quorum is not enough to give up on the fast path while it may still be reached
+        reply(messageSink, PreAccept.class, ID1, new PreAcceptOk(txnId, Dependencies.NONE));
+        reply(messageSink, PreAccept.class, ID2, new PreAcceptOk(txnId, Dependencies.NONE));
+        Assertions.assertFalse(agree.isDone());
+        Assertions.assertEquals(1, scheduler.pending.size());
+
+        reply(messageSink, PreAccept.class, ID3, new PreAcceptOk(txnId, Dependencies.NONE));
+        Assertions.assertTrue(agree.isDone());
+        Assertions.assertEquals(txnId, agree.get().executeAt);
+        Assertions.assertEquals(0, sent(messageSink, Accept.class));
+        Assertions.assertTrue(scheduler.pending.isEmpty());
+    }
+
+    @Test
+    void slowPathTest() throws Throwable
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        Clock clock = new Clock(100);
+        ManualScheduler scheduler = new ManualScheduler();
+        Node node = createNode(ID1, messageSink, clock, scheduler);
+
+        TxnId txnId = clock.idForNode(ID1);
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        CompletableFuture<Agreed> agree = Agree.agree(node, txnId, txn).toCompletableFuture();
+
+        // a reply that witnessed the transaction later means the fast path cannot be reached, so we need not wait
+        Timestamp later = new Timestamp(clock.increment(10), 0, ID2);
+        reply(messageSink, PreAccept.class, ID1, new PreAcceptOk(txnId, Dependencies.NONE));
+        reply(messageSink, PreAccept.class, ID2, new PreAcceptOk(later, Dependencies.NONE));
+        Assertions.assertEquals(3, sent(messageSink, Accept.class));
+        Assertions.assertTrue(scheduler.pending.isEmpty());
+
+        reply(messageSink, Accept.class, ID1, new AcceptOk(Dependencies.NONE));
+        reply(messageSink, Accept.class, ID2, new AcceptOk(Dependencies.NONE));
+        Assertions.assertTrue(agree.isDone());
+        Assertions.assertEquals(later, agree.get().executeAt);
+    }
+
+    @Test
+    void hybridFastPathTest() throws Throwable
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        Clock clock = new Clock(100);
+        ManualScheduler scheduler = new ManualScheduler();
+        Node node = createNode(ID1, messageSink, clock, scheduler);
+
+        TxnId txnId = clock.idForNode(ID1);
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        CompletableFuture<Agreed> agree = Agree.agree(node, txnId, txn).toCompletableFuture();
+
+        // once we have waited long enough for the last replica we propose txnId by Accept
+        reply(messageSink, PreAccept.class, ID1, new PreAcceptOk(txnId, Dependencies.NONE));
+        reply(messageSink, PreAccept.class, ID2, new PreAcceptOk(txnId, Dependencies.NONE));
+        Assertions.assertEquals(0, sent(messageSink, Accept.class));
+        scheduler.runAll();
+        Assertions.assertEquals(3, sent(messageSink, Accept.class));
+        Assertions.assertFalse(agree.isDone());
+
+        // but if its slow reply completes the fast path quorum, we commit without waiting for the Accept round
+        reply(messageSink, PreAccept.class, ID3, new PreAcceptOk(txnId, Dependencies.NONE));
+        Assertions.assertTrue(agree.isDone());
+        Assertions.assertEquals(txnId, agree.get().executeAt);
+    }
+
+    @Test
+    void hybridSlowPathTest() throws Throwable
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        Clock clock = new Clock(100);
+        ManualScheduler scheduler = new ManualScheduler();
+        Node node = createNode(ID1, messageSink, clock, scheduler);
+
+        TxnId txnId = clock.idForNode(ID1);
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        CompletableFuture<Agreed> agree = Agree.agree(node, txnId, txn).toCompletableFuture();
+
+        reply(messageSink, PreAccept.class, ID1, new PreAcceptOk(txnId, Dependencies.NONE));
+        reply(messageSink, PreAccept.class, ID2, new PreAcceptOk(txnId, Dependencies.NONE));
+        scheduler.runAll();
+        Assertions.assertEquals(3, sent(messageSink, Accept.class));
+
+        // a slow reply that witnessed the transaction later cannot complete the fast path, so we await the Accept round
+        Timestamp later = new Timestamp(clock.increment(10), 0, ID3);
+        reply(messageSink, PreAccept.class, ID3, new PreAcceptOk(later, Dependencies.NONE));
+        Assertions.assertFalse(agree.isDone());
+
+        reply(messageSink, Accept.class, ID1, new AcceptOk(Dependencies.NONE));
+        reply(messageSink, Accept.class, ID2, new AcceptOk(Dependencies.NONE));
+        Assertions.assertTrue(agree.isDone());
+        Assertions.assertEquals(txnId, agree.get().executeAt);
+    }
+
+    @Test
+    void fastPathWaitTest()
+    {
+        // we wait for the fast path however we hedge reads
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        Clock clock = new Clock(100);
+        ManualScheduler scheduler = new ManualScheduler();
+        Node node = createNode(ID1, messageSink, clock, scheduler, new Node.Options().hedgedReads(HedgedReads.DISABLED));
+
+        TxnId txnId = clock.idForNode(ID1);
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        Agree.agree(node, txnId, txn);
+        reply(messageSink, PreAccept.class, ID1, new PreAcceptOk(txnId, Dependencies.NONE));
+        reply(messageSink, PreAccept.class, ID2, new PreAcceptOk(txnId, Dependencies.NONE));
+        Assertions.assertEquals(0, sent(messageSink, Accept.class));
+        Assertions.assertEquals(1, scheduler.pending.size());
+
+        // unless configured not to, in which case we propose by Accept as soon as we have a slow path quorum
+        messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        scheduler = new ManualScheduler();
+        node = createNode(ID1, messageSink, clock, scheduler, new Node.Options().fastPathWait(FastPathWait.DISABLED));
+        Agree.agree(node, txnId, txn);
+        reply(messageSink, PreAccept.class, ID1, new PreAcceptOk(txnId, Dependencies.NONE));
+        reply(messageSink, PreAccept.class, ID2, new PreAcceptOk(txnId, Dependencies.NONE));
+        Assertions.assertEquals(3, sent(messageSink, Accept.class));
+        Assertions.assertTrue(scheduler.pending.isEmpty());
+    }
+
+    @Test
+    void respondedOnceTest()
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        Clock clock = new Clock(100);
+        ManualScheduler scheduler = new ManualScheduler();
+        Node node = createNode(ID1, messageSink, clock, scheduler);
+
+        TxnId txnId = clock.idForNode(ID1);
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        CompletableFuture<Agreed> agree = Agree.agree(node, txnId, txn).toCompletableFuture();
+
+        // a duplicated reply does not count towards either quorum
+        reply(messageSink, PreAccept.class, ID1, new PreAcceptOk(txnId, Dependencies.NONE));
+        reply(messageSink, PreAccept.class, ID1, new PreAcceptOk(txnId, Dependencies.NONE));
+        Assertions.assertTrue(scheduler.pending.isEmpty());
+
+        // and once a replica has failed to respond we no longer wait for it, nor count its reply should it arrive
+        reply(messageSink, PreAccept.class, ID2, new PreAcceptOk(txnId, Dependencies.NONE));
+        fail(messageSink, PreAccept.class, ID3);
+        Assertions.assertEquals(3, sent(messageSink, Accept.class));
+        reply(messageSink, PreAccept.class, ID3, new PreAcceptOk(txnId, Dependencies.NONE));
+        Assertions.assertFalse(agree.isDone());
+    }
+
+    @Test
+    void refusedByQuorumTest()
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        Clock clock = new Clock(100);
+        Node node = createNode(ID1, messageSink, clock);
+
+        TxnId txnId = clock.idForNode(ID1);
+        Keys keys = Keys.of(IntKey.key(10));
+        Txn txn = writeTxn(keys);
+        CompletableFuture<Agreed> agree = Agree.agree(node, txnId, txn).toCompletableFuture();
+
+        Timestamp refuseBefore = new Timestamp(clock.increment(10), 0, ID2);
+        reply(messageSink, PreAccept.class, ID1, new PreAcceptOk(txnId, Dependencies.NONE));
+        reply(messageSink, PreAccept.class, ID2, new Refused(keys, refuseBefore));
+        Assertions.assertFalse(agree.isDone());
+
+        // with two of three replicas refusing it the transaction can never reach a quorum, so we invalidate it
+        reply(messageSink, PreAccept.class, ID3, new Refused(keys, refuseBefore));
+        Assertions.assertTrue(agree.isCompletedExceptionally());
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, agree::get);
+        Assertions.assertTrue(e.getCause() instanceof Invalidated);
+        Assertions.assertEquals(3, sent(messageSink, Apply.class));
+        Assertions.assertEquals(0, sent(messageSink, Accept.class));
+        // and issue no further TxnId the replicas would refuse
+        Assertions.assertTrue(node.uniqueNow().compareTo(refuseBefore) > 0);
+    }
+
+    @Test
+    void refusedBelowQuorumTest() throws Throwable
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        Clock clock = new Clock(100);
+        Node node = createNode(ID1, messageSink, clock);
+
+        TxnId txnId = clock.idForNode(ID1);
+        Keys keys = Keys.of(IntKey.key(10));
+        Txn txn = writeTxn(keys);
+        CompletableFuture<Agreed> agree = Agree.agree(node, txnId, txn).toCompletableFuture();
+
+        // a single refusal only costs us the fast path, as the remaining replicas still form a slow path quorum
+        Timestamp refuseBefore = new Timestamp(clock.increment(10), 0, ID3);
+        reply(messageSink, PreAccept.class, ID3, new Refused(keys, refuseBefore));
+        reply(messageSink, PreAccept.class, ID1, new PreAcceptOk(txnId, Dependencies.NONE));
+        reply(messageSink, PreAccept.class, ID2, new PreAcceptOk(txnId, Dependencies.NONE));
+        Assertions.assertEquals(0, sent(messageSink, Apply.class));
+        Assertions.assertEquals(3, sent(messageSink, Accept.class));
+        Assertions.assertFalse(agree.isDone());
+
+        reply(messageSink, Accept.class, ID1, new AcceptOk(Dependencies.NONE));
+        reply(messageSink, Accept.class, ID2, new AcceptOk(Dependencies.NONE));
+        Assertions.assertTrue(agree.isDone());
+        Assertions.assertEquals(txnId, agree.get().executeAt);
+        Assertions.assertEquals(0, sent(messageSink, Apply.class));
+    }
+
+    @Test
+    void coordinateInvalidatedAgainTest()
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        Clock clock = new Clock(100);
+        Node node = createNode(ID1, messageSink, clock);
+
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        node.coordinate(txn);
+        Assertions.assertEquals(3, sent(messageSink, PreAccept.class));
+        TxnId txnId = ((PreAccept) messageSink.requests.get(0).payload).txnId;
+        messageSink.clearHistory();
+
+        // another replica learns that our transaction was refused by a quorum, and informs us of its invalidation
+        Txn invalidated = txn.invalidate();
+        new Apply(txnId, invalidated, txnId, Dependencies.NONE, invalidated.execute(txnId, null), null).process(node, ID2, 0);
+
+        // so we must coordinate it again with a new TxnId
+        Assertions.assertEquals(3, sent(messageSink, PreAccept.class));
+        for (Envelope<Request> request : messageSink.requests)
+        {
+            if (!(request.payload instanceof PreAccept))
+                continue;
+            PreAccept preAccept = (PreAccept) request.payload;
+            Assertions.assertTrue(preAccept.txnId.compareTo(txnId) > 0);
+            Assertions.assertSame(txn, preAccept.txn);
+        }
+
+        // but only once, however many times it is informed
+        messageSink.clearHistory();
+        new Apply(txnId, invalidated, txnId, Dependencies.NONE, invalidated.execute(txnId, null), null).process(node, ID3, 1);
+        Assertions.assertEquals(0, sent(messageSink, PreAccept.class));
+    }
+}
@@ -0,0 +1,211 @@
+package accord.coordinate;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+
+import accord.api.Result;
+import accord.impl.IntKey;
+import accord.impl.TestAgent;
+import accord.impl.TopologyFactory;
+import accord.impl.mock.ManualScheduler;
+import accord.impl.mock.MockCluster.Clock;
+import accord.impl.mock.MockStore;
+import accord.impl.mock.Network;
+import accord.impl.mock.RecordingMessageSink;
+import accord.impl.mock.RecordingMessageSink.Envelope;
+import accord.local.Command;
+import accord.local.Node;
+import accord.local.Node.Id;
+import accord.local.Status;
+import accord.messages.Apply;
+import accord.messages.Commit;
+import accord.messages.ReadData;
+import accord.messages.ReadData.ReadNack;
+import accord.messages.ReadData.ReadOk;
+import accord.messages.ReadData.ReadReply;
+import accord.messages.Request;
+import accord.messages.Timeout;
+import accord.topology.Shards;
+import accord.txn.Dependencies;
+import accord.txn.Keys;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static accord.Utils.id;
+import static accord.Utils.readTxn;
+import static accord.Utils.writeTxn;
+
+public class ExecuteTest
+{
+    private static final Id ID1 = id(1);
+    private static final Shards TOPOLOGY = TopologyFactory.toShards(List.of(ID1, id(2), id(3)), 3, IntKey.range(0, 100));
+
+    private static Envelope<Request> sent(RecordingMessageSink messageSink, Class<? extends Request> type)
+    {
+        Envelope<Request> result = null;
+        for (Envelope<Request> request : messageSink.requests)
+        {
+            if (type == request.payload.getClass() && request.callback != null)
+            {
+                Assertions.assertNull(result);
+                result = request;
+            }
+        }
+        Assertions.assertNotNull(result, "No " + type.getSimpleName() + " awaiting a reply");
+        return result;
+    }
+
+    @Test
+    void hedgeReadOnlyTest() throws Throwable
+    {
+        // replicas do not process our messages, so that our own read remains outstanding
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        ManualScheduler scheduler = new ManualScheduler();
+        Clock clock = new Clock(100);
+        MockStore store = new MockStore();
+        Node node = new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), messageSink, new Random(), clock, () -> store, new TestAgent(),
+                             scheduler, new Node.Options());
+
+        TxnId txnId = clock.idForNode(ID1);
+        Txn txn = readTxn(Keys.of(IntKey.key(10)));
+        Agreed agreed = new Agreed(txnId, txn, txnId, Dependencies.NONE, TOPOLOGY, null, null);
+        CompletableFuture<Result> execute = Execute.execute(node, agreed).toCompletableFuture();
+        Envelope<Request> read = sent(messageSink, Commit.class);
+
+        // a replica that has already applied the read-only transaction refuses the hedged read
+        scheduler.runAll();
+        Envelope<Request> hedge = sent(messageSink, ReadData.class);
+        hedge.callback.onSuccess(hedge.to, new ReadNack());
+        Assertions.assertFalse(execute.isDone());
+
+        // but we continue to wait for the read we are awaiting
+        read.callback.onSuccess(read.to, new ReadOk(MockStore.DATA));
+        Assertions.assertTrue(execute.isDone());
+        Assertions.assertSame(MockStore.RESULT, execute.get());
+    }
+
+    @Test
+    void hedgedReadSucceedsTest() throws Throwable
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        ManualScheduler scheduler = new ManualScheduler();
+        Clock clock = new Clock(100);
+        MockStore store = new MockStore();
+        Node node = new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), messageSink, new Random(), clock, () -> store, new TestAgent(),
+                             scheduler, new Node.Options());
+
+        Map<Id, Node> replicas = new HashMap<>();
+        Map<Id, RecordingMessageSink> replicaSinks = new HashMap<>();
+        ManualScheduler replicaScheduler = new ManualScheduler();
+        for (Id id : List.of(id(2), id(3)))
+        {
+            replicaSinks.put(id, new RecordingMessageSink(id, Network.BLACK_HOLE));
+            replicas.put(id, new Node(id, TOPOLOGY, TOPOLOGY.forNode(id), replicaSinks.get(id), new Random(), clock, () -> new MockStore(),
+                                      new TestAgent(), replicaScheduler, new Node.Options()));
+        }
+
+        TxnId txnId = clock.idForNode(ID1);
+        Txn txn = readTxn(Keys.of(IntKey.key(10)));
+        Agreed agreed = new Agreed(txnId, txn, txnId, Dependencies.NONE, TOPOLOGY, null, null);
+        CompletableFuture<Result> execute = Execute.execute(node, agreed).toCompletableFuture();
+
+        // our own read stalls, and the replicas we do not read from commit the read-only transaction
+        sent(messageSink, Commit.class);
+        for (Envelope<Request> request : messageSink.requests)
+        {
+            if (replicas.containsKey(request.to))
+                request.payload.process(replicas.get(request.to), ID1, 0);
+        }
+
+        // so we hedge our read with the next closest replica, which has remained readable for us
+        scheduler.runAll();
+        Envelope<Request> hedge = sent(messageSink, ReadData.class);
+        Command hedged = replicas.get(hedge.to).local().findFirst().get().command(txnId);
+        Assertions.assertEquals(Status.ReadyToWrite, hedged.status());
+        hedge.payload.process(replicas.get(hedge.to), ID1, 1);
+        hedge.callback.onSuccess(hedge.to, (ReadReply) replicaSinks.get(hedge.to).responses.get(0).payload);
+        Assertions.assertTrue(execute.isDone());
+        Assertions.assertSame(MockStore.RESULT, execute.get());
+
+        // and applies the transaction once it need remain readable no longer
+        replicaScheduler.runAll();
+        Assertions.assertEquals(Status.Applied, hedged.status());
+    }
+
+    @Test
+    void oneCommitPerReplicaTest() throws Throwable
+    {
+        // two shards whose replicas overlap on id(2) and id(3), coordinated by id(2), a replica of both
+        Id coordinator = id(2);
+        Shards topology = TopologyFactory.toShards(List.of(ID1, id(2), id(3), id(4)), 3, IntKey.range(0, 50), IntKey.range(50, 100));
+        RecordingMessageSink messageSink = new RecordingMessageSink(coordinator, Network.BLACK_HOLE);
+        Clock clock = new Clock(100);
+        MockStore store = new MockStore();
+        Node node = new Node(coordinator, topology, topology.forNode(coordinator), messageSink, new Random(), clock, () -> store,
+                             new TestAgent(), new ManualScheduler(), new Node.Options());
+
+        TxnId txnId = clock.idForNode(coordinator);
+        Txn txn = writeTxn(Keys.of(IntKey.key(10), IntKey.key(60)));
+        Agreed agreed = new Agreed(txnId, txn, txnId, Dependencies.NONE, topology, null, null);
+        CompletableFuture<Result> execute = Execute.execute(node, agreed).toCompletableFuture();
+
+        // every replica of either shard receives exactly one Commit, and we read both shards from ourselves only
+        Map<Id, Integer> commits = new TreeMap<>();
+        for (Envelope<Request> request : messageSink.requests)
+        {
+            if (request.payload instanceof Commit)
+                commits.merge(request.to, 1, Integer::sum);
+        }
+        Assertions.assertEquals(Map.of(ID1, 1, id(2), 1, id(3), 1, id(4), 1), commits);
+        Envelope<Request> read = sent(messageSink, Commit.class);
+        Assertions.assertEquals(coordinator, read.to);
+
+        // so its one reply completes the read of both shards
+        read.callback.onSuccess(read.to, new ReadOk(MockStore.DATA));
+        Assertions.assertTrue(execute.isDone());
+        Assertions.assertSame(MockStore.RESULT, execute.get());
+    }
+
+    @Test
+    void abandonReadOnlyTest()
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        ManualScheduler scheduler = new ManualScheduler();
+        Clock clock = new Clock(100);
+        MockStore store = new MockStore();
+        Node node = new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), messageSink, new Random(), clock, () -> store, new TestAgent(),
+                             scheduler, new Node.Options());
+
+        TxnId txnId = clock.idForNode(ID1);
+        Txn txn = readTxn(Keys.of(IntKey.key(10)));
+        Agreed agreed = new Agreed(txnId, txn, txnId, Dependencies.NONE, TOPOLOGY, null, null);
+        CompletableFuture<Result> execute = Execute.execute(node, agreed).toCompletableFuture();
+
+        // every replica we read from fails to answer, so we abandon the attempt
+        Envelope<Request> read = sent(messageSink, Commit.class);
+        for (int i = 0 ; i < 3 ; ++i)
+        {
+            messageSink.clearHistory();
+            read.callback.onFailure(read.to, new Timeout());
+            if (i < 2) read = sent(messageSink, ReadData.class);
+        }
+        Assertions.assertTrue(execute.isCompletedExceptionally());
+
+        // but every replica will apply the transaction it has committed, so we must still persist it for them to retire
+        Set<Id> applied = new TreeSet<>();
+        for (Envelope<Request> request : messageSink.requests)
+        {
+            if (request.payload instanceof Apply)
+                applied.add(request.to);
+        }
+        Assertions.assertEquals(new TreeSet<>(TOPOLOGY.get(0).nodes), applied);
+    }
+}
@@ -0,0 +1,38 @@
+package accord.coordinate;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class HedgedReadsTest
+{
+    @Test
+    void percentileTest()
+    {
+        HedgedReads hedging = new HedgedReads(0.9, 1, 500, 100);
+
+        // until we have enough observations we wait as long as permitted
+        Assertions.assertEquals(500, hedging.delay());
+
+        for (int i = 1 ; i <= 100 ; ++i)
+            hedging.onLatency(i);
+        Assertions.assertEquals(90, hedging.delay());
+
+        // older observations are forgotten as the window turns over, and the delay is bounded
+        for (int i = 0 ; i < 100 ; ++i)
+            hedging.onLatency(1000);
+        Assertions.assertEquals(500, hedging.delay());
+        for (int i = 0 ; i < 100 ; ++i)
+            hedging.onLatency(0);
+        Assertions.assertEquals(1, hedging.delay());
+    }
+
+    @Test
+    void disabledTest()
+    {
+        Assertions.assertFalse(HedgedReads.DISABLED.isEnabled());
+        HedgedReads.DISABLED.onLatency(10);
+        Assertions.assertTrue(new HedgedReads().isEnabled());
+        Assertions.assertFalse(FastPathWait.DISABLED.isEnabled());
+        Assertions.assertEquals(0, FastPathWait.DISABLED.delay());
+    }
+}
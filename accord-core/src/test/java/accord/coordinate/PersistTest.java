@@ -0,0 +1,107 @@
+package accord.coordinate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import accord.impl.IntKey;
+import accord.impl.TestAgent;
+import accord.impl.TopologyFactory;
+import accord.impl.mock.ManualScheduler;
+import accord.impl.mock.MockCluster.Clock;
+import accord.impl.mock.MockStore;
+import accord.impl.mock.Network;
+import accord.impl.mock.RecordingMessageSink;
+import accord.impl.mock.RecordingMessageSink.Envelope;
+import accord.local.Node;
+import accord.local.Node.Id;
+import accord.messages.Apply;
+import accord.messages.Apply.ApplyOk;
+import accord.messages.InformDurable;
+import accord.messages.InformDurable.InformDurableOk;
+import accord.messages.Request;
+import accord.messages.Timeout;
+import accord.topology.Shards;
+import accord.txn.Dependencies;
+import accord.txn.Keys;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static accord.Utils.id;
+import static accord.Utils.writeTxn;
+
+public class PersistTest
+{
+    private static final Id ID1 = id(1), ID2 = id(2), ID3 = id(3);
+    private static final Shards TOPOLOGY = TopologyFactory.toShards(List.of(ID1, ID2, ID3), 3, IntKey.range(0, 100));
+
+    private static List<Envelope<Request>> sent(RecordingMessageSink messageSink, Class<? extends Request> type)
+    {
+        List<Envelope<Request>> result = new ArrayList<>();
+        for (Envelope<Request> request : messageSink.requests)
+        {
+            if (type == request.payload.getClass())
+                result.add(request);
+        }
+        messageSink.clearHistory();
+        return result;
+    }
+
+    @Test
+    void retryUntilAcknowledgedTest()
+    {
+        // replicas do not process our messages, so that we may answer for them
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        ManualScheduler scheduler = new ManualScheduler();
+        Clock clock = new Clock(100);
+        MockStore store = new MockStore();
+        Node node = new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), messageSink, new Random(), clock, () -> store, new TestAgent(),
+                             scheduler, new Node.Options());
+
+        TxnId txnId = clock.idForNode(ID1);
+        Keys keys = Keys.of(IntKey.key(10));
+        Txn txn = writeTxn(keys);
+        Apply apply = new Apply(txnId, txn, txnId, Dependencies.NONE, txn.execute(txnId, MockStore.DATA), MockStore.RESULT);
+        Persist.persist(node, txnId, keys, TOPOLOGY, apply);
+
+        List<Envelope<Request>> applies = sent(messageSink, Apply.class);
+        Assertions.assertEquals(3, applies.size());
+        TxnId retainedBefore = new TxnId(txnId.real - 10, 0, ID2);
+        applies.get(0).callback.onSuccess(applies.get(0).to, new ApplyOk(txnId));
+        applies.get(1).callback.onSuccess(applies.get(1).to, new ApplyOk(retainedBefore));
+        // a replica that does not respond is retried after a delay, however many times it fails
+        for (int i = 0 ; i < 5 ; ++i)
+        {
+            applies.get(2).callback.onFailure(applies.get(2).to, new Timeout());
+            Assertions.assertTrue(messageSink.requests.isEmpty());
+            scheduler.runAll();
+            List<Envelope<Request>> retries = sent(messageSink, Apply.class);
+            Assertions.assertEquals(1, retries.size());
+            Assertions.assertEquals(applies.get(2).to, retries.get(0).to);
+            applies.set(2, retries.get(0));
+        }
+
+        // only once every replica has applied the transaction do we inform them it is durable, and of the least bound
+        // below which they retain no command
+        applies.get(2).callback.onSuccess(applies.get(2).to, new ApplyOk(txnId));
+        List<Envelope<Request>> informs = sent(messageSink, InformDurable.class);
+        Assertions.assertEquals(3, informs.size());
+        for (Envelope<Request> inform : informs)
+            Assertions.assertEquals(retainedBefore, ((InformDurable) inform.payload).durableBefore);
+        informs.get(0).callback.onSuccess(informs.get(0).to, new InformDurableOk());
+        informs.get(1).callback.onSuccess(informs.get(1).to, new InformDurableOk());
+        informs.get(2).callback.onFailure(informs.get(2).to, new Timeout());
+        scheduler.runAll();
+        List<Envelope<Request>> retries = sent(messageSink, InformDurable.class);
+        Assertions.assertEquals(1, retries.size());
+        Assertions.assertEquals(informs.get(2).to, retries.get(0).to);
+
+        // once every replica has acknowledged, we stop
+        retries.get(0).callback.onSuccess(retries.get(0).to, new InformDurableOk());
+        retries.get(0).callback.onFailure(retries.get(0).to, new Timeout());
+        scheduler.runAll();
+        Assertions.assertTrue(messageSink.requests.isEmpty());
+    }
+}
@@ -4,6 +4,7 @@ import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -49,14 +50,14 @@ public class Cluster implements Scheduler
         this.partitionSet = new HashSet<>();
     }
 
-    NodeSink create(Id self, Random random)
+    NodeSink create(Id self, Random random, boolean batchMessages)
     {
-        NodeSink sink = new NodeSink(self, lookup, this, random);
+        NodeSink sink = new NodeSink(self, lookup, this, random, batchMessages);
         sinks.put(self, sink);
         return sink;
     }
 
-    private void add(Packet packet)
+    void add(Packet packet)
     {
         err.println(clock++ + " SEND " + packet);
         err.flush();
@@ -64,16 +65,6 @@ public class Cluster implements Scheduler
         else pending.add(packet);
     }
 
-    void add(Id from, Id to, long messageId, Request send)
-    {
-        add(new Packet(from, to, messageId, send));
-    }
-
-    void add(Id from, Id to, long replyId, Reply send)
-    {
-        add(new Packet(from, to, replyId, send));
-    }
-
     public boolean processPending()
     {
         if (pending.size() == recurring)
@@ -99,15 +90,12 @@ public class Cluster implements Scheduler
             }
             err.println(clock++ + " RECV " + deliver);
             err.flush();
-            if (deliver.message instanceof Reply)
+            if (deliver.message instanceof PacketBatch)
             {
-                Reply reply = (Reply) deliver.message;
-                Callback callback = reply.isFinal() ? sinks.get(deliver.dst).callbacks.remove(deliver.replyId)
-                                                    : sinks.get(deliver.dst).callbacks.get(deliver.replyId);
-                if (callback != null)
-                    on.scheduler().now(() -> callback.onSuccess(deliver.src, reply));
+                for (Packet packet : ((PacketBatch) deliver.message).packets)
+                    deliver(on, packet);
             }
-            else on.receive((Request)deliver.message, deliver.src, deliver.requestId);
+            else deliver(on, deliver);
         }
         else
         {
@@ -116,6 +104,19 @@ public class Cluster implements Scheduler
         return true;
     }
 
+    private void deliver(Node on, Packet deliver)
+    {
+        if (deliver.message instanceof Reply)
+        {
+            Reply reply = (Reply) deliver.message;
+            Callback callback = reply.isFinal() ? sinks.get(deliver.dst).callbacks.remove(deliver.replyId)
+                                                : sinks.get(deliver.dst).callbacks.get(deliver.replyId);
+            if (callback != null)
+                on.scheduler().now(() -> callback.onSuccess(deliver.src, reply));
+        }
+        else on.receive((Request)deliver.message, deliver.src, deliver.requestId);
+    }
+
     @Override
     public Scheduled recurring(Runnable run, long delay, TimeUnit units)
     {
@@ -140,13 +141,30 @@ public class Cluster implements Scheduler
     }
 
     public static void run(Id[] nodes, Supplier<PendingQueue> queueSupplier, Consumer<Packet> responseSink, Supplier<Random> randomSupplier, Supplier<LongSupplier> nowSupplier, TopologyFactory topologyFactory, Supplier<Packet> in, OutputStream stderr)
+    {
+        run(nodes, queueSupplier, responseSink, randomSupplier, nowSupplier, topologyFactory, in, stderr, null);
+    }
+
+    /**
+     * @param observer if not null, invoked with every node each simulated second, and once more when the simulation completes
+     */
+    public static void run(Id[] nodes, Supplier<PendingQueue> queueSupplier, Consumer<Packet> responseSink, Supplier<Random> randomSupplier, Supplier<LongSupplier> nowSupplier, TopologyFactory topologyFactory, Supplier<Packet> in, OutputStream stderr, Consumer<Collection<Node>> observer)
+    {
+        run(nodes, queueSupplier, responseSink, randomSupplier, nowSupplier, topologyFactory, in, stderr, observer, false);
+    }
+
+    /**
+     * @param observer if not null, invoked with every node each simulated second, and once more when the simulation completes
+     * @param batchMessages if true, each node coalesces the messages it sends to the same destination
+     */
+    public static void run(Id[] nodes, Supplier<PendingQueue> queueSupplier, Consumer<Packet> responseSink, Supplier<Random> randomSupplier, Supplier<LongSupplier> nowSupplier, TopologyFactory topologyFactory, Supplier<Packet> in, OutputStream stderr, Consumer<Collection<Node>> observer, boolean batchMessages)
     {
         Shards shards = topologyFactory.toShards(nodes);
         Map<Id, Node> lookup = new HashMap<>();
         Cluster sinks = new Cluster(queueSupplier, lookup::get, responseSink, stderr);
         for (Id node : nodes)
-            lookup.put(node, new Node(node, shards, shards.forNode(node), sinks.create(node, randomSupplier.get()),
-                                      randomSupplier.get(), nowSupplier.get(), ListStore::new, ListAgent.INSTANCE, sinks));
+            lookup.put(node, new Node(node, shards, shards.forNode(node), sinks.create(node, randomSupplier.get(), batchMessages),
+                                      randomSupplier.get(), nowSupplier.get(), ListStore::new, ListAgent.INSTANCE, sinks, new Node.Options()));
 
         List<Id> nodesList = new ArrayList<>(Arrays.asList(nodes));
         sinks.recurring(() ->
@@ -156,10 +174,15 @@ public class Cluster implements Scheduler
             sinks.partitionSet = new HashSet<>(nodesList.subList(0, partitionSize));
         }, 5L, TimeUnit.SECONDS);
 
+        if (observer != null)
+            sinks.recurring(() -> observer.accept(lookup.values()), 1L, TimeUnit.SECONDS);
+
         Packet next;
         while ((next = in.get()) != null)
             sinks.add(next);
 
         while (sinks.processPending());
+        if (observer != null)
+            observer.accept(lookup.values());
     }
 }
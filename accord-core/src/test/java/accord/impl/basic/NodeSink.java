@@ -1,6 +1,7 @@
 package accord.impl.basic;
 
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.concurrent.TimeUnit;
@@ -13,6 +14,7 @@ import accord.messages.Timeout;
 import accord.messages.Callback;
 import accord.messages.Reply;
 import accord.messages.Request;
+import accord.utils.Batcher;
 
 import static accord.impl.basic.Packet.SENTINEL_MESSAGE_ID;
 
@@ -22,22 +24,42 @@ public class NodeSink implements MessageSink
     final Function<Id, Node> lookup;
     final Cluster parent;
     final Random random;
+    final Batcher<Packet> batcher;
 
     int nextMessageId = 0;
     Map<Long, Callback> callbacks = new LinkedHashMap<>();
 
     public NodeSink(Id self, Function<Id, Node> lookup, Cluster parent, Random random)
+    {
+        this(self, lookup, parent, random, false);
+    }
+
+    public NodeSink(Id self, Function<Id, Node> lookup, Cluster parent, Random random, boolean batch)
     {
         this.self = self;
         this.lookup = lookup;
         this.parent = parent;
         this.random = random;
+        this.batcher = batch ? new Batcher<>(parent, 1L, TimeUnit.MILLISECONDS, 16, this::flush) : null;
+    }
+
+    private void add(Packet packet)
+    {
+        // only coalesce messages between nodes; replies to clients are sent immediately
+        if (batcher == null || lookup.apply(packet.dst) == null) parent.add(packet);
+        else batcher.add(packet.dst, packet);
+    }
+
+    private void flush(Id to, List<Packet> packets)
+    {
+        if (packets.size() == 1) parent.add(packets.get(0));
+        else parent.add(new Packet(self, to, new PacketBatch(packets)));
     }
 
     @Override
     public synchronized void send(Id to, Request send)
     {
-        parent.add(self, to, SENTINEL_MESSAGE_ID, send);
+        add(new Packet(self, to, SENTINEL_MESSAGE_ID, send));
     }
 
     @Override
@@ -45,7 +67,7 @@ public class NodeSink implements MessageSink
     {
         long messageId = nextMessageId++;
         callbacks.put(messageId, callback);
-        parent.add(self, to, messageId, send);
+        add(new Packet(self, to, messageId, send));
         parent.pending.add((PendingRunnable) () -> {
             if (callback == callbacks.remove(messageId))
                 callback.onFailure(to, new Timeout());
@@ -55,6 +77,6 @@ public class NodeSink implements MessageSink
     @Override
     public void reply(Id replyToNode, long replyToMessage, Reply reply)
     {
-        parent.add(self, replyToNode, replyToMessage, reply);
+        add(new Packet(self, replyToNode, replyToMessage, reply));
     }
 }
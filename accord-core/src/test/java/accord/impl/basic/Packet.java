@@ -33,6 +33,15 @@ public class Packet implements Pending
         this.message = reply;
     }
 
+    public Packet(Id src, Id dst, PacketBatch batch)
+    {
+        this.src = src;
+        this.dst = dst;
+        this.requestId = SENTINEL_MESSAGE_ID;
+        this.replyId = SENTINEL_MESSAGE_ID;
+        this.message = batch;
+    }
+
     @Override
     public String toString()
     {
@@ -0,0 +1,24 @@
+package accord.impl.basic;
+
+import java.util.List;
+
+import accord.messages.Message;
+
+/**
+ * Several packets to the same destination, coalesced by a NodeSink to be delivered together
+ */
+public class PacketBatch implements Message
+{
+    public final List<Packet> packets;
+
+    public PacketBatch(List<Packet> packets)
+    {
+        this.packets = packets;
+    }
+
+    @Override
+    public String toString()
+    {
+        return packets.toString();
+    }
+}
@@ -0,0 +1,54 @@
+package accord.impl.mock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import accord.api.Scheduler;
+
+/**
+ * A Scheduler that runs the tasks scheduled with a delay, or to recur, only when asked to, ignoring the delay
+ */
+public class ManualScheduler implements Scheduler
+{
+    public final List<Runnable> pending = new ArrayList<>();
+    public final List<Runnable> recurring = new ArrayList<>();
+
+    @Override
+    public Scheduled recurring(Runnable run, long delay, TimeUnit units)
+    {
+        recurring.add(run);
+        return () -> recurring.remove(run);
+    }
+
+    @Override
+    public Scheduled once(Runnable run, long delay, TimeUnit units)
+    {
+        pending.add(run);
+        return () -> pending.remove(run);
+    }
+
+    @Override
+    public void now(Runnable run)
+    {
+        run.run();
+    }
+
+    /**
+     * Run every task pending now, but not those that they schedule in turn
+     */
+    public void runAll()
+    {
+        List<Runnable> run = new ArrayList<>(pending);
+        pending.clear();
+        run.forEach(Runnable::run);
+    }
+
+    /**
+     * Run every recurring task once
+     */
+    public void runRecurring()
+    {
+        new ArrayList<>(recurring).forEach(Runnable::run);
+    }
+}
@@ -4,6 +4,7 @@ import accord.NetworkFilter;
 import accord.local.Node;
 import accord.local.Node.Id;
 import accord.messages.Timeout;
+import accord.utils.InstanceExecutors;
 import accord.utils.ThreadPoolScheduler;
 import accord.txn.TxnId;
 import accord.messages.Callback;
@@ -72,7 +73,8 @@ public class MockCluster implements Network
                 this::now,
                 () -> store,
                 new TestAgent(),
-                new ThreadPoolScheduler());
+                new ThreadPoolScheduler(),
+                new Node.Options().executors(InstanceExecutors.singleThreaded("instance-" + id)));
     }
 
     private void init()
@@ -1,12 +1,20 @@
 package accord.impl.mock;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import accord.api.Data;
+import accord.api.Key;
 import accord.api.Query;
 import accord.api.Read;
 import accord.api.Result;
+import accord.api.Serializers;
 import accord.api.Store;
 import accord.api.Update;
 import accord.api.Write;
+import accord.impl.IntKey;
+import accord.utils.Serializer;
 
 public class MockStore implements Store
 {
@@ -23,4 +31,48 @@ public class MockStore implements Store
     public static final Query QUERY = data -> RESULT;
     public static final Write WRITE = (range, executeAt, store) -> {};
     public static final Update UPDATE = data -> WRITE;
+
+    static <T> Serializer<T> singleton(T value)
+    {
+        return new Serializer<>()
+        {
+            @Override
+            public void serialize(T ignore, DataOutput out) {}
+
+            @Override
+            public T deserialize(DataInput in)
+            {
+                return value;
+            }
+        };
+    }
+
+    static final Serializer<Key> KEY = new Serializer<>()
+    {
+        @Override
+        public void serialize(Key key, DataOutput out) throws IOException
+        {
+            out.writeInt(((IntKey) key).key);
+        }
+
+        @Override
+        public Key deserialize(DataInput in) throws IOException
+        {
+            return IntKey.key(in.readInt());
+        }
+    };
+
+    /**
+     * Serializers for IntKey and the singleton transaction components of MockStore
+     */
+    public static final Serializers SERIALIZERS = new Serializers()
+    {
+        @Override public Serializer<Key> key() { return KEY; }
+        @Override public Serializer<Read> read() { return singleton(READ); }
+        @Override public Serializer<Query> query() { return singleton(QUERY); }
+        @Override public Serializer<Update> update() { return singleton(UPDATE); }
+        @Override public Serializer<Write> write() { return singleton(WRITE); }
+        @Override public Serializer<Result> result() { return singleton(RESULT); }
+        @Override public Serializer<Data> data() { return singleton(DATA); }
+    };
 }
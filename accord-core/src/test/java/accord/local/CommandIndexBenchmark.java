@@ -0,0 +1,121 @@
+package accord.local;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import accord.local.Node.Id;
+import accord.txn.Timestamp;
+import accord.txn.TxnId;
+
+/**
+ * Compares CommandIndex with the TreeMap it replaced in CommandsForKey, for 10k to 1M commands per key: inserting
+ * them in roughly ascending TxnId order, looking up random TxnIds, scanning the commands before random bounds as
+ * calculateDeps does, and removing every other command as they are committed or retired.
+ *
+ * Run with: [max commands] [rounds]
+ */
+public class CommandIndexBenchmark
+{
+    private static final int LOOKUPS = 100000, SCANS = 200;
+
+    public static void main(String[] args)
+    {
+        int maxCommands = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        for (int round = 0 ; round < rounds ; ++round)
+        {
+            System.out.printf("round %d\n", round);
+            for (int count = 10000 ; count <= maxCommands ; count *= 10)
+            {
+                TxnId[] txnIds = txnIds(new Random(round), count);
+                Command[] commands = new Command[count];
+                for (int i = 0 ; i < count ; ++i)
+                    commands[i] = new Command(null, txnIds[i]);
+
+                long[] treeMap = treeMap(new Random(round), txnIds, commands);
+                long[] index = index(new Random(round), txnIds, commands);
+                System.out.printf("%,9d commands: %-12s insert %,5dms, get %,5dms, scan %,5dms, remove %,5dms (%d)\n",
+                                  count, "TreeMap", treeMap[0], treeMap[1], treeMap[2], treeMap[3], treeMap[4] & 1);
+                System.out.printf("%,9d commands: %-12s insert %,5dms, get %,5dms, scan %,5dms, remove %,5dms (%d)\n",
+                                  count, "CommandIndex", index[0], index[1], index[2], index[3], index[4] & 1);
+            }
+        }
+    }
+
+    /**
+     * TxnIds issued by a few coordinators with skewed clocks, so that they arrive mostly but not entirely in order
+     */
+    private static TxnId[] txnIds(Random random, int count)
+    {
+        TxnId[] txnIds = new TxnId[count];
+        for (int i = 0 ; i < count ; ++i)
+            txnIds[i] = new TxnId(i * 4L + random.nextInt(16), random.nextInt(2), new Id(1 + random.nextInt(5)));
+        return txnIds;
+    }
+
+    private static long[] treeMap(Random random, TxnId[] txnIds, Command[] commands)
+    {
+        long[] result = new long[5];
+        long sink = 0;
+        long start = System.nanoTime();
+        TreeMap<Timestamp, Command> map = new TreeMap<>();
+        for (int i = 0 ; i < txnIds.length ; ++i)
+            map.put(txnIds[i], commands[i]);
+        result[0] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0 ; i < LOOKUPS ; ++i)
+            sink += map.get(txnIds[random.nextInt(txnIds.length)]) != null ? 1 : 0;
+        result[1] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0 ; i < SCANS ; ++i)
+        {
+            for (Command command : map.headMap(txnIds[random.nextInt(txnIds.length)], false).values())
+                sink += command.txnId().logical;
+        }
+        result[2] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0 ; i < txnIds.length ; i += 2)
+            map.remove(txnIds[i]);
+        result[3] = System.nanoTime() - start;
+
+        for (int i = 0 ; i < 4 ; ++i)
+            result[i] /= 1000000;
+        result[4] = sink + map.size();
+        return result;
+    }
+
+    private static long[] index(Random random, TxnId[] txnIds, Command[] commands)
+    {
+        long[] result = new long[5];
+        long[] sink = new long[1];
+        long start = System.nanoTime();
+        CommandIndex index = new CommandIndex();
+        for (int i = 0 ; i < txnIds.length ; ++i)
+            index.put(txnIds[i], commands[i]);
+        result[0] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0 ; i < LOOKUPS ; ++i)
+            sink[0] += index.get(txnIds[random.nextInt(txnIds.length)]) != null ? 1 : 0;
+        result[1] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0 ; i < SCANS ; ++i)
+            index.forEachBefore(txnIds[random.nextInt(txnIds.length)], command -> sink[0] += command.txnId().logical);
+        result[2] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0 ; i < txnIds.length ; i += 2)
+            index.remove(txnIds[i]);
+        result[3] = System.nanoTime() - start;
+
+        for (int i = 0 ; i < 4 ; ++i)
+            result[i] /= 1000000;
+        result[4] = sink[0] + index.size();
+        return result;
+    }
+}
@@ -0,0 +1,74 @@
+package accord.local;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import accord.local.Node.Id;
+import accord.txn.Timestamp;
+import accord.txn.TxnId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class CommandIndexTest
+{
+    private static TxnId txnId(Random random, int range)
+    {
+        return new TxnId(random.nextInt(range), random.nextInt(2), new Id(random.nextInt(2)));
+    }
+
+    private static List<Command> list(TreeMap<Timestamp, Command> model)
+    {
+        return new ArrayList<>(model.values());
+    }
+
+    @Test
+    void randomTest()
+    {
+        Random random = new Random();
+        for (int run = 0 ; run < 100 ; ++run)
+        {
+            int range = 10 + random.nextInt(1000);
+            boolean ascending = random.nextBoolean();
+            TreeMap<Timestamp, Command> model = new TreeMap<>();
+            CommandIndex index = new CommandIndex();
+            for (int op = 0 ; op < 2000 ; ++op)
+            {
+                TxnId txnId = ascending && random.nextInt(4) > 0 ? new TxnId(range + op, 0, new Id(1)) : txnId(random, range);
+                if (random.nextInt(3) == 0)
+                {
+                    Assertions.assertSame(model.remove(txnId), index.remove(txnId));
+                }
+                else
+                {
+                    Command command = new Command(null, txnId);
+                    Assertions.assertSame(model.put(txnId, command), index.put(txnId, command));
+                }
+                Assertions.assertEquals(model.size(), index.size());
+
+                TxnId bound = txnId(random, range);
+                Assertions.assertSame(model.get(bound), index.get(bound));
+                if (op % 100 == 0)
+                {
+                    List<Command> before = new ArrayList<>(), after = new ArrayList<>(), all = new ArrayList<>();
+                    index.forEachBefore(bound, before::add);
+                    index.forEachAfter(bound, after::add);
+                    index.forEach(all::add);
+                    Assertions.assertEquals(list(new TreeMap<>(model.headMap(bound, false))), before);
+                    Assertions.assertEquals(list(new TreeMap<>(model.tailMap(bound, false))), after);
+                    Assertions.assertEquals(list(model), all);
+                }
+
+                if (!model.isEmpty())
+                {
+                    Map.Entry<Timestamp, Command> entry = random.nextBoolean() ? model.firstEntry() : model.lastEntry();
+                    Command test = entry.getValue();
+                    Assertions.assertEquals(model.headMap(bound, false).containsValue(test), index.anyBefore(bound, c -> c == test));
+                    Assertions.assertEquals(model.tailMap(bound, false).containsValue(test), index.anyAfter(bound, c -> c == test));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package accord.local;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import accord.impl.IntKey;
+import accord.impl.TestAgent;
+import accord.impl.TopologyFactory;
+import accord.impl.mock.MockCluster.Clock;
+import accord.impl.mock.MockStore;
+import accord.impl.mock.Network;
+import accord.impl.mock.RecordingMessageSink;
+import accord.local.Node.Id;
+import accord.topology.Shards;
+import accord.utils.ThreadPoolScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static accord.Utils.id;
+import static accord.impl.IntKey.key;
+import static accord.impl.IntKey.keys;
+import static accord.impl.IntKey.range;
+
+public class InstanceRouterTest
+{
+    private static final Id ID1 = id(1);
+    // with a single replica per shard, we replicate only the first and last of these
+    private static final Shards TOPOLOGY = TopologyFactory.toShards(List.of(ID1, id(2), id(3)), 1,
+                                                                    range(0, 10), range(10, 20), range(20, 30), range(30, 40));
+
+    @Test
+    void routeTest()
+    {
+        MockStore store = new MockStore();
+        Node node = new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), new RecordingMessageSink(ID1, Network.BLACK_HOLE), new Random(), new Clock(100),
+                             () -> store, new TestAgent(), new ThreadPoolScheduler(), new Node.Options());
+        List<Instance> instances = new ArrayList<>();
+        node.local().forEach(instances::add);
+        Assertions.assertEquals(2, instances.size());
+
+        List<Instance> routed = new ArrayList<>();
+        node.local(keys(5, 6, 15, 25, 35, 36), routed::add);
+        Assertions.assertEquals(instances, routed);
+        Assertions.assertEquals(2, node.localCount(keys(5, 6, 15, 25, 35, 36)));
+
+        routed.clear();
+        node.local(keys(15, 25, 36), routed::add);
+        Assertions.assertEquals(List.of(instances.get(1)), routed);
+        Assertions.assertEquals(0, node.localCount(keys(15, 25)));
+
+        Assertions.assertSame(instances.get(0), node.local(key(5)).orElseThrow());
+        Assertions.assertSame(instances.get(1), node.local(key(35)).orElseThrow());
+        Assertions.assertFalse(node.local(key(15)).isPresent());
+        Assertions.assertFalse(node.local(key(45)).isPresent());
+    }
+}
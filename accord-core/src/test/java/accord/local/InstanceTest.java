@@ -0,0 +1,146 @@
+package accord.local;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import accord.impl.IntKey;
+import accord.impl.TestAgent;
+import accord.impl.TopologyFactory;
+import accord.impl.mock.ManualScheduler;
+import accord.impl.mock.MockCluster.Clock;
+import accord.impl.mock.MockStore;
+import accord.impl.mock.Network;
+import accord.impl.mock.RecordingMessageSink;
+import accord.local.Node.Id;
+import accord.messages.FetchTxn;
+import accord.messages.PreAccept;
+import accord.messages.PreAccept.PreAcceptOk;
+import accord.messages.Refused;
+import accord.topology.Shards;
+import accord.txn.Dependencies;
+import accord.txn.Keys;
+import accord.txn.Timestamp;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import accord.utils.ThreadPoolScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static accord.Utils.id;
+import static accord.Utils.readTxn;
+import static accord.Utils.writeTxn;
+
+public class InstanceTest
+{
+    private static final Id ID1 = id(1);
+    private static final Shards TOPOLOGY = TopologyFactory.toShards(List.of(ID1, id(2), id(3)), 3, IntKey.range(0, 100));
+
+    private static Instance createInstance()
+    {
+        MockStore store = new MockStore();
+        Node node = new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), new RecordingMessageSink(ID1, Network.BLACK_HOLE), new Random(), new Clock(100),
+                             () -> store, new TestAgent(), new ThreadPoolScheduler(), new Node.Options());
+        return node.local().findFirst().get();
+    }
+
+    @Test
+    void longChainTest()
+    {
+        Instance instance = createInstance();
+        Keys keys = Keys.of(IntKey.key(10));
+        Txn write = writeTxn(keys), read = readTxn(keys);
+
+        // a chain of reads, each of which may only be applied once its predecessor has been, headed by a write
+        int count = 50000;
+        TxnId head = new TxnId(1, 0, ID1);
+        instance.command(head).commit(write, Dependencies.NONE, head);
+        TxnId prev = head;
+        for (int i = 1 ; i <= count ; ++i)
+        {
+            TxnId next = new TxnId(i + 1, 0, ID1);
+            instance.command(next).commit(read, Dependencies.builder().add(prev, keys).build(), next);
+            prev = next;
+        }
+        Assertions.assertEquals(Status.ReadyToRead, instance.command(prev).status());
+
+        // applying the head of the chain must apply every read, without recursing through the chain
+        instance.command(head).apply(write, Dependencies.NONE, head, write.execute(head, MockStore.DATA), MockStore.RESULT);
+        Assertions.assertEquals(Status.Applied, instance.command(prev).status());
+    }
+
+    @Test
+    void applyUncommittedReadTest()
+    {
+        Instance instance = createInstance();
+        Txn read = readTxn(Keys.of(IntKey.key(10)));
+        TxnId txnId = new TxnId(1, 0, ID1);
+        List<Status> statuses = new ArrayList<>();
+        instance.command(txnId).addListener(command -> statuses.add(command.status()));
+
+        // committing a read-only transaction applies it, after which Apply must not rewind its status
+        instance.command(txnId).apply(read, Dependencies.NONE, txnId, read.execute(txnId, MockStore.DATA), MockStore.RESULT);
+        Assertions.assertEquals(Status.Applied, statuses.get(statuses.size() - 1));
+        for (int i = 1 ; i < statuses.size() ; ++i)
+            Assertions.assertTrue(statuses.get(i - 1).compareTo(statuses.get(i)) <= 0, statuses.toString());
+    }
+
+    @Test
+    void fetchOnceTest()
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        MockStore store = new MockStore();
+        Node node = new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), messageSink, new Random(), new Clock(100),
+                             () -> store, new TestAgent(), new ManualScheduler(), new Node.Options());
+        Instance instance = node.local().findFirst().get();
+
+        // every command depending on the same transaction we do not know shares a single Fetch of it
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        TxnId missing = new TxnId(10, 0, id(2));
+        Dependencies deps = Dependencies.builder().add(missing, txn.keys).build();
+        for (int i = 0 ; i < 5 ; ++i)
+        {
+            TxnId dependent = new TxnId(20 + i, 0, id(3));
+            instance.command(dependent).commit(txn, deps, dependent);
+        }
+        Assertions.assertEquals(TOPOLOGY.get(0).nodes.size(), messageSink.requests.stream().filter(e -> e.payload instanceof FetchTxn).count());
+    }
+
+    @Test
+    void delayedPreAcceptTest()
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        MockStore store = new MockStore();
+        Clock clock = new Clock(900);
+        ManualScheduler scheduler = new ManualScheduler();
+        Node node = new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), messageSink, new Random(), clock,
+                             () -> store, new TestAgent(), scheduler, new Node.Options().refuseMargin(100));
+        Instance instance = node.local().findFirst().get();
+
+        // we may refuse nothing until our clock has been sampled for the margin
+        for (int i = 0 ; i < Node.CLOCK_SAMPLES ; ++i)
+            scheduler.runRecurring();
+        Assertions.assertEquals(Timestamp.NONE, instance.retainedBefore());
+        clock.increment(100);
+        scheduler.runRecurring();
+
+        // the oldest command we retain is recent, but we report a bound that trails our clock by the margin instead
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        TxnId applied = new TxnId(950, 0, id(2));
+        instance.command(applied).commit(txn, Dependencies.NONE, applied);
+        instance.command(applied).apply(txn, Dependencies.NONE, applied, txn.execute(applied, MockStore.DATA), MockStore.RESULT);
+        Assertions.assertEquals(new Timestamp(900, 0, Id.NONE), instance.retainedBefore());
+
+        // so a transaction whose PreAccept was delayed past the oldest command we retain may still be witnessed
+        Txn delayed = writeTxn(Keys.of(IntKey.key(20)));
+        TxnId delayedId = new TxnId(920, 0, id(3));
+        new PreAccept(delayedId, delayed).process(node, id(3), 0);
+        Assertions.assertTrue(messageSink.responses.get(0).payload instanceof PreAcceptOk);
+        instance.command(delayedId).commit(delayed, Dependencies.NONE, delayedId);
+        Assertions.assertEquals(Status.ReadyToWrite, instance.command(delayedId).status());
+
+        // but one that trails our clock by more than the margin is refused
+        new PreAccept(new TxnId(890, 0, id(3)), delayed).process(node, id(3), 1);
+        Assertions.assertTrue(messageSink.responses.get(1).payload instanceof Refused);
+    }
+}
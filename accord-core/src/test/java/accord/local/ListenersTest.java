@@ -0,0 +1,90 @@
+package accord.local;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class ListenersTest
+{
+    static class Recording implements Listener
+    {
+        final int id;
+        final List<Integer> notified;
+
+        Recording(int id, List<Integer> notified)
+        {
+            this.id = id;
+            this.notified = notified;
+        }
+
+        @Override
+        public void onChange(Command command)
+        {
+            notified.add(id);
+        }
+    }
+
+    @Test
+    void addRemoveTest()
+    {
+        // cover both the scanned and the indexed representations
+        for (int count : new int[] { 3, 40 })
+        {
+            List<Integer> notified = new ArrayList<>();
+            Listeners listeners = new Listeners();
+            Recording[] recordings = new Recording[count];
+            for (int i = 0 ; i < count ; ++i)
+            {
+                recordings[i] = new Recording(i, notified);
+                Assertions.assertTrue(listeners.add(recordings[i]));
+            }
+            Assertions.assertFalse(listeners.add(recordings[0]));
+            Assertions.assertEquals(count, listeners.size());
+
+            List<Integer> expect = new ArrayList<>();
+            for (int i = 0 ; i < count ; ++i)
+            {
+                if (i % 2 == 0) Assertions.assertTrue(listeners.remove(recordings[i]));
+                else expect.add(i);
+            }
+            Assertions.assertFalse(listeners.remove(recordings[0]));
+            Assertions.assertEquals(expect.size(), listeners.size());
+
+            listeners.onChange(null);
+            Assertions.assertEquals(expect, notified);
+        }
+    }
+
+    @Test
+    void modifyWhileNotifyingTest()
+    {
+        List<Integer> notified = new ArrayList<>();
+        Listeners listeners = new Listeners();
+        Recording last = new Recording(2, notified);
+        Recording added = new Recording(3, notified);
+        listeners.add(new Listener()
+        {
+            @Override
+            public void onChange(Command command)
+            {
+                notified.add(0);
+                // remove ourselves and a listener not yet notified, and add another that must not be notified
+                listeners.remove(this);
+                listeners.remove(last);
+                listeners.add(added);
+            }
+        });
+        listeners.add(new Recording(1, notified));
+        listeners.add(last);
+
+        listeners.onChange(null);
+        Assertions.assertEquals(List.of(0, 1), notified);
+        Assertions.assertEquals(2, listeners.size());
+
+        notified.clear();
+        listeners.onChange(null);
+        Assertions.assertEquals(List.of(1, 3), notified);
+    }
+}
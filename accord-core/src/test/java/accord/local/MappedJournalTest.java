@@ -0,0 +1,258 @@
+package accord.local;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import accord.impl.IntKey;
+import accord.impl.TestAgent;
+import accord.impl.TopologyFactory;
+import accord.impl.mock.MockCluster.Clock;
+import accord.impl.mock.MockStore;
+import accord.impl.mock.Network;
+import accord.impl.mock.RecordingMessageSink;
+import accord.local.Journal.Record;
+import accord.local.Node.Id;
+import accord.messages.FetchTxn;
+import accord.topology.Shards;
+import accord.txn.Ballot;
+import accord.txn.Dependencies;
+import accord.txn.Keys;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import accord.txn.TxnSerializer;
+import accord.utils.ThreadPoolScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static accord.Utils.id;
+import static accord.Utils.writeTxn;
+
+public class MappedJournalTest
+{
+    private static final Id ID1 = id(1);
+    private static final Shards TOPOLOGY = TopologyFactory.toShards(List.of(ID1, id(2), id(3)), 3, IntKey.range(0, 100));
+
+    static final TxnSerializer SERIALIZER = new TxnSerializer(MockStore.SERIALIZERS);
+
+    private static Node createNode(MappedJournal journal, Clock clock)
+    {
+        return createNode(journal, clock, new RecordingMessageSink(ID1, Network.BLACK_HOLE));
+    }
+
+    private static Node createNode(MappedJournal journal, Clock clock, RecordingMessageSink messageSink)
+    {
+        MockStore store = new MockStore();
+        return new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), messageSink, new Random(), clock,
+                        () -> store, new TestAgent(), new ThreadPoolScheduler(),
+                        new Node.Options().journal(journal));
+    }
+
+    private static List<Record> replay(MappedJournal journal)
+    {
+        List<Record> records = new ArrayList<>();
+        journal.replay(records::add);
+        return records;
+    }
+
+    @Test
+    void replayTest(@TempDir File directory) throws IOException
+    {
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        TxnId txnId = new TxnId(10, 0, ID1);
+        Dependencies deps = Dependencies.builder().add(new TxnId(5, 0, ID1), txn.keys).build();
+
+        // a small segment size, so that we span several segments
+        try (MappedJournal journal = new MappedJournal(directory, 256, SERIALIZER))
+        {
+            for (int i = 0 ; i < 10 ; ++i)
+                journal.append(Record.commit(0, txnId, txn, deps, new TxnId(20 + i, 0, ID1)));
+        }
+        Assertions.assertTrue(directory.listFiles().length > 1);
+
+        // a record that was only partially written is discarded, along with everything after it
+        File last = new File(directory, "journal-" + (directory.listFiles().length - 1) + ".log");
+        try (RandomAccessFile file = new RandomAccessFile(last, "rw"))
+        {
+            file.seek(file.length() - 4);
+            file.writeInt(-1);
+        }
+
+        try (MappedJournal journal = new MappedJournal(directory, 256, SERIALIZER))
+        {
+            List<Record> records = replay(journal);
+            Assertions.assertEquals(10, records.size());
+            for (int i = 0 ; i < records.size() ; ++i)
+            {
+                Record record = records.get(i);
+                Assertions.assertEquals(Journal.Kind.COMMIT, record.kind);
+                Assertions.assertEquals(txnId, record.txnId);
+                Assertions.assertEquals(txn.keys.toString(), record.txn.keys.toString());
+                Assertions.assertEquals(new TxnId(20 + i, 0, ID1), record.executeAt);
+                Assertions.assertEquals(deps.toString(), record.deps.toString());
+            }
+
+            journal.append(Record.recover(0, txnId, txn, new Ballot(30, 0, ID1)));
+        }
+
+        try (MappedJournal journal = new MappedJournal(directory, 256, SERIALIZER))
+        {
+            List<Record> records = replay(journal);
+            Assertions.assertEquals(11, records.size());
+            Assertions.assertEquals(new Ballot(30, 0, ID1), records.get(10).ballot);
+        }
+    }
+
+    @Test
+    void groupCommitTest(@TempDir File directory) throws InterruptedException
+    {
+        try (MappedJournal journal = new MappedJournal(directory, SERIALIZER))
+        {
+            // with nothing to sync we need not wait
+            CountDownLatch durable = new CountDownLatch(3);
+            journal.afterDurable(durable::countDown);
+            Assertions.assertEquals(2, durable.getCount());
+
+            journal.append(Record.witness(0, new TxnId(10, 0, ID1), writeTxn(Keys.of(IntKey.key(10))), new TxnId(10, 0, ID1)));
+            journal.afterDurable(durable::countDown);
+            journal.afterDurable(durable::countDown);
+            Assertions.assertTrue(durable.await(1, TimeUnit.MINUTES));
+        }
+    }
+
+    @Test
+    void afterDurableDuringSyncTest(@TempDir File directory) throws InterruptedException
+    {
+        CountDownLatch forcing = new CountDownLatch(1), forced = new CountDownLatch(1);
+        MappedJournal journal = new MappedJournal(directory, SERIALIZER)
+        {
+            @Override
+            void force(MappedByteBuffer segment)
+            {
+                forcing.countDown();
+                try
+                {
+                    forced.await();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new IllegalStateException(e);
+                }
+                super.force(segment);
+            }
+        };
+        try (journal)
+        {
+            CountDownLatch first = new CountDownLatch(1), second = new CountDownLatch(1);
+            journal.append(Record.witness(0, new TxnId(10, 0, ID1), writeTxn(Keys.of(IntKey.key(10))), new TxnId(10, 0, ID1)));
+            journal.afterDurable(first::countDown);
+            Assertions.assertTrue(forcing.await(1, TimeUnit.MINUTES));
+
+            // the sync in progress has claimed our record, but it is not yet durable
+            journal.afterDurable(second::countDown);
+            Assertions.assertEquals(1, second.getCount());
+
+            forced.countDown();
+            Assertions.assertTrue(first.await(1, TimeUnit.MINUTES));
+            Assertions.assertTrue(second.await(1, TimeUnit.MINUTES));
+        }
+    }
+
+    @Test
+    void restartTest(@TempDir File directory)
+    {
+        Clock clock = new Clock(100);
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        TxnId first = new TxnId(10, 0, id(2)), second = new TxnId(20, 0, id(3)), third = new TxnId(30, 0, id(2));
+        Ballot ballot = new Ballot(40, 0, id(3));
+
+        try (MappedJournal journal = new MappedJournal(directory, SERIALIZER))
+        {
+            Instance instance = createNode(journal, clock).local().findFirst().get();
+            instance.command(first).commit(txn, Dependencies.NONE, first);
+            instance.command(second).commit(txn, Dependencies.builder().add(first, txn.keys).build(), second);
+            instance.command(third).witness(txn);
+            instance.command(third).accept(ballot, txn, third, Dependencies.NONE);
+            instance.command(first).apply(txn, Dependencies.NONE, first, txn.execute(first, MockStore.DATA), MockStore.RESULT);
+        }
+
+        try (MappedJournal journal = new MappedJournal(directory, SERIALIZER))
+        {
+            Node node = createNode(journal, clock);
+            Instance instance = node.local().findFirst().get();
+            Assertions.assertEquals(Status.Applied, instance.command(first).status());
+            // having replayed the application of its dependency, second awaits only its own Apply
+            Assertions.assertEquals(Status.ReadyToWrite, instance.command(second).status());
+            Assertions.assertEquals(Status.Accepted, instance.command(third).status());
+            Assertions.assertEquals(ballot, instance.command(third).promised());
+            Assertions.assertEquals(third, instance.command(third).executeAt());
+
+            // nor do we issue any timestamp we had witnessed before restarting
+            Assertions.assertTrue(node.uniqueNow().compareTo(ballot) > 0);
+        }
+    }
+
+    @Test
+    void txnJournaledOnceTest(@TempDir File directory)
+    {
+        Clock clock = new Clock(100);
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        TxnId txnId = new TxnId(10, 0, id(2));
+        Ballot ballot = new Ballot(20, 0, id(3));
+
+        try (MappedJournal journal = new MappedJournal(directory, SERIALIZER))
+        {
+            Instance instance = createNode(journal, clock).local().findFirst().get();
+            instance.command(txnId).witness(txn);
+            instance.command(txnId).accept(ballot, txn, txnId, Dependencies.NONE);
+            instance.command(txnId).commit(txn.invalidate(), Dependencies.NONE, txnId);
+
+            // only the first record and the invalidation that replaces it carry a Txn
+            List<Record> records = replay(journal);
+            Assertions.assertEquals(3, records.size());
+            Assertions.assertNotNull(records.get(0).txn);
+            Assertions.assertNull(records.get(1).txn);
+            Assertions.assertTrue(records.get(2).txn.isInvalidated());
+        }
+
+        try (MappedJournal journal = new MappedJournal(directory, SERIALIZER))
+        {
+            Instance instance = createNode(journal, clock).local().findFirst().get();
+            Assertions.assertEquals(Status.Applied, instance.command(txnId).status());
+            Assertions.assertTrue(instance.command(txnId).txn().isInvalidated());
+        }
+    }
+
+    @Test
+    void fetchAfterReplayTest(@TempDir File directory)
+    {
+        Clock clock = new Clock(100);
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        TxnId witnessed = new TxnId(10, 0, id(2)), missing = new TxnId(15, 0, id(3)), committed = new TxnId(20, 0, id(3));
+
+        try (MappedJournal journal = new MappedJournal(directory, SERIALIZER))
+        {
+            Instance instance = createNode(journal, clock).local().findFirst().get();
+            Dependencies deps = Dependencies.builder().add(witnessed, txn.keys).add(missing, txn.keys).build();
+            instance.command(committed).commit(txn, deps, committed);
+            instance.command(witnessed).witness(txn);
+        }
+
+        // we fetch only the dependency we have still not witnessed once we have replayed every record
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        try (MappedJournal journal = new MappedJournal(directory, SERIALIZER))
+        {
+            Instance instance = createNode(journal, clock, messageSink).local().findFirst().get();
+            Assertions.assertEquals(Status.PreAccepted, instance.command(witnessed).status());
+            Assertions.assertEquals(Status.NotWitnessed, instance.command(missing).status());
+        }
+        Assertions.assertEquals(3, messageSink.requests.stream().filter(e -> e.payload instanceof FetchTxn).count());
+    }
+}
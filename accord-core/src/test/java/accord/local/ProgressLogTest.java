@@ -0,0 +1,161 @@
+package accord.local;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import accord.api.Scheduler.Scheduled;
+import accord.impl.IntKey;
+import accord.impl.TestAgent;
+import accord.impl.TopologyFactory;
+import accord.impl.mock.MockCluster.Clock;
+import accord.impl.mock.MockStore;
+import accord.impl.mock.Network;
+import accord.impl.mock.ManualScheduler;
+import accord.impl.mock.RecordingMessageSink;
+import accord.local.Node.Id;
+import accord.messages.BeginRecovery;
+import accord.topology.Shards;
+import accord.txn.Dependencies;
+import accord.txn.Keys;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static accord.Utils.id;
+import static accord.Utils.readTxn;
+import static accord.Utils.writeTxn;
+
+public class ProgressLogTest
+{
+    private static final Id ID1 = id(1);
+    private static final Shards TOPOLOGY = TopologyFactory.toShards(List.of(ID1, id(2), id(3)), 3, IntKey.range(0, 100));
+
+    private static List<String> recovering(RecordingMessageSink messageSink)
+    {
+        List<String> result = new ArrayList<>();
+        for (RecordingMessageSink.Envelope<?> envelope : messageSink.requests)
+        {
+            if (envelope.payload instanceof BeginRecovery && !result.contains(envelope.payload.toString()))
+                result.add(envelope.payload.toString());
+        }
+        return result;
+    }
+
+    @Test
+    void recoverBlockingTest()
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        ManualScheduler scheduler = new ManualScheduler();
+        MockStore store = new MockStore();
+        Node node = new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), messageSink, new Random(), new Clock(100), () -> store, new TestAgent(), scheduler, new Node.Options());
+        Instance instance = node.local().findFirst().get();
+
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        TxnId blocker = new TxnId(10, 0, id(2)), blocked = new TxnId(20, 0, id(3));
+        instance.command(blocker).witness(txn);
+        instance.command(blocked).commit(txn, Dependencies.builder().add(blocker, txn.keys).build(), blocked);
+        Assertions.assertEquals(2, instance.progressLog().size());
+
+        // both commands are blocked by the uncommitted transaction, so we recover only that
+        scheduler.runAll();
+        List<String> recovering = recovering(messageSink);
+        Assertions.assertEquals(1, recovering.size());
+        Assertions.assertTrue(recovering.get(0).startsWith("BeginRecovery{txnId:" + blocker), recovering.get(0));
+        Assertions.assertEquals(2, scheduler.pending.size());
+
+        instance.command(blocker).apply(txn, Dependencies.NONE, blocker, txn.execute(blocker, MockStore.DATA), MockStore.RESULT);
+        Assertions.assertEquals(1, instance.progressLog().size());
+
+        // the blocked command now awaits only its own Apply, so if that does not arrive we recover it
+        scheduler.runAll();
+        recovering = recovering(messageSink);
+        Assertions.assertEquals(2, recovering.size());
+        Assertions.assertTrue(recovering.get(1).startsWith("BeginRecovery{txnId:" + blocked), recovering.get(1));
+
+        instance.command(blocked).apply(txn, Dependencies.builder().add(blocker, txn.keys).build(), blocked, txn.execute(blocked, MockStore.DATA), MockStore.RESULT);
+        Assertions.assertEquals(0, instance.progressLog().size());
+        Assertions.assertTrue(scheduler.pending.isEmpty());
+    }
+
+    @Test
+    void homeReplicaFirstTest()
+    {
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        TxnId txnId = new TxnId(10, 0, id(3));
+        long[] delays = new long[3];
+        for (int i = 1 ; i <= 3 ; ++i)
+        {
+            int index = i - 1;
+            ManualScheduler scheduler = new ManualScheduler()
+            {
+                @Override
+                public Scheduled once(Runnable run, long delay, TimeUnit units)
+                {
+                    delays[index] = units.toMillis(delay);
+                    return super.once(run, delay, units);
+                }
+            };
+            MockStore store = new MockStore();
+            Node node = new Node(id(i), TOPOLOGY, TOPOLOGY.forNode(id(i)), new RecordingMessageSink(id(i), Network.BLACK_HOLE), new Random(),
+                                 new Clock(100), () -> store, new TestAgent(), scheduler, new Node.Options());
+            node.local().findFirst().get().command(txnId).witness(txn);
+        }
+
+        // the first replica of the shard is the transaction's home replica, which the others give time to recover it
+        long home = ProgressLog.INITIAL_DELAY_MILLIS;
+        Assertions.assertTrue(delays[0] >= home && delays[0] <= home * 3 / 2, Long.toString(delays[0]));
+        for (int i = 1 ; i < 3 ; ++i)
+            Assertions.assertTrue(delays[i] >= home << ProgressLog.NON_HOME_ATTEMPTS, Long.toString(delays[i]));
+    }
+
+    @Test
+    void readOnlyTest()
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        long[] delays = new long[1];
+        ManualScheduler scheduler = new ManualScheduler()
+        {
+            @Override
+            public Scheduled once(Runnable run, long delay, TimeUnit units)
+            {
+                delays[0] = units.toMillis(delay);
+                return super.once(run, delay, units);
+            }
+        };
+        MockStore store = new MockStore();
+        Node node = new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), messageSink, new Random(), new Clock(100), () -> store, new TestAgent(), scheduler, new Node.Options());
+        Instance instance = node.local().findFirst().get();
+
+        // a read-only transaction whose coordinator failed, which no later transaction depends on
+        Txn txn = readTxn(Keys.of(IntKey.key(10)));
+        TxnId txnId = new TxnId(10, 0, id(2));
+        instance.command(txnId).witness(txn);
+        Assertions.assertEquals(1, instance.progressLog().size());
+        Assertions.assertTrue(delays[0] >= ProgressLog.INITIAL_DELAY_MILLIS << ProgressLog.READ_ONLY_ATTEMPTS, Long.toString(delays[0]));
+
+        // is recovered by its home replica, though later than a write would be
+        scheduler.runAll();
+        List<String> recovering = recovering(messageSink);
+        Assertions.assertEquals(1, recovering.size());
+        Assertions.assertTrue(recovering.get(0).startsWith("BeginRecovery{txnId:" + txnId), recovering.get(0));
+
+        instance.command(txnId).commit(txn, Dependencies.NONE, txnId);
+        Assertions.assertEquals(Status.Applied, instance.command(txnId).status());
+        Assertions.assertEquals(0, instance.progressLog().size());
+    }
+
+    @Test
+    void escalationTest()
+    {
+        Random random = new Random();
+        for (int attempts = 0 ; attempts < 40 ; ++attempts)
+        {
+            long expect = Math.min(ProgressLog.MAX_DELAY_MILLIS, ProgressLog.INITIAL_DELAY_MILLIS << Math.min(attempts, 16));
+            long delay = ProgressLog.delay(attempts, random);
+            Assertions.assertTrue(delay >= expect && delay <= expect * 3 / 2, attempts + ": " + delay);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package accord.local;
+
+import java.io.File;
+import java.util.List;
+import java.util.Random;
+
+import accord.impl.IntKey;
+import accord.impl.TestAgent;
+import accord.impl.TopologyFactory;
+import accord.impl.mock.MockCluster.Clock;
+import accord.impl.mock.MockStore;
+import accord.impl.mock.Network;
+import accord.impl.mock.RecordingMessageSink;
+import accord.local.Node.Id;
+import accord.topology.Shards;
+import accord.txn.Ballot;
+import accord.txn.Dependencies;
+import accord.txn.Keys;
+import accord.txn.Timestamp;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import accord.utils.ThreadPoolScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static accord.Utils.id;
+import static accord.Utils.writeTxn;
+import static accord.local.MappedJournalTest.SERIALIZER;
+
+public class SnapshotsTest
+{
+    private static final Id ID1 = id(1);
+    private static final Shards TOPOLOGY = TopologyFactory.toShards(List.of(ID1, id(2), id(3)), 3, IntKey.range(0, 100));
+
+    // MockStore has no state, so nothing it applies can be lost
+    static class DurableMockStore extends MockStore
+    {
+        @Override
+        public boolean isDurable()
+        {
+            return true;
+        }
+    }
+
+    private static Node createNode(MappedJournal journal, Snapshots snapshots)
+    {
+        MockStore store = new DurableMockStore();
+        return new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), new RecordingMessageSink(ID1, Network.BLACK_HOLE), new Random(), new Clock(100),
+                        () -> store, new TestAgent(), new ThreadPoolScheduler(),
+                        new Node.Options().journal(journal).snapshots(snapshots).refuseMargin(0));
+    }
+
+    @Test
+    void restoreTest(@TempDir File directory) throws Exception
+    {
+        File journalDirectory = new File(directory, "journal");
+        Snapshots snapshots = new Snapshots(new File(directory, "snapshots"), SERIALIZER, 0);
+        Txn txn = writeTxn(Keys.of(IntKey.key(10)));
+        TxnId first = new TxnId(10, 0, id(2)), second = new TxnId(20, 0, id(3)), third = new TxnId(30, 0, id(2)), fourth = new TxnId(40, 0, id(3));
+        TxnId fifth = new TxnId(45, 0, id(2));
+        Ballot ballot = new Ballot(50, 0, id(3));
+        Timestamp max = new Timestamp(60, 0, id(2));
+
+        try (MappedJournal journal = new MappedJournal(journalDirectory, 128, SERIALIZER))
+        {
+            Node node = createNode(journal, snapshots);
+            Instance instance = node.local().findFirst().get();
+            instance.command(first).commit(txn, Dependencies.NONE, first);
+            instance.command(second).commit(txn, Dependencies.builder().add(first, txn.keys).build(), second);
+            instance.command(third).witness(txn);
+            instance.command(third).accept(ballot, txn, third, Dependencies.NONE);
+            instance.command(first).apply(txn, Dependencies.NONE, first, txn.execute(first, MockStore.DATA), MockStore.RESULT);
+            instance.onDurable(first, Timestamp.NONE);
+            Assertions.assertFalse(instance.hasCommand(first));
+            Assertions.assertEquals(second, instance.retainedBefore());
+            instance.commandsForKey(IntKey.key(20)).restoreMax(max);
+            Txn other = writeTxn(Keys.of(IntKey.key(30)));
+            instance.command(fifth).apply(other, Dependencies.NONE, fifth, other.execute(fifth, MockStore.DATA), MockStore.RESULT);
+
+            snapshots.snapshot(node).get();
+            Assertions.assertFalse(new File(journalDirectory, "journal-0.log").exists());
+
+            // only these transitions need be replayed from the journal
+            instance.command(third).commit(txn, Dependencies.NONE, third);
+            instance.command(fourth).witness(txn);
+        }
+
+        try (MappedJournal journal = new MappedJournal(journalDirectory, 128, SERIALIZER))
+        {
+            Node node = createNode(journal, snapshots);
+            Instance instance = node.local().findFirst().get();
+            Assertions.assertFalse(instance.hasCommand(first));
+            Assertions.assertEquals(Status.Applied, instance.command(first).status());
+            Assertions.assertEquals(Status.ReadyToWrite, instance.command(second).status());
+            Assertions.assertEquals(Status.ReadyToWrite, instance.command(third).status());
+            Assertions.assertEquals(ballot, instance.command(third).promised());
+            Assertions.assertEquals(Status.PreAccepted, instance.command(fourth).status());
+            // we apply its writes again, as we would had we replayed its Apply from the journal
+            Assertions.assertEquals(Status.Applied, instance.command(fifth).status());
+            Assertions.assertTrue(instance.refuses(new TxnId(15, 0, id(3))));
+            Assertions.assertEquals(max, instance.commandsForKey(IntKey.key(20)).max());
+            Assertions.assertTrue(node.uniqueNow().compareTo(max) > 0);
+        }
+    }
+
+    @Test
+    void requireDurableStoreTest(@TempDir File directory)
+    {
+        Snapshots snapshots = new Snapshots(new File(directory, "snapshots"), SERIALIZER, 0);
+        MockStore store = new MockStore();
+        Assertions.assertThrows(IllegalArgumentException.class, () ->
+            new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), new RecordingMessageSink(ID1, Network.BLACK_HOLE), new Random(), new Clock(100),
+                     () -> store, new TestAgent(), new ThreadPoolScheduler(), new Node.Options().snapshots(snapshots)));
+    }
+}
@@ -0,0 +1,46 @@
+package accord.local;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import accord.txn.Timestamp;
+
+import static accord.Utils.id;
+
+public class WaitingOnTest
+{
+    @Test
+    void waitTest()
+    {
+        // span several words, so that we visit bits in each
+        WaitingOn waitingOn = new WaitingOn(200);
+        waitingOn.setCommit(130);
+        waitingOn.setCommit(3);
+        waitingOn.setCommit(3);
+        Assertions.assertEquals(3, waitingOn.nextCommit());
+        waitingOn.clearCommit(3);
+        Assertions.assertEquals(130, waitingOn.nextCommit());
+        waitingOn.clearCommit(130);
+        Assertions.assertFalse(waitingOn.isWaitingOnCommit());
+        Assertions.assertEquals(-1, waitingOn.nextCommit());
+
+        waitingOn.setApply(70, new Timestamp(30, 0, id(1)), false);
+        waitingOn.setApply(199, new Timestamp(10, 0, id(1)), true);
+        waitingOn.setApply(64, new Timestamp(20, 0, id(1)), true);
+        Assertions.assertEquals(199, waitingOn.minApply());
+        Assertions.assertTrue(waitingOn.isWaitingOnApplyOfWrite());
+        Assertions.assertEquals(64, waitingOn.nextApply(0));
+        Assertions.assertEquals(70, waitingOn.nextApply(65));
+        Assertions.assertEquals(199, waitingOn.nextApply(71));
+
+        // once the lowest is applied the cursor must be found again
+        waitingOn.clearApply(199);
+        Assertions.assertEquals(-1, waitingOn.minApply());
+        Assertions.assertEquals(-1, waitingOn.nextApply(71));
+        waitingOn.clearApply(64);
+        Assertions.assertFalse(waitingOn.isWaitingOnApplyOfWrite());
+        Assertions.assertFalse(waitingOn.isEmpty());
+        waitingOn.clearApply(70);
+        Assertions.assertTrue(waitingOn.isEmpty());
+    }
+}
@@ -0,0 +1,82 @@
+package accord.messages;
+
+import java.util.List;
+import java.util.Random;
+
+import accord.impl.IntKey;
+import accord.impl.TestAgent;
+import accord.impl.TopologyFactory;
+import accord.impl.mock.ManualScheduler;
+import accord.impl.mock.MockCluster.Clock;
+import accord.impl.mock.MockStore;
+import accord.impl.mock.Network;
+import accord.impl.mock.RecordingMessageSink;
+import accord.local.Instance;
+import accord.local.Node;
+import accord.local.Node.Id;
+import accord.messages.BeginRecovery.RecoverOk;
+import accord.topology.Shards;
+import accord.txn.Ballot;
+import accord.txn.Dependencies;
+import accord.txn.Keys;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static accord.Utils.id;
+import static accord.Utils.readTxn;
+import static accord.Utils.writeTxn;
+
+public class BeginRecoveryTest
+{
+    private static final Id ID1 = id(1);
+    private static final Id ID2 = id(2);
+    private static final Id ID3 = id(3);
+    private static final Shards TOPOLOGY = TopologyFactory.toShards(List.of(ID1, ID2, ID3), 3, IntKey.range(0, 100));
+    private static final Keys KEYS = Keys.of(IntKey.key(10));
+
+    private static Node createNode(RecordingMessageSink messageSink, Clock clock)
+    {
+        MockStore store = new MockStore();
+        return new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), messageSink, new Random(), clock,
+                        () -> store, new TestAgent(), new ManualScheduler(), new Node.Options());
+    }
+
+    private static RecoverOk recover(Txn earlier, Txn later, boolean commitLater)
+    {
+        RecordingMessageSink messageSink = new RecordingMessageSink(ID1, Network.BLACK_HOLE);
+        Clock clock = new Clock(100);
+        Node node = createNode(messageSink, clock);
+        Instance instance = node.local().findFirst().get();
+
+        TxnId earlierId = new TxnId(110, 0, ID2);
+        new PreAccept(earlierId, earlier).process(node, ID2, 0);
+
+        // the later transaction is agreed without witnessing the earlier one
+        TxnId laterId = new TxnId(120, 0, ID3);
+        if (commitLater)
+            instance.command(laterId).commit(later, Dependencies.NONE, laterId);
+        else
+            instance.command(laterId).accept(new Ballot(130, 0, ID3), later, laterId, Dependencies.NONE);
+
+        messageSink.clearHistory();
+        new BeginRecovery(earlierId, earlier, new Ballot(140, 0, ID1)).process(node, ID1, 0);
+        messageSink.assertHistorySizes(0, 1);
+        return (RecoverOk) messageSink.responses.get(0).payload;
+    }
+
+    @Test
+    void readsDoNotRejectFastPathOfReadsTest()
+    {
+        Assertions.assertFalse(recover(readTxn(KEYS), readTxn(KEYS), true).rejectsFastPath);
+        Assertions.assertFalse(recover(readTxn(KEYS), readTxn(KEYS), false).rejectsFastPath);
+    }
+
+    @Test
+    void writesRejectFastPathTest()
+    {
+        Assertions.assertTrue(recover(readTxn(KEYS), writeTxn(KEYS), true).rejectsFastPath);
+        Assertions.assertTrue(recover(writeTxn(KEYS), readTxn(KEYS), false).rejectsFastPath);
+    }
+}
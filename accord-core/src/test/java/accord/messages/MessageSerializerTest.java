@@ -0,0 +1,147 @@
+package accord.messages;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import accord.impl.IntKey;
+import accord.impl.mock.MockStore;
+import accord.local.Status;
+import accord.messages.Accept.AcceptNack;
+import accord.messages.Accept.AcceptOk;
+import accord.messages.Apply.ApplyOk;
+import accord.messages.BeginRecovery.RecoverNack;
+import accord.messages.BeginRecovery.RecoverOk;
+import accord.messages.FetchTxn.FetchTxnNack;
+import accord.messages.FetchTxn.FetchTxnOk;
+import accord.messages.InformDurable.InformDurableOk;
+import accord.messages.PreAccept.PreAcceptNack;
+import accord.messages.PreAccept.PreAcceptOk;
+import accord.messages.ReadData.ReadNack;
+import accord.messages.ReadData.ReadOk;
+import accord.messages.WaitOnCommit.WaitOnCommitOk;
+import accord.txn.Ballot;
+import accord.txn.Dependencies;
+import accord.txn.Keys;
+import accord.txn.Timestamp;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import accord.txn.TxnSerializer;
+import accord.utils.BufferPool;
+import accord.utils.VarInt;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static accord.Utils.id;
+import static accord.Utils.writeTxn;
+
+public class MessageSerializerTest
+{
+    @Test
+    void roundTripTest()
+    {
+        BufferPool pool = new BufferPool(64, 4);
+        MessageSerializer serializer = new MessageSerializer(new TxnSerializer(MockStore.SERIALIZERS), pool);
+
+        Txn txn = writeTxn(Keys.of(IntKey.key(10), IntKey.key(20)));
+        TxnId txnId = new TxnId(1000, 1, id(1));
+        Timestamp executeAt = new Timestamp(1001, 0, id(2));
+        Ballot ballot = new Ballot(1002, 3, id(3));
+        Dependencies deps = Dependencies.builder()
+                                        .add(new TxnId(990, 0, id(2)), Keys.of(IntKey.key(10)))
+                                        .add(new TxnId(995, 0, id(3)), txn.keys)
+                                        .build();
+
+        List<Message> messages = Arrays.asList(
+            new PreAccept(txnId, txn), new PreAcceptOk(executeAt, deps), PreAcceptNack.INSTANCE,
+            new Accept(ballot, txnId, txn, executeAt, deps), new AcceptOk(deps), new AcceptNack(ballot),
+            new Commit(txnId, txn, executeAt, deps, true), new Commit(txnId, txn, executeAt, deps, false),
+            new Commit(txnId, txn, executeAt, deps, false, 100),
+            new Apply(txnId, txn, executeAt, deps, txn.execute(executeAt, MockStore.DATA), MockStore.RESULT), new ApplyOk(executeAt),
+            new ReadData(txnId, txn), new ReadOk(MockStore.DATA), new ReadNack(),
+            new BeginRecovery(txnId, txn, ballot), new RecoverNack(ballot),
+            new RecoverOk(Status.Accepted, ballot, executeAt, deps, Dependencies.NONE, deps, true, null, null),
+            new Refused(Keys.of(IntKey.key(10)), executeAt),
+            new Apply(txnId, txn.invalidate(), txnId, Dependencies.NONE, txn.invalidate().execute(txnId, null), null),
+            new FetchTxn(txnId, txn.keys), new FetchTxnOk(txn), FetchTxnNack.INSTANCE,
+            new InformDurable(txnId, txn.keys, executeAt), new InformDurableOk(),
+            new WaitOnCommit(txnId, txn.keys), new WaitOnCommitOk()
+        );
+
+        for (Message message : messages)
+        {
+            ByteBuffer buffer = serializer.serialize(message);
+            byte[] bytes = bytes(buffer);
+            Message roundTrip = serializer.deserialize(buffer);
+            pool.release(buffer);
+
+            Assertions.assertSame(message.getClass(), roundTrip.getClass());
+            ByteBuffer again = serializer.serialize(roundTrip);
+            Assertions.assertArrayEquals(bytes, bytes(again), message.toString());
+            pool.release(again);
+        }
+
+        Accept accept = (Accept) serializer.deserialize(serializer.serialize(messages.get(3)));
+        Assertions.assertEquals(ballot, accept.ballot);
+        Assertions.assertEquals(txnId, accept.txnId);
+        Assertions.assertEquals(executeAt, accept.executeAt);
+        Assertions.assertEquals(deps, accept.deps);
+        Assertions.assertEquals(txn.keys.toString(), accept.txn.keys.toString());
+
+        InformDurable inform = (InformDurable) serializer.deserialize(serializer.serialize(new InformDurable(txnId, txn.keys, executeAt)));
+        Assertions.assertEquals(txnId, inform.txnId);
+        Assertions.assertEquals(txn.keys.toString(), inform.keys.toString());
+        Assertions.assertEquals(executeAt, inform.durableBefore);
+    }
+
+    private static byte[] bytes(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    @Test
+    void varIntTest() throws IOException
+    {
+        long[] values = { 0, 1, 127, 128, 16383, 16384, Integer.MAX_VALUE, Long.MAX_VALUE, -1, Long.MIN_VALUE };
+        for (long value : values)
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            VarInt.writeUnsigned(value, out);
+            VarInt.writeSigned(value, out);
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+            Assertions.assertEquals(value, VarInt.readUnsigned(in));
+            Assertions.assertEquals(value, VarInt.readSigned(in));
+        }
+
+        // small values of either sign occupy a single byte
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        VarInt.writeSigned(-60, new DataOutputStream(bytes));
+        Assertions.assertEquals(1, bytes.size());
+    }
+
+    @Test
+    void bufferGrowthTest()
+    {
+        BufferPool pool = new BufferPool(8, 4);
+        BufferPool.Output output = pool.new Output();
+        byte[] bytes = new byte[100];
+        Arrays.fill(bytes, (byte) 7);
+        output.write(bytes, 0, bytes.length);
+        output.write(8);
+        ByteBuffer buffer = output.flip();
+        Assertions.assertEquals(101, buffer.remaining());
+        Assertions.assertEquals(8, buffer.get(100));
+
+        // only buffers of the pool's size are retained
+        pool.release(buffer);
+        Assertions.assertEquals(8, pool.acquire().capacity());
+    }
+}
@@ -42,7 +42,7 @@ public class PreAcceptTest
         Random random = new Random();
         MockStore store = new MockStore();
         Scheduler scheduler = new ThreadPoolScheduler();
-        return new Node(nodeId, TOPOLOGY, TOPOLOGY.forNode(nodeId), messageSink, random, clock, () -> store, new TestAgent(), scheduler);
+        return new Node(nodeId, TOPOLOGY, TOPOLOGY.forNode(nodeId), messageSink, random, clock, () -> store, new TestAgent(), scheduler, new Node.Options());
     }
 
     @Test
@@ -67,7 +67,7 @@ public class PreAcceptTest
 
         messageSink.assertHistorySizes(0, 1);
         Assertions.assertEquals(ID2, messageSink.responses.get(0).to);
-        Assertions.assertEquals(new PreAccept.PreAcceptOk(txnId, new Dependencies()),
+        Assertions.assertEquals(new PreAccept.PreAcceptOk(txnId, Dependencies.NONE),
                                 messageSink.responses.get(0).payload);
     }
 
@@ -113,8 +113,7 @@ public class PreAcceptTest
 
         messageSink.assertHistorySizes(0, 1);
         Assertions.assertEquals(ID3, messageSink.responses.get(0).to);
-        Dependencies expectedDeps = new Dependencies();
-        Assertions.assertEquals(new PreAccept.PreAcceptOk(new TxnId(110, 0, ID1), expectedDeps),
+        Assertions.assertEquals(new PreAccept.PreAcceptOk(new TxnId(110, 0, ID1), Dependencies.NONE),
                                 messageSink.responses.get(0).payload);
     }
 }
@@ -0,0 +1,58 @@
+package accord.messages;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import accord.impl.IntKey;
+import accord.impl.TestAgent;
+import accord.impl.TopologyFactory;
+import accord.impl.mock.MockCluster.Clock;
+import accord.impl.mock.MockStore;
+import accord.impl.mock.Network;
+import accord.impl.mock.RecordingMessageSink;
+import accord.local.Instance;
+import accord.local.Node;
+import accord.local.Node.Id;
+import accord.local.Status;
+import accord.topology.Shards;
+import accord.txn.Dependencies;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import accord.utils.ThreadPoolScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static accord.Utils.id;
+import static accord.Utils.readTxn;
+import static accord.impl.IntKey.keys;
+import static accord.impl.IntKey.range;
+
+public class ReadDataTest
+{
+    private static final Id ID1 = id(1);
+    // with a single replica per shard, we replicate only the first and last of these
+    private static final Shards TOPOLOGY = TopologyFactory.toShards(List.of(ID1, id(2), id(3)), 1,
+                                                                    range(0, 10), range(10, 20), range(20, 30), range(30, 40));
+
+    @Test
+    void obsoleteReadTest()
+    {
+        MockStore store = new MockStore();
+        Node node = new Node(ID1, TOPOLOGY, TOPOLOGY.forNode(ID1), new RecordingMessageSink(ID1, Network.BLACK_HOLE), new Random(), new Clock(100),
+                             () -> store, new TestAgent(), new ThreadPoolScheduler(), new Node.Options());
+        List<Instance> instances = new ArrayList<>();
+        node.local().forEach(instances::add);
+        Txn txn = readTxn(keys(5, 35));
+        TxnId txnId = new TxnId(10, 0, ID1);
+
+        // the first Instance has already applied the read-only transaction, so our read is obsolete
+        instances.get(0).command(txnId).commit(txn, Dependencies.NONE, txnId);
+        Assertions.assertEquals(Status.Applied, instances.get(0).command(txnId).status());
+        new ReadData(txnId, txn).process(node, id(2), 1);
+
+        // so the second must not wait for us to read it before applying it
+        instances.get(1).command(txnId).commit(txn, Dependencies.NONE, txnId);
+        Assertions.assertEquals(Status.Applied, instances.get(1).command(txnId).status());
+    }
+}
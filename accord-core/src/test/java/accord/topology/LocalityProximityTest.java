@@ -0,0 +1,47 @@
+package accord.topology;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import accord.local.Node.Id;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static accord.Utils.id;
+
+public class LocalityProximityTest
+{
+    @Test
+    void localityTest()
+    {
+        Map<Id, Locality> localities = Map.of(id(1), new Locality("dc1", "r1"),
+                                              id(2), new Locality("dc1", "r1"),
+                                              id(3), new Locality("dc1", "r2"),
+                                              id(4), new Locality("dc2", "r1"));
+        Proximity proximity = new LocalityProximity(id(1), localities, LocalityProximity.DEFAULT_ALPHA);
+
+        // static placement takes precedence over observed latency, and unknown nodes are as distant as another DC
+        proximity.onLatency(id(2), 100);
+        proximity.onLatency(id(5), 10);
+        List<Id> nodes = Arrays.asList(id(5), id(4), id(3), id(2), id(1));
+        Assertions.assertEquals(Arrays.asList(id(1), id(2), id(3), id(4), id(5)), proximity.closest(nodes, new Random()));
+    }
+
+    @Test
+    void latencyTest()
+    {
+        LocalityProximity proximity = new LocalityProximity(id(1));
+        proximity.onLatency(id(2), 10);
+        proximity.onLatency(id(3), 20);
+        List<Id> nodes = Arrays.asList(id(2), id(3), id(1));
+        Assertions.assertEquals(Arrays.asList(id(1), id(2), id(3)), proximity.closest(nodes, new Random()));
+
+        // the average moves towards new observations
+        for (int i = 0 ; i < 10 ; ++i)
+            proximity.onLatency(id(2), 40);
+        Assertions.assertTrue(proximity.latency(id(2)) > 30);
+        Assertions.assertEquals(Arrays.asList(id(1), id(3), id(2)), proximity.closest(nodes, new Random()));
+    }
+}
@@ -1,5 +1,11 @@
 package accord.topology;
 
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import accord.impl.IntKey;
+import accord.local.Node.Id;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
@@ -30,6 +36,30 @@ public class ShardTest
         Assertions.assertEquals(9, Shard.maxToleratedFailures(20));
     }
 
+    @Test
+    void slowPathQuorumSizeTest()
+    {
+        for (int replicas = 1 ; replicas <= 20 ; ++replicas)
+        {
+            int f = Shard.maxToleratedFailures(replicas);
+            int quorum = Shard.slowPathQuorumSize(replicas, f);
+            Assertions.assertEquals(replicas / 2 + 1, quorum);
+            // any two quorums must share a replica
+            Assertions.assertTrue(2 * quorum > replicas, "quorums do not intersect for rf=" + replicas);
+            // and we must still reach a quorum with f replicas down
+            Assertions.assertTrue(quorum <= replicas - f, "cannot tolerate f failures for rf=" + replicas);
+        }
+    }
+
+    @Test
+    void evenReplicationSlowPathQuorumTest()
+    {
+        // with f + 1, {1, 2} and {3, 4} would both have been quorums
+        List<Id> nodes = Arrays.asList(new Id(1), new Id(2), new Id(3), new Id(4));
+        Shard shard = new Shard(IntKey.range(0, 100), nodes, new HashSet<>(nodes));
+        Assertions.assertEquals(3, shard.slowPathQuorumSize);
+    }
+
     int fastPathQuorumSize(int allReplicas, int electorateSize)
     {
         int f = Shard.maxToleratedFailures(allReplicas);
@@ -0,0 +1,137 @@
+package accord.txn;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import accord.api.Key;
+import accord.api.KeyRange;
+import accord.impl.IntKey;
+import accord.impl.TestAgent;
+import accord.impl.TopologyFactory;
+import accord.impl.mock.ManualScheduler;
+import accord.impl.mock.MockCluster.Clock;
+import accord.impl.mock.MockStore;
+import accord.impl.mock.Network;
+import accord.impl.mock.RecordingMessageSink;
+import accord.local.Instance;
+import accord.local.Node;
+import accord.local.Node.Id;
+import accord.topology.Shard;
+import accord.topology.Shards;
+
+import static accord.Utils.id;
+import static accord.Utils.ids;
+import static accord.Utils.writeTxn;
+
+/**
+ * Measures the cost of committing a transaction against the number of its dependencies, whose keys are spread evenly
+ * over eight shards, three of which are local; and of selecting the dependencies of each local shard by the index of
+ * Dependencies.on, compared with testing the keys of every dependency as we did before it.
+ *
+ * Run with: [max dependencies] [rounds]
+ */
+public class DependenciesBenchmark
+{
+    private static final int SHARDS = 8, KEYS_PER_SHARD = 1000;
+    private static final Id ID1 = id(1);
+
+    public static void main(String[] args)
+    {
+        int maxDeps = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+
+        @SuppressWarnings("unchecked")
+        KeyRange<IntKey>[] ranges = new KeyRange[SHARDS];
+        for (int i = 0 ; i < SHARDS ; ++i)
+            ranges[i] = IntKey.range(i * KEYS_PER_SHARD, (i + 1) * KEYS_PER_SHARD);
+        Shards topology = TopologyFactory.toShards(ids(SHARDS), 3, ranges);
+
+        Random random = new Random(0);
+        for (int round = 0 ; round < rounds ; ++round)
+        {
+            System.out.printf("round %d\n", round);
+            for (int depCount = 10 ; depCount <= maxDeps ; depCount *= 10)
+            {
+                Dependencies deps = randomDeps(random, depCount);
+                // commit as many transactions as keeps the total work of each dependency count similar
+                int commits = Math.max(10, 1_000_000 / depCount);
+                long commitNanos = commit(topology, deps, commits);
+
+                long sink = 0, indexNanos = 0, scanNanos = 0;
+                for (Shard shard : topology.forNode(ID1))
+                {
+                    long start = System.nanoTime();
+                    for (int i = 0 ; i < commits ; ++i)
+                    {
+                        for (TxnId txnId : deps.on(shard))
+                            sink += txnId.real;
+                    }
+                    indexNanos += System.nanoTime() - start;
+
+                    start = System.nanoTime();
+                    for (int i = 0 ; i < commits ; ++i)
+                    {
+                        for (int j = 0 ; j < deps.size() ; ++j)
+                        {
+                            if (deps.keys(j).stream().anyMatch(shard::contains))
+                                sink += deps.txnId(j).real;
+                        }
+                    }
+                    scanNanos += System.nanoTime() - start;
+                }
+
+                System.out.printf("%,6d deps: commit %,9dns, select by index %,8dns, by scan %,8dns (%d)\n",
+                                  depCount, commitNanos / commits, indexNanos / commits, scanNanos / commits, sink & 1);
+            }
+        }
+    }
+
+    private static Dependencies randomDeps(Random random, int count)
+    {
+        Dependencies.Builder builder = Dependencies.builder();
+        for (int i = 0 ; i < count ; ++i)
+        {
+            TreeSet<Key> keys = new TreeSet<>();
+            int keyCount = 1 + random.nextInt(3);
+            for (int j = 0 ; j < keyCount ; ++j)
+                keys.add(IntKey.key(random.nextInt(SHARDS * KEYS_PER_SHARD)));
+            builder.add(new TxnId(1 + i, 0, id(1 + random.nextInt(SHARDS))), new Keys(keys));
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return the nanos taken to commit {@code count} transactions with {@code deps} on every local shard, each of
+     *         whose dependencies it has witnessed but not yet committed
+     */
+    private static long commit(Shards topology, Dependencies deps, int count)
+    {
+        MockStore store = new MockStore();
+        Clock clock = new Clock(deps.size() + 1);
+        Node node = new Node(ID1, topology, topology.forNode(ID1), new RecordingMessageSink(ID1, Network.BLACK_HOLE), new Random(),
+                             clock, () -> store, new TestAgent(), new ManualScheduler(), new Node.Options());
+
+        List<Instance> instances = new ArrayList<>();
+        node.local().forEach(instances::add);
+        for (Instance instance : instances)
+        {
+            for (TxnId txnId : deps.on(instance.shard))
+                instance.command(txnId).witness(writeTxn(deps.keys(deps.indexOf(txnId))));
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0 ; i < count ; ++i)
+        {
+            TxnId txnId = clock.idForNode(ID1);
+            clock.increment(1);
+            for (Instance instance : instances)
+            {
+                Txn txn = writeTxn(Keys.of(instance.shard.range.start()));
+                instance.command(txnId).commit(txn, deps, txnId);
+            }
+        }
+        return System.nanoTime() - start;
+    }
+}
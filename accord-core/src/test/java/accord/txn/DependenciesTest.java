@@ -0,0 +1,152 @@
+package accord.txn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import accord.api.Key;
+import accord.impl.IntKey;
+import accord.local.Node.Id;
+import accord.topology.Shard;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class DependenciesTest
+{
+    private static TxnId txnId(int real)
+    {
+        return new TxnId(real, 0, new Id(1));
+    }
+
+    private static TreeMap<TxnId, Keys> randomModel(Random random, int maxTxns, int maxKey)
+    {
+        TreeMap<TxnId, Keys> model = new TreeMap<>();
+        int count = random.nextInt(maxTxns);
+        for (int i = 0 ; i < count ; ++i)
+        {
+            TxnId txnId = txnId(random.nextInt(maxTxns * 2));
+            TreeSet<Key> keys = new TreeSet<>();
+            int keyCount = 1 + random.nextInt(3);
+            for (int j = 0 ; j < keyCount ; ++j)
+                keys.add(IntKey.key(random.nextInt(maxKey)));
+            // a TxnId always refers to the same keys
+            model.putIfAbsent(txnId, new Keys(keys));
+        }
+        return model;
+    }
+
+    private static Dependencies build(TreeMap<TxnId, Keys> model)
+    {
+        List<TxnId> shuffled = new ArrayList<>(model.keySet());
+        Collections.reverse(shuffled);
+        Dependencies.Builder builder = Dependencies.builder();
+        for (TxnId txnId : shuffled)
+            builder.add(txnId, model.get(txnId));
+        // duplicates should be ignored
+        for (TxnId txnId : shuffled)
+            builder.add(txnId, model.get(txnId));
+        return builder.build();
+    }
+
+    private static void assertMatches(TreeMap<TxnId, Keys> model, Dependencies deps)
+    {
+        Assertions.assertEquals(new ArrayList<>(model.keySet()), iterate(deps));
+        int i = 0;
+        for (TxnId txnId : model.keySet())
+        {
+            Assertions.assertEquals(model.get(txnId).toString(), deps.keys(i).toString());
+            Assertions.assertTrue(deps.contains(txnId));
+            ++i;
+        }
+    }
+
+    private static List<TxnId> iterate(Iterable<TxnId> deps)
+    {
+        List<TxnId> result = new ArrayList<>();
+        deps.forEach(result::add);
+        return result;
+    }
+
+    @Test
+    void builderTest()
+    {
+        Random random = new Random();
+        for (int i = 0 ; i < 1000 ; ++i)
+        {
+            TreeMap<TxnId, Keys> model = randomModel(random, 20, 30);
+            assertMatches(model, build(model));
+        }
+    }
+
+    @Test
+    void mergeTest()
+    {
+        Random random = new Random();
+        for (int i = 0 ; i < 1000 ; ++i)
+        {
+            TreeMap<TxnId, Keys> model1 = randomModel(random, 20, 30);
+            TreeMap<TxnId, Keys> model2 = randomModel(random, 20, 30);
+            model2.keySet().forEach(model1::remove);
+            TreeMap<TxnId, Keys> union = new TreeMap<>(model1);
+            union.putAll(model2);
+
+            Dependencies deps1 = build(model1), deps2 = build(model2);
+            assertMatches(union, deps1.with(deps2));
+            assertMatches(union, deps2.with(deps1));
+            assertMatches(union, Dependencies.builder().addAll(deps1).addAll(deps2).build());
+        }
+    }
+
+    @Test
+    void mergeContainedTest()
+    {
+        TreeMap<TxnId, Keys> model = new TreeMap<>();
+        model.put(txnId(1), IntKey.keys(1, 2));
+        model.put(txnId(2), IntKey.keys(2, 3));
+        Dependencies all = build(model);
+        model.remove(txnId(1));
+        Dependencies some = build(model);
+
+        Assertions.assertSame(all, all.with(some));
+        Assertions.assertSame(all, some.with(all));
+        Assertions.assertSame(all, all.with(Dependencies.NONE));
+        Assertions.assertSame(all, Dependencies.NONE.with(all));
+    }
+
+    @Test
+    void withoutTest()
+    {
+        Random random = new Random();
+        for (int i = 0 ; i < 1000 ; ++i)
+        {
+            TreeMap<TxnId, Keys> model = randomModel(random, 20, 30);
+            Dependencies deps = build(model);
+            model.keySet().removeIf(txnId -> txnId.real % 2 == 0);
+            assertMatches(model, deps.without(txnId -> txnId.real % 2 == 0));
+        }
+    }
+
+    @Test
+    void onShardTest()
+    {
+        Random random = new Random();
+        for (int i = 0 ; i < 1000 ; ++i)
+        {
+            TreeMap<TxnId, Keys> model = randomModel(random, 20, 30);
+            Dependencies deps = build(model);
+            int start = random.nextInt(30), end = start + 1 + random.nextInt(10);
+            Shard shard = new Shard(IntKey.range(start, end), List.of(new Id(1)), Set.of(new Id(1)));
+
+            List<TxnId> expected = new ArrayList<>();
+            model.forEach((txnId, keys) -> {
+                if (keys.stream().anyMatch(shard::contains))
+                    expected.add(txnId);
+            });
+            Assertions.assertEquals(expected, iterate(deps.on(shard)));
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package accord.txn;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import accord.local.Node.Id;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TimestampTest
+{
+    private static Timestamp random(Random random)
+    {
+        return new Timestamp(random.nextInt(4), random.nextInt(4) == 0 ? Integer.MAX_VALUE : random.nextInt(4),
+                             new Id(random.nextInt(4) == 0 ? 0xFFFFFFFFL : random.nextInt(4)));
+    }
+
+    private static int compareFields(Timestamp a, Timestamp b)
+    {
+        int c = Long.compare(a.real, b.real);
+        if (c == 0) c = Integer.compare(a.logical, b.logical);
+        if (c == 0) c = a.node.compareTo(b.node);
+        return c;
+    }
+
+    @Test
+    void packedCompareTest()
+    {
+        Random random = new Random();
+        for (int i = 0 ; i < 10000 ; ++i)
+        {
+            Timestamp a = random(random), b = random(random);
+            Assertions.assertEquals(Integer.signum(compareFields(a, b)), Integer.signum(a.compareTo(b)));
+            Assertions.assertEquals(compareFields(a, b) == 0, a.equals(b));
+            if (a.equals(b))
+                Assertions.assertEquals(a.hashCode(), b.hashCode());
+            Assertions.assertEquals(a.logical, Timestamp.logical(a.lsb()));
+            Assertions.assertEquals(a.node.id, Timestamp.node(a.lsb()));
+        }
+        Assertions.assertTrue(Timestamp.MAX.compareTo(new Timestamp(Long.MAX_VALUE, Integer.MAX_VALUE, new Id(0xFFFFFFFEL))) > 0);
+    }
+
+    @Test
+    void nodeIdTest()
+    {
+        // a node id must fit in the 32 bits we pack it into, lest distinct ids compare equal
+        new Timestamp(1, 0, new Id(0xFFFFFFFFL));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Timestamp(1, 0, new Id(0x100000000L)));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new Timestamp(1, 0, new Id(-1)));
+    }
+
+    @Test
+    void arrayTest()
+    {
+        Random random = new Random();
+        for (int i = 0 ; i < 100 ; ++i)
+        {
+            List<Timestamp> model = new ArrayList<>();
+            TimestampArray array = new TimestampArray(1);
+            for (int j = 0 ; j < 50 ; ++j)
+            {
+                Timestamp add = random(random);
+                int index = array.binarySearch(add);
+                Assertions.assertEquals(Collections.binarySearch(model, add) >= 0, index >= 0);
+                if (index >= 0)
+                {
+                    array.remove(index);
+                    model.remove(index);
+                }
+                else
+                {
+                    array.insert(-1 - index, add);
+                    model.add(-1 - index, add);
+                }
+            }
+
+            Assertions.assertEquals(model.size(), array.size());
+            TimestampArray.View view = array.view();
+            for (int j = 0 ; j < model.size() ; ++j)
+            {
+                Timestamp expect = model.get(j);
+                Assertions.assertEquals(expect, array.get(j));
+                Assertions.assertEquals(0, view.at(j).compareTo(expect));
+                Assertions.assertEquals(expect.real, view.real());
+                Assertions.assertEquals(expect.logical, view.logical());
+                Assertions.assertEquals(expect.node.id, view.node());
+                if (j > 0)
+                    Assertions.assertTrue(array.compare(j - 1, expect) < 0);
+            }
+        }
+    }
+}
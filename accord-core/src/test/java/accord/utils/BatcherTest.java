@@ -0,0 +1,67 @@
+package accord.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import accord.impl.mock.ManualScheduler;
+import accord.local.Node.Id;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class BatcherTest
+{
+    static class Flushed
+    {
+        final Id to;
+        final List<Integer> messages;
+
+        Flushed(Id to, List<Integer> messages)
+        {
+            this.to = to;
+            this.messages = messages;
+        }
+    }
+
+    @Test
+    void flushOnWindow()
+    {
+        ManualScheduler scheduler = new ManualScheduler();
+        List<Flushed> flushed = new ArrayList<>();
+        Batcher<Integer> batcher = new Batcher<>(scheduler, 1, TimeUnit.MILLISECONDS, 10, (to, messages) -> flushed.add(new Flushed(to, messages)));
+
+        batcher.add(new Id(1), 1);
+        batcher.add(new Id(2), 2);
+        batcher.add(new Id(1), 3);
+        Assertions.assertTrue(flushed.isEmpty());
+        Assertions.assertEquals(2, scheduler.pending.size());
+
+        scheduler.runAll();
+        Assertions.assertEquals(2, flushed.size());
+        Assertions.assertEquals(new Id(1), flushed.get(0).to);
+        Assertions.assertEquals(Arrays.asList(1, 3), flushed.get(0).messages);
+        Assertions.assertEquals(new Id(2), flushed.get(1).to);
+        Assertions.assertEquals(Arrays.asList(2), flushed.get(1).messages);
+    }
+
+    @Test
+    void flushOnSize()
+    {
+        ManualScheduler scheduler = new ManualScheduler();
+        List<Flushed> flushed = new ArrayList<>();
+        Batcher<Integer> batcher = new Batcher<>(scheduler, 1, TimeUnit.MILLISECONDS, 3, (to, messages) -> flushed.add(new Flushed(to, messages)));
+
+        for (int i = 0 ; i < 4 ; ++i)
+            batcher.add(new Id(1), i);
+
+        Assertions.assertEquals(1, flushed.size());
+        Assertions.assertEquals(Arrays.asList(0, 1, 2), flushed.get(0).messages);
+
+        // the window of the flushed batch is cancelled, and the remaining message awaits its own window
+        Assertions.assertEquals(1, scheduler.pending.size());
+        scheduler.runAll();
+        Assertions.assertEquals(2, flushed.size());
+        Assertions.assertEquals(Arrays.asList(3), flushed.get(1).messages);
+    }
+}
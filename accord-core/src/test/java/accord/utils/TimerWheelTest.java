@@ -0,0 +1,105 @@
+package accord.utils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import accord.api.Scheduler.Scheduled;
+import accord.impl.mock.ManualScheduler;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TimerWheelTest
+{
+    long now;
+
+    @Test
+    void fireAndCancel()
+    {
+        TimerWheel wheel = new TimerWheel(new ManualScheduler(), () -> now, 1, 8);
+        List<Integer> fired = new ArrayList<>();
+
+        wheel.once(() -> fired.add(1), 5, TimeUnit.MILLISECONDS);
+        Scheduled cancelled = wheel.once(() -> fired.add(2), 5, TimeUnit.MILLISECONDS);
+        // shares a slot with the others, but is a full rotation of the wheel later
+        wheel.once(() -> fired.add(3), 13, TimeUnit.MILLISECONDS);
+        wheel.once(() -> fired.add(4), 100, TimeUnit.MILLISECONDS);
+        Assertions.assertEquals(4, wheel.size());
+
+        cancelled.cancel();
+        Assertions.assertEquals(3, wheel.size());
+
+        now = 4;
+        wheel.advance();
+        Assertions.assertTrue(fired.isEmpty());
+
+        now = 5;
+        wheel.advance();
+        Assertions.assertEquals(Arrays.asList(1), fired);
+
+        // a pause longer than a rotation of the wheel fires everything that has expired
+        now = 200;
+        wheel.advance();
+        Assertions.assertEquals(Arrays.asList(1, 3, 4), fired);
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void cancelWhileAdvancing()
+    {
+        TimerWheel wheel = new TimerWheel(new ManualScheduler(), () -> now, 1, 8);
+        List<Integer> fired = new ArrayList<>();
+
+        // both timers are collected to fire by the same advance, but the first cancels the second before it runs
+        Scheduled[] second = new Scheduled[1];
+        wheel.once(() -> { fired.add(1); second[0].cancel(); }, 5, TimeUnit.MILLISECONDS);
+        second[0] = wheel.once(() -> fired.add(2), 5, TimeUnit.MILLISECONDS);
+        Scheduled recurring = wheel.recurring(() -> fired.add(3), 5, TimeUnit.MILLISECONDS);
+        wheel.once(recurring::cancel, 5, TimeUnit.MILLISECONDS);
+
+        now = 5;
+        wheel.advance();
+        Assertions.assertEquals(Arrays.asList(1, 3), fired);
+
+        // nor is a recurring timer cancelled as it fires scheduled again
+        now = 20;
+        wheel.advance();
+        Assertions.assertEquals(Arrays.asList(1, 3), fired);
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void roundsUpToTick()
+    {
+        now = 3;
+        TimerWheel wheel = new TimerWheel(new ManualScheduler(), () -> now, 10, 8);
+        List<Long> fired = new ArrayList<>();
+        wheel.once(() -> fired.add(now), 8, TimeUnit.MILLISECONDS);
+
+        // never fire early, only on the first tick at or after the deadline
+        now = 10;
+        wheel.advance();
+        Assertions.assertTrue(fired.isEmpty());
+        now = 20;
+        wheel.advance();
+        Assertions.assertEquals(Arrays.asList(20L), fired);
+    }
+
+    @Test
+    void recurring()
+    {
+        TimerWheel wheel = new TimerWheel(new ManualScheduler(), () -> now, 1, 8);
+        List<Long> fired = new ArrayList<>();
+        Scheduled scheduled = wheel.recurring(() -> fired.add(now), 3, TimeUnit.MILLISECONDS);
+        for (now = 1 ; now <= 9 ; ++now)
+            wheel.advance();
+        Assertions.assertEquals(Arrays.asList(3L, 6L, 9L), fired);
+
+        scheduled.cancel();
+        for (; now <= 20 ; ++now)
+            wheel.advance();
+        Assertions.assertEquals(3, fired.size());
+        Assertions.assertEquals(0, wheel.size());
+    }
+}
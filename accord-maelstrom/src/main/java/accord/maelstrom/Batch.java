@@ -0,0 +1,32 @@
+package accord.maelstrom;
+
+import java.io.IOException;
+import java.util.List;
+
+import com.google.gson.stream.JsonWriter;
+import accord.maelstrom.Packet.Type;
+
+/**
+ * Several message bodies to the same destination, coalesced by a StdoutSink to be written as one packet
+ */
+public class Batch extends Body
+{
+    final List<Body> msgs;
+
+    public Batch(List<Body> msgs)
+    {
+        super(Type.batch, SENTINEL_MSG_ID, SENTINEL_MSG_ID);
+        this.msgs = msgs;
+    }
+
+    @Override
+    void writeBody(JsonWriter out) throws IOException
+    {
+        super.writeBody(out);
+        out.name("msgs");
+        out.beginArray();
+        for (Body msg : msgs)
+            Json.GSON.toJson(msg, Body.class, out);
+        out.endArray();
+    }
+}
@@ -89,6 +89,7 @@ public class Body
         Object body = null;
         Id node_id = null;
         List<Id> node_ids = null;
+        List<Body> msgs = null;
         String deferredTxn = null;
 
         in.beginObject();
@@ -133,6 +134,13 @@ public class Body
                         node_ids.add(Json.ID_ADAPTER.read(in));
                     in.endArray();
                     break;
+                case "msgs":
+                    msgs = new ArrayList<>();
+                    in.beginArray();
+                    while (in.hasNext())
+                        msgs.add(Body.read(in, from));
+                    in.endArray();
+                    break;
                 default:
                     throw new IllegalStateException("Unexpected field " + field);
             }
@@ -153,6 +161,7 @@ public class Body
             case txn: return new MaelstromRequest(msg_id, txn);
             case txn_ok: return new MaelstromReply(in_reply_to, txn_ok);
             case error: return new Error(in_reply_to, code, text);
+            case batch: return new Batch(msgs);
             default: return new Wrapper(type, msg_id, in_reply_to, body);
         }
     }
@@ -22,6 +22,7 @@ import accord.messages.Reply;
 import accord.messages.Request;
 import accord.topology.Shards;
 import accord.api.Scheduler;
+import accord.utils.TimerWheel;
 
 // TODO: merge with accord.impl.basic.Cluster
 public class Cluster implements Scheduler
@@ -47,7 +48,7 @@ public class Cluster implements Scheduler
         final Random random;
 
         int nextMessageId = 0;
-        Map<Long, Callback> callbacks = new LinkedHashMap<>();
+        Map<Long, Main.CallbackInfo> callbacks = new LinkedHashMap<>();
 
         public InstanceSink(Id self, Function<Id, Node> lookup, Cluster parent, Random random)
         {
@@ -67,23 +68,32 @@ public class Cluster implements Scheduler
         public void send(Id to, Request send, Callback callback)
         {
             long messageId = nextMessageId++;
-            callbacks.put(messageId, callback);
-            parent.add(self, to, messageId, send);
-            parent.pending.add((Runnable)() -> {
-                if (callback == callbacks.remove(messageId))
+            Main.CallbackInfo info = new Main.CallbackInfo(callback, to);
+            info.timeout = parent.timeouts.once(() -> {
+                if (callbacks.remove(messageId, info))
                     callback.onFailure(to, new Timeout());
             }, 1000 + random.nextInt(10000), TimeUnit.MILLISECONDS);
+            callbacks.put(messageId, info);
+            parent.add(self, to, messageId, send);
         }
 
         @Override
         public void reply(Id replyToNode, long replyToMessage, Reply reply)
         {
+            // the sender is not awaiting a reply
+            if (replyToMessage == Body.SENTINEL_MSG_ID)
+                return;
             parent.add(self, replyToNode, replyToMessage, reply);
         }
     }
 
+    // timeouts are registered with a wheel that advances by one tick of simulated time on each of its recurring events
+    static final long TICK_MILLIS = 10;
+
     final Function<Id, Node> lookup;
     final Queue<Object> pending;
+    final TimerWheel timeouts;
+    long now;
     final Consumer<Packet> responseSink;
     final Map<Id, InstanceSink> sinks = new HashMap<>();
     final PrintWriter err;
@@ -98,6 +108,11 @@ public class Cluster implements Scheduler
         this.responseSink = responseSink;
         this.err = new PrintWriter(stderr);
         this.partitionSet = new HashSet<>();
+        this.timeouts = new TimerWheel(this, () -> now, TICK_MILLIS, 1024);
+        recurring(() -> {
+            now += TICK_MILLIS;
+            timeouts.advance();
+        }, TICK_MILLIS, TimeUnit.MILLISECONDS);
     }
 
     InstanceSink create(Id self, Random random)
@@ -127,7 +142,7 @@ public class Cluster implements Scheduler
 
     public boolean processPending()
     {
-        if (pending.size() == recurring)
+        if (pending.size() == recurring && timeouts.size() == 0)
             return false;
 
         Object next = pending.poll();
@@ -162,10 +177,12 @@ public class Cluster implements Scheduler
                     if (deliver.body.in_reply_to > Body.SENTINEL_MSG_ID)
                     {
                         Reply reply = (Reply)((Wrapper)deliver.body).body;
-                        Callback callback = reply.isFinal() ? sinks.get(deliver.dest).callbacks.remove(deliver.body.in_reply_to)
-                                                            : sinks.get(deliver.dest).callbacks.get(deliver.body.in_reply_to);
+                        Main.CallbackInfo callback = reply.isFinal() ? sinks.get(deliver.dest).callbacks.remove(deliver.body.in_reply_to)
+                                                                     : sinks.get(deliver.dest).callbacks.get(deliver.body.in_reply_to);
+                        if (callback != null && reply.isFinal())
+                            callback.timeout.cancel();
                         if (callback != null)
-                            on.scheduler().now(() -> callback.onSuccess(deliver.src, reply));
+                            on.scheduler().now(() -> callback.callback.onSuccess(deliver.src, reply));
                     }
                     else on.receive((Request)((Wrapper)deliver.body).body, deliver.src, deliver.body.msg_id);
             }
@@ -257,7 +274,7 @@ public class Cluster implements Scheduler
         Cluster sinks = new Cluster(queueSupplier, lookup::get, responseSink, stderr);
         for (Id node : nodes)
             lookup.put(node, new Node(node, shards, shards.forNode(node), sinks.create(node, randomSupplier.get()),
-                                      randomSupplier.get(), nowSupplier.get(), MaelstromStore::new, MaelstromAgent.INSTANCE, sinks));
+                                      randomSupplier.get(), nowSupplier.get(), MaelstromStore::new, MaelstromAgent.INSTANCE, sinks, new Node.Options()));
 
         List<Id> nodesList = new ArrayList<>(Arrays.asList(nodes));
         sinks.recurring(() ->
@@ -4,9 +4,7 @@ import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
-import java.util.NavigableMap;
 import java.util.NavigableSet;
-import java.util.TreeMap;
 import java.util.TreeSet;
 
 import accord.local.Node;
@@ -80,7 +78,7 @@ public class Json
 
     public static String toString(Id id)
     {
-        if (id.id < 0) return "c" + id.id;
+        if (id.id < 0) return "c" + -id.id;
         else return "n" + id.id;
     }
 
@@ -194,6 +192,15 @@ public class Json
                 return;
             }
 
+            if (txn.isInvalidated())
+            {
+                out.beginObject();
+                out.name("invalidated");
+                KEYS_ADAPTER.write(out, txn.keys);
+                out.endObject();
+                return;
+            }
+
             Keys keys = txn.keys;
             MaelstromRead read = (MaelstromRead) txn.read;
             MaelstromUpdate update = (MaelstromUpdate) txn.update;
@@ -225,7 +232,7 @@ public class Json
             }
             out.endArray();
             out.name("client");
-            out.value(((MaelstromQuery)txn.query).client.id);
+            ID_ADAPTER.write(out, ((MaelstromQuery)txn.query).client);
             out.name("requestId");
             out.value(((MaelstromQuery)txn.query).requestId);
             out.endObject();
@@ -243,6 +250,7 @@ public class Json
 
             Node.Id client = null;
             long requestId = Long.MIN_VALUE;
+            Keys invalidated = null;
             in.beginObject();
             while (in.hasNext())
             {
@@ -275,10 +283,16 @@ public class Json
                     case "requestId":
                         requestId = in.nextLong();
                         break;
+                    case "invalidated":
+                        invalidated = KEYS_ADAPTER.read(in);
+                        break;
                 }
             }
             in.endObject();
 
+            if (invalidated != null)
+                return new Txn(invalidated, null, null, null);
+
             if (client == null)
                 throw new IllegalStateException();
 
@@ -298,37 +312,61 @@ public class Json
         public void write(JsonWriter out, Dependencies value) throws IOException
         {
             out.beginArray();
-            for (Map.Entry<TxnId, Txn> e : value.deps.entrySet())
+            KEYS_ADAPTER.write(out, value.keys());
+            out.beginArray();
+            for (int i = 0 ; i < value.size() ; ++i)
             {
                 out.beginArray();
-                GSON.toJson(e.getKey(), TxnId.class, out);
-                TXN_ADAPTER.write(out, e.getValue());
+                GSON.toJson(value.txnId(i), TxnId.class, out);
+                out.beginArray();
+                for (int j = 0 ; j < value.keyIndexCount(i) ; ++j)
+                    out.value(value.keyIndex(i, j));
+                out.endArray();
                 out.endArray();
             }
             out.endArray();
+            out.endArray();
         }
 
         @Override
         public Dependencies read(JsonReader in) throws IOException
         {
-            NavigableMap<TxnId, Txn> deps = new TreeMap<>();
             in.beginArray();
-            if (!in.hasNext())
-            {
-                in.endArray();
-                return new Dependencies();
-            }
-
+            Keys keys = KEYS_ADAPTER.read(in);
+            List<TxnId> txnIds = new ArrayList<>();
+            List<int[]> keyIndexes = new ArrayList<>();
+            int keyIndexCount = 0;
+            in.beginArray();
             while (in.hasNext())
             {
                 in.beginArray();
-                TxnId txnId = GSON.fromJson(in, TxnId.class);
-                Txn txn = TXN_ADAPTER.read(in);
-                deps.put(txnId, txn);
+                txnIds.add(GSON.fromJson(in, TxnId.class));
+                List<Integer> indexes = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext())
+                    indexes.add(in.nextInt());
+                in.endArray();
+                keyIndexes.add(indexes.stream().mapToInt(Integer::intValue).toArray());
+                keyIndexCount += indexes.size();
                 in.endArray();
             }
             in.endArray();
-            return new Dependencies(deps);
+            in.endArray();
+
+            if (txnIds.isEmpty())
+                return Dependencies.NONE;
+
+            int count = txnIds.size();
+            int[] txnIdToKey = new int[count + keyIndexCount];
+            int offset = count;
+            for (int i = 0 ; i < count ; ++i)
+            {
+                int[] indexes = keyIndexes.get(i);
+                System.arraycopy(indexes, 0, txnIdToKey, offset, indexes.length);
+                offset += indexes.length;
+                txnIdToKey[i] = offset;
+            }
+            return new Dependencies(keys, txnIds.toArray(TxnId[]::new), txnIdToKey);
         }
     };
 
@@ -348,16 +386,20 @@ public class Json
             out.name("keys");
             Keys keys = value.keys;
             KEYS_ADAPTER.write(out, keys);
-            out.name("writes");
             MaelstromWrite write = (MaelstromWrite) value.write;
-            out.beginArray();
-            for (int i = 0 ; i < keys.size() ; ++i)
+            // an invalidated transaction writes nothing
+            if (write != null)
             {
-                Value append = write.get(keys.get(i));
-                if (append == null) out.nullValue();
-                else append.write(out);
+                out.name("writes");
+                out.beginArray();
+                for (int i = 0 ; i < keys.size() ; ++i)
+                {
+                    Value append = write.get(keys.get(i));
+                    if (append == null) out.nullValue();
+                    else append.write(out);
+                }
+                out.endArray();
             }
-            out.endArray();
             out.endObject();
         }
 
@@ -393,6 +435,9 @@ public class Json
             }
             in.endObject();
 
+            if (writes == null)
+                return new Writes(executeAt, keys, null);
+
             MaelstromWrite write = new MaelstromWrite();
             if (writes != null)
             {
@@ -76,7 +76,7 @@ public class MaelstromResult implements Result
             }
             out.endArray();
             out.name("client");
-            out.value(result.client.id);
+            Json.ID_ADAPTER.write(out, result.client);
             out.name("requestId");
             out.value(result.requestId);
             out.endObject();
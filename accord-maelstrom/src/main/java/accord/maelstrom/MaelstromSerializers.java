@@ -0,0 +1,204 @@
+package accord.maelstrom;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import accord.api.Data;
+import accord.api.Key;
+import accord.api.Query;
+import accord.api.Read;
+import accord.api.Result;
+import accord.api.Serializers;
+import accord.api.Update;
+import accord.api.Write;
+import accord.local.Node.Id;
+import accord.maelstrom.Datum.Hash;
+import accord.txn.Keys;
+import accord.txn.TxnSerializer;
+import accord.utils.Serializer;
+import accord.utils.VarInt;
+
+/**
+ * Binary serializers for the maelstrom implementations of the transaction API
+ */
+public class MaelstromSerializers implements Serializers
+{
+    public static final MaelstromSerializers INSTANCE = new MaelstromSerializers();
+    public static final TxnSerializer TXN_SERIALIZER = new TxnSerializer(INSTANCE);
+
+    static void serialize(Datum<?> datum, DataOutput out) throws IOException
+    {
+        out.writeByte(datum.kind.ordinal());
+        switch (datum.kind)
+        {
+            default: throw new IllegalStateException();
+            case STRING: out.writeUTF((String) datum.value); break;
+            case LONG: VarInt.writeSigned((Long) datum.value, out); break;
+            case DOUBLE: out.writeDouble((Double) datum.value); break;
+            case HASH: out.writeInt(((Hash) datum.value).hash);
+        }
+    }
+
+    static Object deserializeDatumValue(Datum.Kind kind, DataInput in) throws IOException
+    {
+        switch (kind)
+        {
+            default: throw new IllegalStateException();
+            case STRING: return in.readUTF();
+            case LONG: return VarInt.readSigned(in);
+            case DOUBLE: return in.readDouble();
+            case HASH: return new Hash(in.readInt());
+        }
+    }
+
+    static void serialize(Value value, DataOutput out) throws IOException
+    {
+        VarInt.writeUnsignedInt(value.contents.length, out);
+        for (Datum<?> datum : value.contents)
+            serialize(datum, out);
+    }
+
+    static Value deserializeValue(DataInput in) throws IOException
+    {
+        Datum[] contents = new Datum[VarInt.readUnsignedInt(in)];
+        for (int i = 0 ; i < contents.length ; ++i)
+        {
+            Datum.Kind kind = Datum.Kind.values()[in.readByte()];
+            contents[i] = new Datum(kind, deserializeDatumValue(kind, in));
+        }
+        return new Value(contents);
+    }
+
+    static void serialize(Map<Key, Value> map, DataOutput out) throws IOException
+    {
+        VarInt.writeUnsignedInt(map.size(), out);
+        for (Map.Entry<Key, Value> e : map.entrySet())
+        {
+            KEY.serialize(e.getKey(), out);
+            serialize(e.getValue(), out);
+        }
+    }
+
+    // the maelstrom Update, Write and Data implementations are all maps of Key to Value
+    static <T> Serializer<T> mapSerializer(Supplier<? extends Map<Key, Value>> supplier)
+    {
+        return new Serializer<>()
+        {
+            @Override
+            @SuppressWarnings("unchecked")
+            public void serialize(T value, DataOutput out) throws IOException
+            {
+                MaelstromSerializers.serialize((Map<Key, Value>) value, out);
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public T deserialize(DataInput in) throws IOException
+            {
+                Map<Key, Value> map = supplier.get();
+                int size = VarInt.readUnsignedInt(in);
+                for (int i = 0 ; i < size ; ++i)
+                    map.put(KEY.deserialize(in), deserializeValue(in));
+                return (T) map;
+            }
+        };
+    }
+
+    static final Serializer<Key> KEY = new Serializer<>()
+    {
+        @Override
+        public void serialize(Key key, DataOutput out) throws IOException
+        {
+            MaelstromSerializers.serialize((MaelstromKey) key, out);
+        }
+
+        @Override
+        public Key deserialize(DataInput in) throws IOException
+        {
+            Datum.Kind kind = Datum.Kind.values()[in.readByte()];
+            return new MaelstromKey(kind, deserializeDatumValue(kind, in));
+        }
+    };
+
+    static final Serializer<Update> UPDATE = mapSerializer(MaelstromUpdate::new);
+    static final Serializer<Write> WRITE = mapSerializer(MaelstromWrite::new);
+    static final Serializer<Data> DATA = mapSerializer(MaelstromData::new);
+
+    static final Serializer<Read> READ = new Serializer<>()
+    {
+        @Override
+        public void serialize(Read read, DataOutput out) throws IOException
+        {
+            TXN_SERIALIZER.serialize(((MaelstromRead) read).keys, out);
+        }
+
+        @Override
+        public Read deserialize(DataInput in) throws IOException
+        {
+            return new MaelstromRead(TXN_SERIALIZER.deserializeKeys(in));
+        }
+    };
+
+    static final Serializer<Query> QUERY = new Serializer<>()
+    {
+        @Override
+        public void serialize(Query value, DataOutput out) throws IOException
+        {
+            MaelstromQuery query = (MaelstromQuery) value;
+            VarInt.writeSigned(query.client.id, out);
+            VarInt.writeSigned(query.requestId, out);
+            TXN_SERIALIZER.serialize(query.read, out);
+            TxnSerializer.serializeNullable(query.update, UPDATE, out);
+        }
+
+        @Override
+        public Query deserialize(DataInput in) throws IOException
+        {
+            return new MaelstromQuery(new Id(VarInt.readSigned(in)), VarInt.readSigned(in), TXN_SERIALIZER.deserializeKeys(in),
+                                      (MaelstromUpdate) TxnSerializer.deserializeNullable(UPDATE, in));
+        }
+    };
+
+    static final Serializer<Result> RESULT = new Serializer<>()
+    {
+        @Override
+        public void serialize(Result value, DataOutput out) throws IOException
+        {
+            MaelstromResult result = (MaelstromResult) value;
+            VarInt.writeSigned(result.client.id, out);
+            VarInt.writeSigned(result.requestId, out);
+            TXN_SERIALIZER.serialize(result.keys, out);
+            VarInt.writeUnsignedInt(result.read.length, out);
+            for (Value read : result.read)
+            {
+                out.writeBoolean(read != null);
+                if (read != null)
+                    MaelstromSerializers.serialize(read, out);
+            }
+            TxnSerializer.serializeNullable(result.update, UPDATE, out);
+        }
+
+        @Override
+        public Result deserialize(DataInput in) throws IOException
+        {
+            Id client = new Id(VarInt.readSigned(in));
+            long requestId = VarInt.readSigned(in);
+            Keys keys = TXN_SERIALIZER.deserializeKeys(in);
+            Value[] read = new Value[VarInt.readUnsignedInt(in)];
+            for (int i = 0 ; i < read.length ; ++i)
+                read[i] = in.readBoolean() ? deserializeValue(in) : null;
+            return new MaelstromResult(client, requestId, keys, read, (MaelstromUpdate) TxnSerializer.deserializeNullable(UPDATE, in));
+        }
+    };
+
+    @Override public Serializer<Key> key() { return KEY; }
+    @Override public Serializer<Read> read() { return READ; }
+    @Override public Serializer<Query> query() { return QUERY; }
+    @Override public Serializer<Update> update() { return UPDATE; }
+    @Override public Serializer<Write> write() { return WRITE; }
+    @Override public Serializer<Result> result() { return RESULT; }
+    @Override public Serializer<Data> data() { return DATA; }
+}
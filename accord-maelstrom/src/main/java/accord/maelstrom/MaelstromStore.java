@@ -2,6 +2,7 @@ package accord.maelstrom;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 import accord.api.Key;
 import accord.api.Store;
@@ -10,6 +11,23 @@ import accord.utils.Timestamped;
 public class MaelstromStore implements Store
 {
     final Map<Key, Timestamped<Value>> data = new ConcurrentHashMap<>();
+    final Executor readExecutor;
+
+    public MaelstromStore()
+    {
+        this(Runnable::run);
+    }
+
+    public MaelstromStore(Executor readExecutor)
+    {
+        this.readExecutor = readExecutor;
+    }
+
+    @Override
+    public Executor readExecutor()
+    {
+        return readExecutor;
+    }
 
     public Value read(Key key)
     {
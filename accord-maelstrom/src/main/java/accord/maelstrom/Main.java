@@ -1,23 +1,42 @@
 package accord.maelstrom;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.LongSupplier;
 import java.util.function.Supplier;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
 import accord.local.Node;
 import accord.local.Node.Id;
 import accord.api.Scheduler;
+import accord.api.Scheduler.Scheduled;
 import accord.messages.Timeout;
+import accord.utils.Batcher;
+import accord.utils.InstanceExecutors;
 import accord.utils.ThreadPoolScheduler;
+import accord.utils.TimerWheel;
 import accord.maelstrom.Packet.Type;
 import accord.api.MessageSink;
 import accord.messages.Callback;
@@ -31,28 +50,50 @@ public class Main
     {
         final Callback callback;
         final Id to;
-        final long timeout;
+        Scheduled timeout;
 
-        CallbackInfo(Callback callback, Id to, long timeout)
+        CallbackInfo(Callback callback, Id to)
         {
             this.callback = callback;
             this.to = to;
-            this.timeout = timeout;
         }
     }
 
+    /**
+     * Sends packets to stdout from a dedicated writer thread, so that senders only enqueue them. The writer drains
+     * every packet that is pending, streams each straight into a buffered JsonWriter, and flushes once per drain.
+     * Packets are logged to stderr only if debug is enabled, in which case each is serialized once for both streams.
+     */
     public static class StdoutSink implements MessageSink
     {
+        private static final Packet STOP = new Packet(null, null, (Body) null);
+
         private final AtomicLong nextMessageId = new AtomicLong(1);
         private final Map<Long, CallbackInfo> callbacks = new ConcurrentHashMap<>();
+        private final BlockingQueue<Packet> outbound = new LinkedBlockingQueue<>();
+        private final Thread writer;
+        // set if the writer has failed, after which we can no longer communicate and the node must terminate
+        private volatile Throwable failed;
 
         final LongSupplier nowSupplier;
         final Scheduler scheduler;
         final long start;
         final Id self;
         final PrintStream out, err;
+        final Batcher<Packet> batcher;
+        final TimerWheel timeouts;
+        final boolean debug;
 
         public StdoutSink(LongSupplier nowSupplier, Scheduler scheduler, long start, Id self, PrintStream stdout, PrintStream stderr)
+        {
+            this(nowSupplier, scheduler, start, self, stdout, stderr, false, true);
+        }
+
+        /**
+         * @param batch if true, coalesce the messages we send to each other node within a short window
+         * @param debug if true, log every packet we send to stderr
+         */
+        public StdoutSink(LongSupplier nowSupplier, Scheduler scheduler, long start, Id self, PrintStream stdout, PrintStream stderr, boolean batch, boolean debug)
         {
             this.nowSupplier = nowSupplier;
             this.scheduler = scheduler;
@@ -60,67 +101,179 @@ public class Main
             this.self = self;
             this.out = stdout;
             this.err = stderr;
-            this.scheduler.recurring(() -> {
-                long now = nowSupplier.getAsLong();
-                callbacks.forEach((messageId, info) -> {
-                    if (info.timeout < now && callbacks.remove(messageId, info))
-                        info.callback.onFailure(info.to, new Timeout());
-                });
-            }, 1L, TimeUnit.SECONDS);
+            this.debug = debug;
+            this.batcher = batch ? new Batcher<>(scheduler, 1L, TimeUnit.MILLISECONDS, 16, this::flush) : null;
+            this.timeouts = new TimerWheel(scheduler, nowSupplier);
+            this.timeouts.start();
+            this.writer = new Thread(this::write, "stdout");
+            this.writer.setDaemon(true);
+            this.writer.start();
+        }
+
+        private void add(Packet packet)
+        {
+            // only coalesce messages between nodes; replies to clients are sent immediately
+            if (batcher == null || packet.dest.id < 0) send(packet);
+            else batcher.add(packet.dest, packet);
+        }
+
+        private void flush(Id to, List<Packet> packets)
+        {
+            if (packets.size() == 1)
+            {
+                send(packets.get(0));
+                return;
+            }
+
+            Body[] bodies = new Body[packets.size()];
+            for (int i = 0 ; i < bodies.length ; ++i)
+                bodies[i] = packets.get(i).body;
+            send(new Packet(self, to, new Batch(Arrays.asList(bodies))));
         }
 
         private void send(Packet packet)
         {
-            err.println("Sending " + (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)) + " " + packet);
-            err.flush();
-            out.println(packet);
-            out.flush();
+            Throwable failed = this.failed;
+            if (failed != null)
+                throw new IllegalStateException("Can no longer write to stdout", failed);
+            outbound.add(packet);
+        }
+
+        public boolean hasFailed()
+        {
+            return failed != null;
+        }
+
+        private void write()
+        {
+            Writer buffer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+            JsonWriter json = new JsonWriter(buffer);
+            json.setLenient(true);
+            List<Packet> drain = new ArrayList<>();
+            try
+            {
+                while (true)
+                {
+                    drain.add(outbound.take());
+                    outbound.drainTo(drain);
+                    for (Packet packet : drain)
+                    {
+                        if (packet == STOP)
+                        {
+                            buffer.flush();
+                            return;
+                        }
+
+                        if (debug)
+                        {
+                            String str = packet.toString();
+                            err.println("Sending " + (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)) + " " + str);
+                            buffer.write(str);
+                        }
+                        else
+                        {
+                            Packet.GSON_ADAPTER.write(json, packet);
+                        }
+                        buffer.write('\n');
+                    }
+                    drain.clear();
+                    buffer.flush();
+                    // a PrintStream reports no IOException, only that one has occurred
+                    if (out.checkError())
+                        throw new IOException("Error writing to stdout");
+                    if (debug)
+                        err.flush();
+                }
+            }
+            catch (Throwable t)
+            {
+                // stop accepting packets we will never write, and let the node terminate
+                failed = t;
+                outbound.clear();
+                err.println("Failed writing to stdout; failing node " + self);
+                t.printStackTrace(err);
+                err.flush();
+            }
         }
 
-        public synchronized void send(Id to, Body body)
+        /**
+         * Write every packet sent before this call, and stop the writer thread
+         */
+        public void stop() throws InterruptedException
+        {
+            outbound.add(STOP);
+            writer.join();
+        }
+
+        public void send(Id to, Body body)
         {
             send(new Packet(self, to, body));
         }
 
         @Override
-        public synchronized void send(Id to, Request send)
+        public void send(Id to, Request send)
         {
-            send(new Packet(self, to, Body.SENTINEL_MSG_ID, send));
+            add(new Packet(self, to, Body.SENTINEL_MSG_ID, send));
         }
 
         @Override
         public void send(Id to, Request send, Callback callback)
         {
             long messageId = nextMessageId.incrementAndGet();
-            callbacks.put(messageId, new CallbackInfo(callback, to, nowSupplier.getAsLong() + 1000L));
-            send(new Packet(self, to, messageId, send));
+            CallbackInfo info = new CallbackInfo(callback, to);
+            info.timeout = timeouts.once(() -> {
+                if (callbacks.remove(messageId, info))
+                    callback.onFailure(to, new Timeout());
+            }, 1000L, TimeUnit.MILLISECONDS);
+            callbacks.put(messageId, info);
+            add(new Packet(self, to, messageId, send));
         }
 
         @Override
         public void reply(Id replyToNode, long replyToMessage, Reply reply)
         {
-            send(new Packet(self, replyToNode, replyToMessage, reply));
+            // the sender is not awaiting a reply
+            if (replyToMessage == Body.SENTINEL_MSG_ID)
+                return;
+            add(new Packet(self, replyToNode, replyToMessage, reply));
         }
     }
 
     public static void listen(TopologyFactory topologyFactory, InputStream stdin, PrintStream out, PrintStream err) throws IOException
     {
-        try (BufferedReader in = new BufferedReader(new InputStreamReader(stdin)))
+        listen(topologyFactory, stdin, out, err, false, true);
+    }
+
+    /**
+     * Parse packets directly from the stream, rather than reading each line before parsing it
+     */
+    public static void listen(TopologyFactory topologyFactory, InputStream stdin, PrintStream out, PrintStream err, boolean batch, boolean debug) throws IOException
+    {
+        try (JsonReader in = new JsonReader(new BufferedReader(new InputStreamReader(stdin, StandardCharsets.UTF_8), 1 << 16)))
         {
+            in.setLenient(true);
             listen(topologyFactory, () -> {
                 try
                 {
-                    return in.readLine();
+                    return in.peek() == JsonToken.END_DOCUMENT ? null : Packet.GSON_ADAPTER.read(in);
                 }
                 catch (IOException e)
                 {
-                    throw new RuntimeException(e);
+                    throw new UncheckedIOException(e);
                 }
-            }, out, err);
+            }, out, err, batch, debug);
         }
     }
 
     public static void listen(TopologyFactory topologyFactory, Supplier<String> in, PrintStream out, PrintStream err) throws IOException
+    {
+        listen(topologyFactory, () -> {
+            String line = in.get();
+            return line == null ? null : Packet.parse(line);
+        }, out, err, false, true);
+    }
+
+    static void listen(TopologyFactory topologyFactory, Supplier<Packet> in, PrintStream out, PrintStream err, boolean batch, boolean debug)
     {
         long start = System.nanoTime();
         err.println("Starting...");
@@ -130,54 +283,77 @@ public class Main
         Shards shards;
         StdoutSink sink;
         {
-            String line = in.get();
-            err.println("Received " + (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)) + " " + line);
-            err.flush();
-            Packet packet = Json.GSON.fromJson(line, Packet.class);
+            Packet packet = in.get();
+            if (debug)
+                err.println("Received " + (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)) + " " + packet);
             MaelstromInit init = (MaelstromInit) packet.body;
             shards = topologyFactory.toShards(init.cluster);
-            sink = new StdoutSink(System::currentTimeMillis, scheduler, start, init.self, out, err);
-            on = new Node(init.self, shards, shards.forNode(init.self), sink, new Random(), System::currentTimeMillis, MaelstromStore::new, MaelstromAgent.INSTANCE, scheduler);
+            sink = new StdoutSink(System::currentTimeMillis, scheduler, start, init.self, out, err, batch, debug);
+            Executor reads = InstanceExecutors.threadPool("read", 4);
+            on = new Node(init.self, shards, shards.forNode(init.self), sink, new Random(), System::currentTimeMillis, () -> new MaelstromStore(reads), MaelstromAgent.INSTANCE, scheduler,
+                          new Node.Options().executors(InstanceExecutors.singleThreaded("instance")));
             err.println("Initialized node " + init.self);
             err.flush();
             sink.send(packet.src, new Body(Type.init_ok, Body.SENTINEL_MSG_ID, init.msg_id));
         }
+        // this thread only reads and dispatches packets; everything we send is written by the sink's own thread
         while (true)
         {
-            String line = in.get();
-            if (line == null)
+            Packet next = in.get();
+            if (next == null || sink.hasFailed())
             {
-                err.println("Received EOF; terminating");
+                err.println(next == null ? "Received EOF; terminating" : "Can no longer write to stdout; terminating");
                 err.flush();
                 scheduler.stop();
+                try
+                {
+                    sink.stop();
+                }
+                catch (InterruptedException e)
+                {
+                    throw new IllegalStateException(e);
+                }
                 err.println("Terminated");
                 err.flush();
                 return;
             }
-            err.println("Received " + (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)) + " " + line);
-            err.flush();
-            Packet next = Packet.parse(line);
-            switch (next.body.type)
-            {
-                case txn:
-                    on.receive((MaelstromRequest)next.body, next.src, next.body.msg_id);
-                    break;
-                default:
-                    if (next.body.in_reply_to > Body.SENTINEL_MSG_ID)
-                    {
-                        Reply reply = (Reply)((Wrapper)next.body).body;
-                        CallbackInfo callback = reply.isFinal() ? sink.callbacks.remove(next.body.in_reply_to)
-                                                                : sink.callbacks.get(next.body.in_reply_to);
-                        if (callback != null)
-                            scheduler.now(() -> callback.callback.onSuccess(next.src, reply));
-                    }
-                    else on.receive((Request)((Wrapper)next.body).body, next.src, next.body.msg_id);
-            }
+            if (debug)
+                err.println("Received " + (TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)) + " " + next);
+            receive(on, sink, scheduler, next.src, next.body);
+        }
+    }
+
+    private static void receive(Node on, StdoutSink sink, Scheduler scheduler, Id src, Body body)
+    {
+        switch (body.type)
+        {
+            case txn:
+                on.receive((MaelstromRequest)body, src, body.msg_id);
+                break;
+            case batch:
+                for (Body next : ((Batch)body).msgs)
+                    receive(on, sink, scheduler, src, next);
+                break;
+            default:
+                if (body.in_reply_to > Body.SENTINEL_MSG_ID)
+                {
+                    Reply reply = (Reply)((Wrapper)body).body;
+                    CallbackInfo callback = reply.isFinal() ? sink.callbacks.remove(body.in_reply_to)
+                                                            : sink.callbacks.get(body.in_reply_to);
+                    if (callback != null && reply.isFinal())
+                        callback.timeout.cancel();
+                    if (callback != null)
+                        scheduler.now(() -> callback.callback.onSuccess(src, reply));
+                }
+                else on.receive((Request)((Wrapper)body).body, src, body.msg_id);
         }
     }
 
     public static void main(String[] args) throws IOException
     {
-        listen(new TopologyFactory(64, 3), System.in, System.out, System.err);
+        // run with "batch" to coalesce the messages we send to each other node, and "debug" to log every packet
+        boolean batch = Arrays.asList(args).contains("batch");
+        boolean debug = Arrays.asList(args).contains("debug");
+        listen(new TopologyFactory(64, 3), System.in, System.out, System.err, batch, debug);
     }
 }
@@ -27,6 +27,7 @@ public class Packet
         txn(MaelstromRequest.class, MaelstromRequest.GSON_ADAPTER),
         txn_ok(MaelstromReply.class, MaelstromReply.GSON_ADAPTER),
         error(Error.class, Error.GSON_ADAPTER),
+        batch(Batch.class, Batch.GSON_ADAPTER),
         PreAccept(accord.messages.PreAccept.class, Json.DEFAULT_ADAPTER),
         PreAcceptOk(accord.messages.PreAccept.PreAcceptOk.class, Json.DEFAULT_ADAPTER),
         PreAcceptNack(accord.messages.PreAccept.PreAcceptNack.class, Json.DEFAULT_ADAPTER),
@@ -35,15 +36,21 @@ public class Packet
         AcceptNack(accord.messages.Accept.AcceptNack.class, Json.DEFAULT_ADAPTER),
         Commit(accord.messages.Commit.class, Json.DEFAULT_ADAPTER),
         Apply(Apply.class, Json.DEFAULT_ADAPTER),
+        ApplyOk(Apply.ApplyOk.class, Json.DEFAULT_ADAPTER),
+        InformDurable(accord.messages.InformDurable.class, Json.DEFAULT_ADAPTER),
+        InformDurableOk(accord.messages.InformDurable.InformDurableOk.class, Json.DEFAULT_ADAPTER),
         Read(ReadData.class, Json.DEFAULT_ADAPTER),
         ReadOk(ReadData.ReadOk.class, Json.DEFAULT_ADAPTER),
-        ReadWaiting(ReadData.ReadWaiting.class, Json.DEFAULT_ADAPTER),
         ReadNack(ReadData.ReadNack.class, Json.DEFAULT_ADAPTER),
         WaitOnCommit(accord.messages.WaitOnCommit.class, Json.DEFAULT_ADAPTER),
         WaitOnCommitOk(accord.messages.WaitOnCommit.WaitOnCommitOk.class, Json.DEFAULT_ADAPTER),
+        FetchTxn(accord.messages.FetchTxn.class, Json.DEFAULT_ADAPTER),
+        FetchTxnOk(accord.messages.FetchTxn.FetchTxnOk.class, Json.DEFAULT_ADAPTER),
+        FetchTxnNack(accord.messages.FetchTxn.FetchTxnNack.class, Json.DEFAULT_ADAPTER),
         Recover(BeginRecovery.class, Json.DEFAULT_ADAPTER),
         RecoverOk(BeginRecovery.RecoverOk.class, Json.DEFAULT_ADAPTER),
-        RecoverNack(BeginRecovery.RecoverNack.class, Json.DEFAULT_ADAPTER);
+        RecoverNack(BeginRecovery.RecoverNack.class, Json.DEFAULT_ADAPTER),
+        Refused(accord.messages.Refused.class, Json.DEFAULT_ADAPTER);
 
         public static final Function<Class<?>, Type> LOOKUP = Arrays.stream(Type.values())
                                                                     .filter(t -> t.type != null)
@@ -0,0 +1,90 @@
+package accord.maelstrom;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonReader;
+
+import accord.local.Node.Id;
+import accord.messages.WaitOnCommit;
+import accord.txn.Keys;
+import accord.txn.TxnId;
+import accord.utils.ThreadPoolScheduler;
+
+/**
+ * Measures the throughput of a StdoutSink sending small protocol messages to a handful of peers, with and without
+ * batching, and verifies that a batched stream unbatches to the same number of messages.
+ *
+ * Run with: [messages] [destinations] [rounds]
+ */
+public class BatchingBenchmark
+{
+    static final PrintStream DEVNULL = new PrintStream(OutputStream.nullOutputStream());
+
+    public static void main(String[] args) throws IOException, InterruptedException
+    {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int destinations = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        System.out.printf("unbatched: %d packets written for %d messages\n", verify(messages, destinations, false), messages);
+        System.out.printf("batched:   %d packets written for %d messages\n", verify(messages, destinations, true), messages);
+
+        for (int round = 0 ; round < rounds ; ++round)
+        {
+            for (boolean batch : new boolean[] { false, true })
+            {
+                try (PrintStream out = new PrintStream(new BufferedOutputStream(new FileOutputStream("/dev/null"))))
+                {
+                    long nanos = send(out, messages, destinations, batch);
+                    System.out.printf("%-11s %,d messages/s\n", batch ? "batched:" : "unbatched:", (long) (messages / (nanos / 1e9)));
+                }
+            }
+        }
+    }
+
+    // send every message and return the number of packets written, having verified they contain every message
+    static int verify(int messages, int destinations, boolean batch) throws IOException, InterruptedException
+    {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        send(new PrintStream(bytes), messages, destinations, batch);
+
+        int packets = 0, received = 0;
+        for (String line : bytes.toString().split("\n"))
+        {
+            JsonObject packet = Json.GSON.fromJson(line, JsonObject.class);
+            Body body = Body.read(new JsonReader(new StringReader(packet.get("body").toString())), new Id(1));
+            ++packets;
+            received += body instanceof Batch ? ((Batch) body).msgs.size() : 1;
+        }
+
+        if (received != messages)
+            throw new AssertionError("Sent " + messages + " messages, but received " + received);
+        return packets;
+    }
+
+    static long send(PrintStream out, int messages, int destinations, boolean batch) throws InterruptedException
+    {
+        ThreadPoolScheduler scheduler = new ThreadPoolScheduler();
+        Id self = new Id(1);
+        Main.StdoutSink sink = new Main.StdoutSink(System::currentTimeMillis, scheduler, System.nanoTime(), self, out, DEVNULL, batch, false);
+        Keys keys = new Keys(new MaelstromKey[] { new MaelstromKey(1L) });
+
+        long start = System.nanoTime();
+        for (int i = 0 ; i < messages ; ++i)
+            sink.send(new Id(2 + (i % destinations)), new WaitOnCommit(new TxnId(i, 0, self), keys));
+        if (sink.batcher != null)
+            sink.batcher.flush();
+        sink.stop();
+        long nanos = System.nanoTime() - start;
+
+        scheduler.stop();
+        return nanos;
+    }
+}
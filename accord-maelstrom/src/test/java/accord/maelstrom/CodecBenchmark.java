@@ -0,0 +1,142 @@
+package accord.maelstrom;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.List;
+
+import com.google.gson.stream.JsonReader;
+
+import accord.local.Node.Id;
+import accord.messages.Apply;
+import accord.messages.Commit;
+import accord.messages.Message;
+import accord.messages.MessageSerializer;
+import accord.messages.PreAccept;
+import accord.messages.PreAccept.PreAcceptOk;
+import accord.messages.ReadData.ReadOk;
+import accord.txn.Dependencies;
+import accord.txn.Keys;
+import accord.txn.Timestamp;
+import accord.txn.Txn;
+import accord.txn.TxnId;
+import accord.txn.Writes;
+import accord.utils.BufferPool;
+
+/**
+ * Compares the size and encode/decode throughput of the Gson wire format with the binary MessageSerializer for
+ * a representative mix of protocol messages, and verifies that both round trip to the same binary encoding.
+ *
+ * Run with: [keys] [iterations] [rounds]
+ */
+public class CodecBenchmark
+{
+    public static void main(String[] args) throws IOException
+    {
+        int keyCount = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+
+        List<Message> messages = messages(keyCount);
+        Id from = new Id(1);
+        BufferPool pool = new BufferPool();
+        MessageSerializer serializer = new MessageSerializer(MaelstromSerializers.TXN_SERIALIZER, pool);
+
+        int jsonBytes = 0, binaryBytes = 0;
+        for (Message message : messages)
+        {
+            String json = json(message);
+            ByteBuffer binary = serializer.serialize(message);
+            jsonBytes += json.getBytes().length;
+            binaryBytes += binary.remaining();
+
+            byte[] expect = bytes(binary);
+            pool.release(binary);
+            verify(expect, serializer, fromJson(json, from));
+            verify(expect, serializer, serializer.deserialize(ByteBuffer.wrap(expect)));
+        }
+        System.out.printf("json:   %,d bytes per message\n", jsonBytes / messages.size());
+        System.out.printf("binary: %,d bytes per message\n", binaryBytes / messages.size());
+
+        for (int round = 0 ; round < rounds ; ++round)
+        {
+            long start = System.nanoTime();
+            long sink = 0;
+            for (int i = 0 ; i < iterations ; ++i)
+            {
+                String json = json(messages.get(i % messages.size()));
+                sink += json.length();
+                sink += fromJson(json, from).hashCode();
+            }
+            long jsonNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0 ; i < iterations ; ++i)
+            {
+                ByteBuffer buffer = serializer.serialize(messages.get(i % messages.size()));
+                sink += buffer.remaining();
+                sink += serializer.deserialize(buffer).hashCode();
+                pool.release(buffer);
+            }
+            long binaryNanos = System.nanoTime() - start;
+
+            System.out.printf("json:   %,d round trips/s\n", (long) (iterations / (jsonNanos / 1e9)));
+            System.out.printf("binary: %,d round trips/s (%d)\n", (long) (iterations / (binaryNanos / 1e9)), sink & 1);
+        }
+    }
+
+    static List<Message> messages(int keyCount)
+    {
+        Id self = new Id(1), client = new Id(-1);
+        MaelstromKey[] keyArray = new MaelstromKey[keyCount];
+        MaelstromUpdate update = new MaelstromUpdate();
+        MaelstromData data = new MaelstromData();
+        for (int i = 0 ; i < keyCount ; ++i)
+        {
+            keyArray[i] = new MaelstromKey((long) i);
+            update.put(keyArray[i], new Value(new Datum((long) i)));
+            data.put(keyArray[i], new Value(new Datum[] { new Datum(1L), new Datum(2L), new Datum((long) i) }));
+        }
+
+        Keys keys = new Keys(keyArray);
+        Txn txn = new Txn(keys, new MaelstromRead(keys), new MaelstromQuery(client, 1, keys, update), update);
+        TxnId txnId = new TxnId(1_000_000, 0, self);
+        Timestamp executeAt = new Timestamp(1_000_010, 1, new Id(2));
+        Dependencies.Builder builder = Dependencies.builder();
+        for (int i = 0 ; i < 8 ; ++i)
+            builder.add(new TxnId(999_000 + i, 0, new Id(1 + i % 3)), new Keys(new MaelstromKey[] { keyArray[i % keyCount] }));
+        Dependencies deps = builder.build();
+        Writes writes = txn.execute(executeAt, data);
+
+        return Arrays.asList(new PreAccept(txnId, txn),
+                             new PreAcceptOk(executeAt, deps),
+                             new Commit(txnId, txn, executeAt, deps, true),
+                             new ReadOk(data),
+                             new Apply(txnId, txn, executeAt, deps, writes, txn.result(data)));
+    }
+
+    static String json(Message message)
+    {
+        return Json.GSON.toJson(new Wrapper(Packet.Type.LOOKUP.apply(message.getClass()), 1, 0, message), Body.class);
+    }
+
+    static Message fromJson(String json, Id from) throws IOException
+    {
+        return (Message) ((Wrapper) Body.read(new JsonReader(new StringReader(json)), from)).body;
+    }
+
+    static void verify(byte[] expect, MessageSerializer serializer, Message message)
+    {
+        ByteBuffer buffer = serializer.serialize(message);
+        if (!Arrays.equals(expect, bytes(buffer)))
+            throw new AssertionError("Round trip of " + message + " did not reproduce its encoding");
+    }
+
+    static byte[] bytes(ByteBuffer buffer)
+    {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+}